@@ -254,7 +254,9 @@ public class Settings {
     }
 
     public static Object getProperty(String key) {
-
+        if (props == null) {
+            return null;
+        }
         Object property = props.get(key);
         if(property != null) {
             return property;
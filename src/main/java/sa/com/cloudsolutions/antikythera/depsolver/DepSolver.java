@@ -37,8 +37,10 @@ import com.github.javaparser.ast.type.UnionType;
 import com.github.javaparser.ast.visitor.VoidVisitorAdapter;
 import sa.com.cloudsolutions.antikythera.configuration.Settings;
 import sa.com.cloudsolutions.antikythera.evaluator.AntikytheraRunTime;
+import sa.com.cloudsolutions.antikythera.evaluator.EvaluationContext;
 
 import sa.com.cloudsolutions.antikythera.generator.CopyUtils;
+import sa.com.cloudsolutions.antikythera.generator.OutputWriter;
 import sa.com.cloudsolutions.antikythera.generator.TypeWrapper;
 import sa.com.cloudsolutions.antikythera.parser.AbstractCompiler;
 import sa.com.cloudsolutions.antikythera.parser.ImportUtils;
@@ -47,25 +49,15 @@ import sa.com.cloudsolutions.antikythera.parser.MCEWrapper;
 
 import java.io.File;
 import java.io.IOException;
-import java.nio.file.Files;
 import java.nio.file.Paths;
-import java.nio.file.StandardCopyOption;
 import java.util.ArrayList;
 import java.util.Comparator;
-import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 
 public class DepSolver {
-    /**
-     * The stack for the depth first search.
-     */
-    private static final LinkedList<GraphNode> stack = new LinkedList<>();
-
-    private static final Map<String, Type> names = new HashMap<>();
-
     private static DepSolver solver;
 
     /**
@@ -110,6 +102,7 @@ public class DepSolver {
          *
          * Thirdly, it will do the same sort of thing for constructors.
          */
+        LinkedList<GraphNode> stack = EvaluationContext.current().getDependencyStack();
         while (! stack.isEmpty()) {
             GraphNode node = stack.pollLast();
 
@@ -219,7 +212,7 @@ public class DepSolver {
 
         searchMethodParameters(node, cd.getParameters());
 
-        names.clear();
+        getNames().clear();
         cd.accept(new VariableVisitor(), node);
         cd.accept(new Visitor(), node);
     }
@@ -340,9 +333,8 @@ public class DepSolver {
     }
 
     private void writeFiles() throws IOException {
-        Files.copy(Paths.get(Settings.getProperty("base_path").toString().replace("src/main/java",""), "pom.xml"),
-                Paths.get(Settings.getProperty("output_path").toString().replace("src/main/java",""), "pom.xml"),
-                StandardCopyOption.REPLACE_EXISTING);
+        OutputWriter.copy(Paths.get(Settings.getProperty("base_path").toString().replace("src/main/java",""), "pom.xml"),
+                Paths.get(Settings.getProperty("output_path").toString().replace("src/main/java",""), "pom.xml"));
 
         for (Map.Entry<String, CompilationUnit> entry : Graph.getDependencies().entrySet()) {
             boolean write = false;
@@ -364,14 +356,14 @@ public class DepSolver {
                 }
             }
             if (write) {
-                CopyUtils.writeFile(AbstractCompiler.classToPath(entry.getKey()), cu.toString());
+                CopyUtils.writeFile(AbstractCompiler.classToPath(entry.getKey()), cu);
             }
         }
     }
 
     public static void reset() {
-         stack.clear();
-         names.clear();
+         EvaluationContext.current().getDependencyStack().clear();
+         getNames().clear();
          Graph.getDependencies().clear();
          Graph.getNodes().clear();
     }
@@ -388,7 +380,7 @@ public class DepSolver {
          */
         @Override
         public void visit(final Parameter n, GraphNode node) {
-            names.put(n.getNameAsString(), n.getType());
+            getNames().put(n.getNameAsString(), n.getType());
             node.processTypeArgument(n.getType());
             super.visit(n, node);
         }
@@ -399,7 +391,7 @@ public class DepSolver {
 
             for(VariableDeclarator vd : n.getVariables()) {
 
-                names.put(vd.getNameAsString(), vd.getType());
+                getNames().put(vd.getNameAsString(), vd.getType());
                 if (vd.getType().isClassOrInterfaceType()) {
                     node.processTypeArgument(vd.getType().asClassOrInterfaceType());
                 }
@@ -541,13 +533,13 @@ public class DepSolver {
         }
     }
 
-    public static DepSolver createSolver() {
+    public static synchronized DepSolver createSolver() {
         if(solver == null) {
             solver = new DepSolver();
         }
         else {
-            DepSolver.names.clear();
-            DepSolver.stack.clear();
+            getNames().clear();
+            EvaluationContext.current().getDependencyStack().clear();
         }
         return solver;
     }
@@ -562,14 +554,20 @@ public class DepSolver {
 
         CopyUtils.createMavenProjectStructure(Settings.getBasePackage(), Settings.getProperty("output_path").toString());
         depSolver.writeFiles();
+        OutputWriter.shutdown();
     }
 
+    /**
+     * Push a node onto the stack for the depth first search.
+     * The stack belongs to the evaluation context of the current thread.
+     * @param g the node to be searched
+     */
     public static void push(GraphNode g) {
-        stack.push(g);
+        EvaluationContext.current().getDependencyStack().push(g);
     }
 
     public static Map<String, Type> getNames() {
-        return names;
+        return EvaluationContext.current().getNames();
     }
 
     /**
@@ -577,6 +575,7 @@ public class DepSolver {
      * @return the element at the top of the stack.
      */
     public GraphNode peek() {
+        LinkedList<GraphNode> stack = EvaluationContext.current().getDependencyStack();
         if (stack.isEmpty()) {
             return null;
         }
@@ -6,24 +6,12 @@ import com.github.javaparser.ast.body.ClassOrInterfaceDeclaration;
 import com.github.javaparser.ast.body.EnumDeclaration;
 import com.github.javaparser.ast.body.TypeDeclaration;
 import com.github.javaparser.ast.comments.JavadocComment;
+import sa.com.cloudsolutions.antikythera.evaluator.EvaluationContext;
 
-import java.util.HashMap;
 import java.util.Map;
 import java.util.Optional;
 
 public class Graph {
-    /**
-     * Map of fully qualified class names and their generated compilation units.
-     *
-     * For most classes the generated compilation unit will only be a subset of the input
-     * compilation unit.
-     */
-    private static final Map<String, CompilationUnit> dependencies = new HashMap<>();
-    /**
-     * Map of nodes with their hash code as the key.
-     * This is essentially our graph.
-     */
-    private static final Map<Integer, GraphNode> nodes = new HashMap<>();
 
     private Graph() {
 
@@ -43,6 +31,7 @@ public class Graph {
             Optional<String> fullyQualifiedName = cdecl.getFullyQualifiedName();
             if (fullyQualifiedName.isPresent()) {
                 String fqn = fullyQualifiedName.get();
+                Map<String, CompilationUnit> dependencies = getDependencies();
                 if (dependencies.containsKey(fqn)) {
                     /*
                      * This class has been processed before, but this particular method or field
@@ -128,11 +117,21 @@ public class Graph {
     }
 
 
+    /**
+     * Map of fully qualified class names and their generated compilation units.
+     *
+     * For most classes the generated compilation unit will only be a subset of the input
+     * compilation unit. The map belongs to the evaluation context of the current thread.
+     */
     public static Map<String, CompilationUnit> getDependencies() {
-        return dependencies;
+        return EvaluationContext.current().getDependencies();
     }
 
+    /**
+     * Map of nodes with their hash code as the key.
+     * This is essentially our graph. It belongs to the evaluation context of the current thread.
+     */
     public static Map<Integer, GraphNode> getNodes() {
-        return nodes;
+        return EvaluationContext.current().getGraphNodes();
     }
 }
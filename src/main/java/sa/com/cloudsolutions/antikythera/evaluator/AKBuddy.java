@@ -30,6 +30,13 @@ import java.util.Map;
  * This will be primarily used in mocking.
  */
 public class AKBuddy {
+    /**
+     * The classes that have been created, by the name of the class that they fake.
+     * The classes are defined in the class loader of the application under test, where a name can
+     * only be defined once, so they are shared by all the evaluation contexts. The instances of
+     * classes created from source code carry their own interceptor, which evaluates the calls in
+     * the context of its evaluator.
+     */
     private static final Map<String, Class<?>> registry = new HashMap<>();
     public static final String INSTANCE_INTERCEPTOR = "instanceInterceptor";
 
@@ -46,7 +53,7 @@ public class AKBuddy {
      * @return an instance of the class that was faked.
      * @throws ClassNotFoundException If an error occurs during reflection operations.
      */
-    public static Class<?> createDynamicClass(MethodInterceptor interceptor) throws ClassNotFoundException {
+    public static synchronized Class<?> createDynamicClass(MethodInterceptor interceptor) throws ClassNotFoundException {
         Evaluator eval = interceptor.getEvaluator();
         if (eval != null) {
             return createDynamicClassBasedOnSourceCode(interceptor, eval);
@@ -2,67 +2,42 @@ package sa.com.cloudsolutions.antikythera.evaluator;
 
 import com.github.javaparser.ast.CompilationUnit;
 import com.github.javaparser.ast.body.TypeDeclaration;
+import sa.com.cloudsolutions.antikythera.generator.Asserter;
+import sa.com.cloudsolutions.antikythera.generator.RepositoryQuery;
 import sa.com.cloudsolutions.antikythera.generator.TypeWrapper;
+import sa.com.cloudsolutions.antikythera.parser.EntityIndex;
 
-import java.util.Deque;
-import java.util.HashMap;
 import java.util.HashSet;
-import java.util.LinkedList;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
 import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * <p>A basic Runtime for Antikythera.</p>
  *
  * This class will be used by the Evaluator to mimic a stack and keep track of
- * all the classes that we have compiled.
+ * all the classes that we have compiled. The stack, the autowired instances and the values of
+ * static fields belong to the {@link EvaluationContext} of the current thread; the compiled
+ * classes are shared by all of them.
  */
 public class AntikytheraRunTime {
     /**
      * Keeps track of all the compilation units that we have compiled
      */
-    private static final Map<String, CompilationUnit> resolved = new HashMap<>();
-
-    private static final Map<String, TypeWrapper> resolvedTypes = new HashMap<>();
-    /**
-     * <p>We are not using a stack data structure here, but a Deque. This is because Deque is a
-     * double-ended queue, which can be used as a stack. It is more efficient than a Stack ADT.
-     * Because in java the stack is synchronized.</p>
-     *
-     * While it's normal practice to also place the return value of a method call into the
-     * stack, we are not doing so in here.
-     */
-    protected static final Deque<Variable> stack = new LinkedList<>();
+    private static final Map<String, CompilationUnit> resolved = new ConcurrentHashMap<>();
 
+    private static final Map<String, TypeWrapper> resolvedTypes = new ConcurrentHashMap<>();
     /**
      * Stores the interfaces and their implementations.
      */
-    protected static final Map<String, Set<String>> interfaces = new HashMap<>();
+    protected static final Map<String, Set<String>> interfaces = new ConcurrentHashMap<>();
 
     /**
      * Stores parent classes as keys and child classes as values.
      */
-    protected static final Map<String, Set<String>> extensions = new HashMap<>();
-
-
-    /**
-     * Stores the fields that have been autowired.
-     * While there should not be cyclic dependencies, the reality is that they do exist in the wild.
-     * Additionally, due to the way that transactions work in spring boot, you often find classes
-     * auto wiring themselves.
-     * What this means to us is that setting up the fields will often lead to infinite recursions
-     * and stack overflows. To avoid that, lets keep all Autowired instances cached.
-     */
-    protected static final Map<String, Variable> autowired = new HashMap<>();
-
-    /**
-     * Keeps track of static variables.
-     * The fully qualified class name is the primary key. The values will be a map, where a field
-     * name will be the key and the variable will hold the value of the static field.
-     */
-    protected static final Map<String, Map<String,Variable>> statics = new HashMap<>();
+    protected static final Map<String, Set<String>> extensions = new ConcurrentHashMap<>();
 
     private AntikytheraRunTime() {}
 
@@ -94,23 +69,23 @@ public class AntikytheraRunTime {
     }
 
     public static void reset() {
-        stack.clear();
+        EvaluationContext.current().getStack().clear();
     }
 
     public static void resetAutowires() {
-        autowired.clear();
+        EvaluationContext.current().getAutowired().clear();
     }
 
     public static void push(Variable variable) {
-        stack.push(variable);
+        EvaluationContext.current().getStack().push(variable);
     }
 
     public static Variable pop() {
-        return stack.removeLast();
+        return EvaluationContext.current().getStack().removeLast();
     }
 
     public static boolean isEmptyStack() {
-        return stack.isEmpty();
+        return EvaluationContext.current().getStack().isEmpty();
     }
 
     public static boolean isInterface(String name) {
@@ -125,12 +100,36 @@ public class AntikytheraRunTime {
     }
 
     public static void resetAll() {
-        stack.clear();
+        EvaluationContext.current().getStack().clear();
         resolved.clear();
         interfaces.clear();
         extensions.clear();
     }
 
+    /**
+     * Forget a class so that it can be compiled again after its source has changed.
+     * Any types nested inside it are forgotten as well, and so is the class as a subclass or an
+     * implementation; those relations are added again when the new source is compiled. The
+     * assertions, entity metadata, mapping plans and converted queries that were worked out from
+     * the class are dropped too.
+     * @param className the fully qualified name of the class
+     */
+    public static void forget(String className) {
+        String nested = className + ".";
+        resolved.keySet().removeIf(k -> k.equals(className) || k.startsWith(nested));
+        resolvedTypes.keySet().removeIf(k -> k.equals(className) || k.startsWith(nested));
+        Asserter.forget(className);
+        RepositoryQuery.forget(className);
+        EntityIndex.forget(className);
+        EntityMappingPlan.forget(className);
+        for (Set<String> children : extensions.values()) {
+            children.remove(className);
+        }
+        for (Set<String> implementations : interfaces.values()) {
+            implementations.remove(className);
+        }
+    }
+
     public static void addSubClass(String parent, String child) {
         Set<String> s = extensions.computeIfAbsent(parent, k -> new HashSet<>());
         s.add(child);
@@ -150,20 +149,20 @@ public class AntikytheraRunTime {
     }
 
     public static void autoWire(String className, Variable variable) {
-        autowired.put(className, variable);
+        EvaluationContext.current().getAutowired().put(className, variable);
     }
 
     public static Variable getAutoWire(String className) {
-        return autowired.get(className);
+        return EvaluationContext.current().getAutowired().get(className);
     }
 
     public static Variable getStaticVariable(String fqn, String field) {
-        return statics.getOrDefault(fqn, new TreeMap<>()).get(field);
+        return EvaluationContext.current().getStatics().getOrDefault(fqn, new TreeMap<>()).get(field);
     }
 
     public static void setStaticVariable(String fqn, String field, Variable variable)
     {
-        Map<String, Variable> map = statics.computeIfAbsent(fqn, k -> new TreeMap<>());
+        Map<String, Variable> map = EvaluationContext.current().getStatics().computeIfAbsent(fqn, k -> new TreeMap<>());
         map.put(field, variable);
     }
 }
@@ -0,0 +1,425 @@
+package sa.com.cloudsolutions.antikythera.evaluator;
+
+import com.github.javaparser.ast.CompilationUnit;
+import com.github.javaparser.ast.Node;
+import com.github.javaparser.ast.body.FieldDeclaration;
+import com.github.javaparser.ast.body.MethodDeclaration;
+import com.github.javaparser.ast.body.Parameter;
+import com.github.javaparser.ast.body.TypeDeclaration;
+import com.github.javaparser.ast.body.VariableDeclarator;
+import com.github.javaparser.ast.expr.AssignExpr;
+import com.github.javaparser.ast.expr.BinaryExpr;
+import com.github.javaparser.ast.expr.Expression;
+import com.github.javaparser.ast.expr.FieldAccessExpr;
+import com.github.javaparser.ast.expr.LiteralExpr;
+import com.github.javaparser.ast.expr.MethodCallExpr;
+import com.github.javaparser.ast.expr.NameExpr;
+import com.github.javaparser.ast.expr.UnaryExpr;
+import com.github.javaparser.ast.expr.VariableDeclarationExpr;
+import com.github.javaparser.ast.stmt.BlockStmt;
+import com.github.javaparser.ast.stmt.IfStmt;
+import com.github.javaparser.ast.stmt.Statement;
+import sa.com.cloudsolutions.antikythera.exception.EvaluatorException;
+import sa.com.cloudsolutions.antikythera.parser.AbstractCompiler;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * <p>Lightweight static analysis of the conditions in a method.</p>
+ *
+ * Before evaluation starts we try to decide conditions that do not depend on the inputs at all.
+ * Two kinds of facts are used:
+ * <ul>
+ *     <li>Constants: literals, static final fields with a literal initializer and local variables
+ *     that are initialized with a literal and never assigned again.</li>
+ *     <li>Guards: the conditions of the enclosing if statements, and the negation of earlier
+ *     sibling if statements that always leave the block (return, throw, break or continue).
+ *     These are the conditions that dominate the statement. A guard is only trusted when it
+ *     is made up of parameters, local variables and constants that are not assigned anywhere
+ *     in the method and it does not call any methods. Fields are never trusted because any
+ *     method called between the guard and the statement may change them.</li>
+ * </ul>
+ * A condition that is decided by these facts is either always true or always false, so one of
+ * its branches can never be taken and there is no point in asking the evaluator to look for it.
+ */
+public class BranchAnalyzer {
+    private static final Object UNKNOWN = new Object();
+
+    private final MethodDeclaration method;
+    private final Map<String, Object> constants = new HashMap<>();
+    private final Set<String> assigned = new HashSet<>();
+    private final Set<String> locals = new HashSet<>();
+
+    public BranchAnalyzer(MethodDeclaration method) {
+        this.method = method;
+        collectLocals();
+        collectAssignments();
+        collectFieldConstants();
+        collectLocalConstants();
+    }
+
+    public MethodDeclaration getMethod() {
+        return method;
+    }
+
+    /**
+     * Try to decide the value of a condition at the point where it appears in the method.
+     * @param condition the condition of an if statement or a conditional expression
+     * @return true or false when the value of the condition does not depend on the inputs, empty
+     *      when it does (or when we cannot tell).
+     */
+    public Optional<Boolean> decide(Expression condition) {
+        Map<String, Boolean> facts = new HashMap<>();
+        collectGuards(condition, facts);
+        return Optional.ofNullable(evaluate(condition, facts));
+    }
+
+    private Boolean evaluate(Expression expr, Map<String, Boolean> facts) {
+        if (expr.isEnclosedExpr()) {
+            return evaluate(expr.asEnclosedExpr().getInner(), facts);
+        }
+        if (expr.isUnaryExpr() && expr.asUnaryExpr().getOperator() == UnaryExpr.Operator.LOGICAL_COMPLEMENT) {
+            Boolean inner = evaluate(expr.asUnaryExpr().getExpression(), facts);
+            return inner == null ? null : !inner;
+        }
+        if (expr.isBinaryExpr()) {
+            BinaryExpr binaryExpr = expr.asBinaryExpr();
+            if (binaryExpr.getOperator() == BinaryExpr.Operator.AND || binaryExpr.getOperator() == BinaryExpr.Operator.OR) {
+                boolean shortCircuit = binaryExpr.getOperator() == BinaryExpr.Operator.OR;
+                Boolean left = evaluate(binaryExpr.getLeft(), facts);
+                if (left != null && left == shortCircuit) {
+                    return shortCircuit;
+                }
+                Boolean right = evaluate(binaryExpr.getRight(), facts);
+                if (right != null && right == shortCircuit) {
+                    return shortCircuit;
+                }
+                return left != null && right != null ? !shortCircuit : null;
+            }
+        }
+
+        Guard guard = Guard.of(expr, true);
+        Boolean known = facts.get(guard.key);
+        if (known != null) {
+            return known == guard.polarity;
+        }
+
+        Object value = fold(expr);
+        return value instanceof Boolean b ? b : null;
+    }
+
+    /**
+     * Reduce an expression to a constant value.
+     * @return the value of the expression or UNKNOWN if it depends on something that is not constant
+     */
+    private Object fold(Expression expr) {
+        if (expr instanceof LiteralExpr) {
+            try {
+                return Evaluator.evaluateLiteral(expr).getValue();
+            } catch (EvaluatorException e) {
+                return UNKNOWN;
+            }
+        }
+        if (expr.isEnclosedExpr()) {
+            return fold(expr.asEnclosedExpr().getInner());
+        }
+        if (expr.isNameExpr()) {
+            String name = expr.asNameExpr().getNameAsString();
+            return constants.containsKey(name) ? constants.get(name) : UNKNOWN;
+        }
+        if (expr.isFieldAccessExpr()) {
+            return foldFieldAccess(expr.asFieldAccessExpr());
+        }
+        if (expr.isUnaryExpr() && expr.asUnaryExpr().getOperator() == UnaryExpr.Operator.LOGICAL_COMPLEMENT) {
+            Object value = fold(expr.asUnaryExpr().getExpression());
+            return value instanceof Boolean b ? !b : UNKNOWN;
+        }
+        if (expr.isBinaryExpr()) {
+            BinaryExpr binaryExpr = expr.asBinaryExpr();
+            Object left = fold(binaryExpr.getLeft());
+            if (left == UNKNOWN) {
+                return UNKNOWN;
+            }
+            Object right = fold(binaryExpr.getRight());
+            if (right == UNKNOWN) {
+                return UNKNOWN;
+            }
+            return compare(binaryExpr.getOperator(), left, right);
+        }
+        return UNKNOWN;
+    }
+
+    private Object compare(BinaryExpr.Operator operator, Object left, Object right) {
+        try {
+            return switch (operator) {
+                case EQUALS -> same(left, right);
+                case NOT_EQUALS -> !same(left, right);
+                case LESS -> left != null && right != null ? NumericComparator.compare(left, right) < 0 : UNKNOWN;
+                case LESS_EQUALS -> left != null && right != null ? NumericComparator.compare(left, right) <= 0 : UNKNOWN;
+                case GREATER -> left != null && right != null ? NumericComparator.compare(left, right) > 0 : UNKNOWN;
+                case GREATER_EQUALS -> left != null && right != null ? NumericComparator.compare(left, right) >= 0 : UNKNOWN;
+                case AND -> left instanceof Boolean l && right instanceof Boolean r ? l && r : UNKNOWN;
+                case OR -> left instanceof Boolean l && right instanceof Boolean r ? l || r : UNKNOWN;
+                default -> UNKNOWN;
+            };
+        } catch (IllegalArgumentException | ClassCastException e) {
+            return UNKNOWN;
+        }
+    }
+
+    private static boolean same(Object left, Object right) {
+        if (left instanceof Number && right instanceof Number) {
+            return NumericComparator.compare(left, right) == 0;
+        }
+        return Objects.equals(left, right);
+    }
+
+    /**
+     * Constants of the form SomeClass.FIELD where SomeClass is one of the types known to us.
+     */
+    private Object foldFieldAccess(FieldAccessExpr fae) {
+        if (!fae.getScope().isNameExpr()) {
+            return UNKNOWN;
+        }
+        Optional<CompilationUnit> cu = method.findCompilationUnit();
+        if (cu.isEmpty()) {
+            return UNKNOWN;
+        }
+        String fqn = AbstractCompiler.findFullyQualifiedName(cu.get(), fae.getScope().asNameExpr().getNameAsString());
+        if (fqn == null) {
+            return UNKNOWN;
+        }
+        CompilationUnit other = AntikytheraRunTime.getCompilationUnit(fqn);
+        if (other == null) {
+            return UNKNOWN;
+        }
+        Optional<TypeDeclaration<?>> type = AbstractCompiler.getMatchingType(other, fae.getScope().asNameExpr().getNameAsString());
+        if (type.isEmpty()) {
+            return UNKNOWN;
+        }
+        Map<String, Object> values = new HashMap<>();
+        addFieldConstants(type.get(), values);
+        String name = fae.getNameAsString();
+        return values.containsKey(name) ? values.get(name) : UNKNOWN;
+    }
+
+    /**
+     * Collect the conditions that are known to hold at the given node.
+     */
+    private void collectGuards(Node node, Map<String, Boolean> facts) {
+        Node current = node;
+        while (current != null && current != method) {
+            Node parent = current.getParentNode().orElse(null);
+            if (parent instanceof IfStmt ifStmt && current != ifStmt.getCondition()) {
+                if (ifStmt.getThenStmt() == current) {
+                    addFact(ifStmt.getCondition(), true, facts);
+                } else {
+                    addFact(ifStmt.getCondition(), false, facts);
+                }
+            } else if (parent instanceof BlockStmt block && current instanceof Statement stmt) {
+                for (Statement sibling : block.getStatements()) {
+                    if (sibling == stmt) {
+                        break;
+                    }
+                    if (sibling instanceof IfStmt guard && guard.getElseStmt().isEmpty() && alwaysExits(guard.getThenStmt())) {
+                        addFact(guard.getCondition(), false, facts);
+                    }
+                }
+            }
+            current = parent;
+        }
+    }
+
+    private void addFact(Expression condition, boolean polarity, Map<String, Boolean> facts) {
+        if (condition.isEnclosedExpr()) {
+            addFact(condition.asEnclosedExpr().getInner(), polarity, facts);
+        } else if (condition.isUnaryExpr() && condition.asUnaryExpr().getOperator() == UnaryExpr.Operator.LOGICAL_COMPLEMENT) {
+            addFact(condition.asUnaryExpr().getExpression(), !polarity, facts);
+        } else if (condition.isBinaryExpr() && condition.asBinaryExpr().getOperator() == BinaryExpr.Operator.AND && polarity) {
+            addFact(condition.asBinaryExpr().getLeft(), true, facts);
+            addFact(condition.asBinaryExpr().getRight(), true, facts);
+        } else if (condition.isBinaryExpr() && condition.asBinaryExpr().getOperator() == BinaryExpr.Operator.OR && !polarity) {
+            addFact(condition.asBinaryExpr().getLeft(), false, facts);
+            addFact(condition.asBinaryExpr().getRight(), false, facts);
+        } else if (isStable(condition)) {
+            Guard guard = Guard.of(condition, polarity);
+            facts.putIfAbsent(guard.key, guard.polarity);
+        }
+    }
+
+    /**
+     * A condition is stable if nothing in the method can change its value between the guard
+     * and the statement that it dominates.
+     */
+    private boolean isStable(Expression condition) {
+        if (condition.findFirst(MethodCallExpr.class).isPresent()) {
+            return false;
+        }
+        for (FieldAccessExpr fae : condition.findAll(FieldAccessExpr.class)) {
+            if (foldFieldAccess(fae) == UNKNOWN) {
+                return false;
+            }
+        }
+        for (NameExpr name : condition.findAll(NameExpr.class)) {
+            String n = name.getNameAsString();
+            if (locals.contains(n) ? assigned.contains(n) : !constants.containsKey(n) && !isTypeName(name)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * The scope of a constant such as SomeClass.FIELD is a name as well, but it is not a variable.
+     */
+    private static boolean isTypeName(NameExpr name) {
+        return name.getParentNode().orElse(null) instanceof FieldAccessExpr fae && fae.getScope() == name;
+    }
+
+    private static boolean alwaysExits(Statement stmt) {
+        if (stmt.isBlockStmt()) {
+            BlockStmt block = stmt.asBlockStmt();
+            return !block.isEmpty() && alwaysExits(block.getStatements().getLast().orElseThrow());
+        }
+        return stmt.isReturnStmt() || stmt.isThrowStmt() || stmt.isBreakStmt() || stmt.isContinueStmt();
+    }
+
+    /**
+     * The parameters and local variables of the method, including those of lambdas and catch
+     * clauses. These are the only names that can be guards.
+     */
+    private void collectLocals() {
+        for (Parameter p : method.findAll(Parameter.class)) {
+            locals.add(p.getNameAsString());
+        }
+        for (VariableDeclarationExpr vde : method.findAll(VariableDeclarationExpr.class)) {
+            for (VariableDeclarator variable : vde.getVariables()) {
+                locals.add(variable.getNameAsString());
+            }
+        }
+    }
+
+    private void collectAssignments() {
+        for (AssignExpr assignExpr : method.findAll(AssignExpr.class)) {
+            assignedName(assignExpr.getTarget()).ifPresent(assigned::add);
+        }
+        for (UnaryExpr unaryExpr : method.findAll(UnaryExpr.class)) {
+            if (unaryExpr.getOperator() != UnaryExpr.Operator.LOGICAL_COMPLEMENT
+                    && unaryExpr.getOperator() != UnaryExpr.Operator.MINUS && unaryExpr.getOperator() != UnaryExpr.Operator.PLUS
+                    && unaryExpr.getOperator() != UnaryExpr.Operator.BITWISE_COMPLEMENT) {
+                assignedName(unaryExpr.getExpression()).ifPresent(assigned::add);
+            }
+        }
+    }
+
+    /**
+     * The name changed by an assignment, for both x = ... and this.x = ...
+     */
+    private static Optional<String> assignedName(Expression target) {
+        if (target.isNameExpr()) {
+            return Optional.of(target.asNameExpr().getNameAsString());
+        }
+        if (target.isFieldAccessExpr() && target.asFieldAccessExpr().getScope().isThisExpr()) {
+            return Optional.of(target.asFieldAccessExpr().getNameAsString());
+        }
+        return Optional.empty();
+    }
+
+    private void collectFieldConstants() {
+        @SuppressWarnings("unchecked")
+        Optional<TypeDeclaration<?>> type = method.findAncestor((Class<TypeDeclaration<?>>) (Class<?>) TypeDeclaration.class);
+        type.ifPresent(t -> addFieldConstants(t, constants));
+        for (Parameter p : method.getParameters()) {
+            constants.remove(p.getNameAsString());
+        }
+    }
+
+    private static void addFieldConstants(TypeDeclaration<?> type, Map<String, Object> values) {
+        for (FieldDeclaration field : type.getFields()) {
+            if (field.isStatic() && field.isFinal()) {
+                for (VariableDeclarator variable : field.getVariables()) {
+                    variable.getInitializer().ifPresent(init -> {
+                        Object value = literalValue(init);
+                        if (value != UNKNOWN) {
+                            values.put(variable.getNameAsString(), value);
+                        }
+                    });
+                }
+            }
+        }
+    }
+
+    /**
+     * Local variables shadow fields. They are only treated as constants when they are declared
+     * once, with a literal initializer, and never assigned again.
+     */
+    private void collectLocalConstants() {
+        Map<String, Integer> declarations = new HashMap<>();
+        for (VariableDeclarationExpr vde : method.findAll(VariableDeclarationExpr.class)) {
+            for (VariableDeclarator variable : vde.getVariables()) {
+                declarations.merge(variable.getNameAsString(), 1, Integer::sum);
+            }
+        }
+
+        for (VariableDeclarationExpr vde : method.findAll(VariableDeclarationExpr.class)) {
+            for (VariableDeclarator variable : vde.getVariables()) {
+                String name = variable.getNameAsString();
+                constants.remove(name);
+                if (declarations.get(name) == 1 && !assigned.contains(name) && variable.getInitializer().isPresent()) {
+                    Object value = literalValue(variable.getInitializer().get());
+                    if (value != UNKNOWN) {
+                        constants.put(name, value);
+                    }
+                }
+            }
+        }
+    }
+
+    private static Object literalValue(Expression expr) {
+        if (expr instanceof LiteralExpr) {
+            try {
+                return Evaluator.evaluateLiteral(expr).getValue();
+            } catch (EvaluatorException e) {
+                return UNKNOWN;
+            }
+        }
+        return UNKNOWN;
+    }
+
+    /**
+     * A condition reduced to a canonical text and a polarity so that a != b matches the
+     * negation of b == a and a &gt;= b matches the negation of a &lt; b.
+     */
+    private record Guard(String key, boolean polarity) {
+        static Guard of(Expression expr, boolean polarity) {
+            if (expr.isEnclosedExpr()) {
+                return of(expr.asEnclosedExpr().getInner(), polarity);
+            }
+            if (expr.isUnaryExpr() && expr.asUnaryExpr().getOperator() == UnaryExpr.Operator.LOGICAL_COMPLEMENT) {
+                return of(expr.asUnaryExpr().getExpression(), !polarity);
+            }
+            if (expr.isBinaryExpr()) {
+                BinaryExpr b = expr.asBinaryExpr();
+                String left = b.getLeft().toString();
+                String right = b.getRight().toString();
+                switch (b.getOperator()) {
+                    case EQUALS, NOT_EQUALS -> {
+                        String key = left.compareTo(right) <= 0 ? left + " == " + right : right + " == " + left;
+                        return new Guard(key, polarity == (b.getOperator() == BinaryExpr.Operator.EQUALS));
+                    }
+                    case LESS -> { return new Guard(left + " < " + right, polarity); }
+                    case GREATER_EQUALS -> { return new Guard(left + " < " + right, !polarity); }
+                    case GREATER -> { return new Guard(right + " < " + left, polarity); }
+                    case LESS_EQUALS -> { return new Guard(right + " < " + left, !polarity); }
+                    default -> { /* fall through to the textual form */ }
+                }
+            }
+            return new Guard(expr.toString(), polarity);
+        }
+    }
+}
@@ -4,37 +4,38 @@ import com.github.javaparser.ast.body.MethodDeclaration;
 
 import java.util.ArrayList;
 import java.util.Comparator;
-import java.util.HashMap;
 import java.util.List;
 import java.util.PriorityQueue;
 
+/**
+ * Keeps track of the conditionals in the methods being evaluated, and of the paths that have been
+ * taken through them. The lines of code are held in the {@link EvaluationContext} of the current
+ * thread.
+ */
 public class Branching {
-    private static final HashMap<MethodDeclaration, PriorityQueue<LineOfCode>> conditionals = new HashMap<>();
-    private static final HashMap<Integer, LineOfCode> branches = new HashMap<>();
-
     private Branching() {
     }
 
     public static void clear() {
-        branches.clear();
-        conditionals.clear();
+        EvaluationContext.current().getBranches().clear();
+        EvaluationContext.current().getConditionals().clear();
     }
 
     public static void add(LineOfCode lineOfCode) {
-        PriorityQueue<LineOfCode> queue = conditionals.computeIfAbsent(
+        PriorityQueue<LineOfCode> queue = EvaluationContext.current().getConditionals().computeIfAbsent(
             lineOfCode.getMethodDeclaration(),
             k -> new PriorityQueue<>(new LineOfCodeComparator())
         );
         queue.add(lineOfCode);
-        branches.putIfAbsent(lineOfCode.getStatement().hashCode(), lineOfCode);
+        EvaluationContext.current().getBranches().putIfAbsent(lineOfCode.getStatement().hashCode(), lineOfCode);
     }
 
     public static LineOfCode get(int hashCode) {
-        return branches.get(hashCode);
+        return EvaluationContext.current().getBranches().get(hashCode);
     }
 
     public static List<LineOfCode> get(MethodDeclaration methodDeclaration) {
-        PriorityQueue<LineOfCode> queue = conditionals.get(methodDeclaration);
+        PriorityQueue<LineOfCode> queue = EvaluationContext.current().getConditionals().get(methodDeclaration);
         if (queue == null) {
             return new ArrayList<>();
         }
@@ -44,7 +45,7 @@ public class Branching {
     public static List<Precondition> getApplicableConditions(MethodDeclaration methodDeclaration) {
         List<Precondition> applicableConditions = new ArrayList<>();
 
-        for (LineOfCode lineOfCode : branches.values()) {
+        for (LineOfCode lineOfCode : EvaluationContext.current().getBranches().values()) {
             if (lineOfCode.getPathTaken() != LineOfCode.BOTH_PATHS && lineOfCode.getMethodDeclaration().equals(methodDeclaration)) {
                 applicableConditions.addAll(lineOfCode.getPreconditions());
             }
@@ -54,12 +55,12 @@ public class Branching {
 
     public static int size(MethodDeclaration methodDeclaration)
     {
-        PriorityQueue<LineOfCode> queue = conditionals.get(methodDeclaration);
+        PriorityQueue<LineOfCode> queue = EvaluationContext.current().getConditionals().get(methodDeclaration);
         return queue != null ? queue.size() : 0;
     }
 
     public static LineOfCode getHighestPriority(MethodDeclaration md) {
-        PriorityQueue<LineOfCode> queue = conditionals.get(md);
+        PriorityQueue<LineOfCode> queue = EvaluationContext.current().getConditionals().get(md);
         return queue != null ? queue.remove() : null;
     }
 
@@ -9,6 +9,8 @@ import com.github.javaparser.ast.expr.NameExpr;
 import com.github.javaparser.ast.stmt.IfStmt;
 import com.github.javaparser.ast.stmt.Statement;
 import com.github.javaparser.ast.visitor.VoidVisitorAdapter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import java.util.ArrayList;
 import java.util.Collections;
@@ -18,11 +20,31 @@ import java.util.Optional;
 import java.util.Set;
 
 public class ConditionVisitor extends VoidVisitorAdapter<LineOfCode> {
+    private static final Logger logger = LoggerFactory.getLogger(ConditionVisitor.class);
+
+    private BranchAnalyzer analyzer;
 
     @Override
     public void visit(IfStmt stmt, LineOfCode parent) {
         LineOfCode lineOfCode = new LineOfCode(stmt);
         lineOfCode.setParent(parent);
+
+        /*
+         * A condition that is already decided can only ever take one branch. It is not registered
+         * and the branch that cannot be reached is not visited, so the conditions inside it are
+         * never scheduled either.
+         */
+        Optional<Boolean> decided = analyzerFor(lineOfCode.getMethodDeclaration()).decide(stmt.getCondition());
+        if (decided.isPresent()) {
+            logger.debug("Condition {} is always {}", stmt.getCondition(), decided.get());
+            if (decided.get()) {
+                stmt.getThenStmt().accept(this, parent);
+            } else {
+                stmt.getElseStmt().ifPresent(elseStmt -> elseStmt.accept(this, parent));
+            }
+            return;
+        }
+
         if (canMatchParameters(lineOfCode.getMethodDeclaration(), stmt.getCondition())) {
             Branching.add(lineOfCode);
         }
@@ -37,12 +59,20 @@ public class ConditionVisitor extends VoidVisitorAdapter<LineOfCode> {
     @Override
     public void visit(ConditionalExpr expr, LineOfCode parent) {
         LineOfCode lineOfCode = new LineOfCode(expr.getCondition());
-        if (canMatchParameters(lineOfCode.getMethodDeclaration(), expr.getCondition())) {
+        if (analyzerFor(lineOfCode.getMethodDeclaration()).decide(expr.getCondition()).isEmpty() &&
+                canMatchParameters(lineOfCode.getMethodDeclaration(), expr.getCondition())) {
             lineOfCode.setParent(parent);
             Branching.add(lineOfCode);
         }
     }
 
+    private BranchAnalyzer analyzerFor(MethodDeclaration md) {
+        if (analyzer == null || analyzer.getMethod() != md) {
+            analyzer = new BranchAnalyzer(md);
+        }
+        return analyzer;
+    }
+
     private boolean canMatchParameters(MethodDeclaration md, Expression condition) {
         NameCollector nameCollector = new NameCollector();
 
@@ -29,9 +29,10 @@ import sa.com.cloudsolutions.antikythera.evaluator.mock.MockingCall;
 import sa.com.cloudsolutions.antikythera.evaluator.mock.MockingRegistry;
 import sa.com.cloudsolutions.antikythera.exception.AntikytheraException;
 import sa.com.cloudsolutions.antikythera.generator.TestGenerator;
-import sa.com.cloudsolutions.antikythera.generator.TruthTable;
+import sa.com.cloudsolutions.antikythera.generator.TruthTableCache;
 import sa.com.cloudsolutions.antikythera.parser.AbstractCompiler;
 import sa.com.cloudsolutions.antikythera.parser.Callable;
+import sa.com.cloudsolutions.antikythera.parser.EmbeddedDatabase;
 import sa.com.cloudsolutions.antikythera.parser.MCEWrapper;
 
 import java.lang.reflect.InvocationTargetException;
@@ -325,6 +326,7 @@ public class ControlFlowEvaluator extends Evaluator {
             setter.setName("set" + name.substring(3));
         }
         setter.setScope(scope);
+        seedEmbeddedDatabase(stmt, scope, setter.getNameAsString().substring(3), entry.getValue());
 
         if (entry.getValue() == null) {
             setter.addArgument("null");
@@ -338,6 +340,22 @@ public class ControlFlowEvaluator extends Evaluator {
         addPreCondition(stmt, setter);
     }
 
+    /**
+     * When the scope is an entity, the embedded database gets a row in which the field has the
+     * value, so that the condition can go the same way when the entity is loaded by a query.
+     * Any value that is not null will do for "T" and the rows that are already there have one.
+     */
+    private void seedEmbeddedDatabase(Statement stmt, Expression scope, String property, Object value) {
+        if (!EmbeddedDatabase.isEnabled() || "T".equals(value)) {
+            return;
+        }
+        Variable v = getValue(stmt, scope.toString());
+        if (v != null && v.getValue() instanceof Evaluator evaluator) {
+            AntikytheraRunTime.getTypeDeclaration(evaluator.getClassName()).ifPresent(type ->
+                    EmbeddedDatabase.seed(type, AbstractCompiler.classToInstanceName(property), value));
+        }
+    }
+
     private void setupConditionalNotNullValue(Statement stmt, Map.Entry<Expression, Object> entry, String name, MethodCallExpr setter) {
         MethodCallExpr mce = entry.getKey().asMethodCallExpr();
         String value = "\"T\"";
@@ -385,9 +403,7 @@ public class ControlFlowEvaluator extends Evaluator {
             return expressions;
         }
 
-        TruthTable tt = new TruthTable(emptyCondition);
-        tt.generateTruthTable();
-        List<Map<Expression, Object>> emptyValues = tt.findValuesForCondition(state);
+        List<Map<Expression, Object>> emptyValues = TruthTableCache.findValuesForCondition(emptyCondition, state, 1);
 
         if (!emptyValues.isEmpty()) {
             Map<Expression, Object> value = emptyValues.getFirst();
@@ -8,19 +8,43 @@ import org.slf4j.LoggerFactory;
 import sa.com.cloudsolutions.antikythera.generator.QueryMethodArgument;
 import sa.com.cloudsolutions.antikythera.generator.QueryMethodParameter;
 import sa.com.cloudsolutions.antikythera.generator.RepositoryQuery;
+import sa.com.cloudsolutions.antikythera.parser.QueryResult;
 
-import java.sql.SQLException;
 import java.util.Optional;
 
 public class DatabaseArgumentGenerator extends DummyArgumentGenerator {
     private static final Logger logger = LoggerFactory.getLogger(DatabaseArgumentGenerator.class);
 
     /**
-     * The last executed database query.
+     * The query that provides the arguments and the row that they are taken from.
+     * Each {@link EvaluationContext} has its own, so that services evaluated in parallel do not
+     * get their arguments from each other's queries.
      */
-    static RepositoryQuery query;
+    static class Selection {
+        /**
+         * The last executed database query.
+         */
+        private RepositoryQuery query;
 
-    private static boolean prepared;
+        private boolean prepared;
+
+        /**
+         * How many times in a row the same query has provided the arguments.
+         */
+        private int round;
+        /**
+         * The rows from which the arguments are currently being taken.
+         */
+        private QueryResult rows;
+        /**
+         * The position in {@link #rows} of the row that provides the arguments.
+         */
+        private int row;
+    }
+
+    private static Selection selection() {
+        return EvaluationContext.current().getArgumentSelection();
+    }
 
     /**
      *
@@ -30,12 +54,13 @@ public class DatabaseArgumentGenerator extends DummyArgumentGenerator {
      */
     @Override
     protected Variable mockParameter(Parameter param) {
+        RepositoryQuery query = selection().query;
         Variable q = null;
         for(int i = 0 ; i < query.getMethodParameters().size() && q == null; i++) {
             QueryMethodArgument arg = query.getMethodArguments().get(i);
 
             if (arg.getArgument().isNameExpr()) {
-                q = matchParameterAndArgument(param.getNameAsString(), i, arg);
+                q = matchParameterAndArgument(query, param.getNameAsString(), i, arg);
             }
         }
         if (q == null) {
@@ -44,7 +69,7 @@ public class DatabaseArgumentGenerator extends DummyArgumentGenerator {
         return q;
     }
 
-    private static Variable matchParameterAndArgument(String typeName, int i, QueryMethodArgument arg) {
+    private static Variable matchParameterAndArgument(RepositoryQuery query, String typeName, int i, QueryMethodArgument arg) {
         QueryMethodParameter param = query.getMethodParameters().get(i);
 
         String name = arg.getArgument().asNameExpr().getNameAsString();
@@ -70,23 +95,24 @@ public class DatabaseArgumentGenerator extends DummyArgumentGenerator {
     }
 
     private static Variable getValueFromColumn(String t, String col)  {
-        try {
-            return switch (t) {
-                case "Integer", "int" ->  new Variable(query.getSimplifiedResultSet().getInt(col));
-                case "String" -> new Variable(query.getSimplifiedResultSet().getString(col));
-                case "boolean", "Boolean" -> new Variable(query.getSimplifiedResultSet().getBoolean(col));
-                case "double", "Double" -> new Variable(query.getSimplifiedResultSet().getDouble(col));
-                case "float", "Float" -> new Variable(query.getSimplifiedResultSet().getFloat(col));
-                case "Long", "long" -> new Variable(query.getSimplifiedResultSet().getLong(col));
-                case "short", "Short" -> new Variable(query.getSimplifiedResultSet().getShort(col));
-                case "byte" -> new Variable(query.getSimplifiedResultSet().getByte(col));
-                case "char", "Character" -> new Variable(query.getSimplifiedResultSet().getString(col).charAt(0));
-                default -> new Variable(query.getSimplifiedResultSet().getObject(col));
-            };
-        } catch (SQLException e) {
-            logger.debug(e.getMessage());
+        QueryResult result = selection().rows;
+        int row = selection().row;
+        if (result.findColumn(col) < 0) {
+            logger.debug("Column {} is not in the result", col);
+            return null;
         }
-        return null;
+        return switch (t) {
+            case "Integer", "int" ->  new Variable((int) result.getLong(row, col));
+            case "String" -> new Variable(result.getString(row, col));
+            case "boolean", "Boolean" -> new Variable(result.getBoolean(row, col));
+            case "double", "Double" -> new Variable(result.getDouble(row, col));
+            case "float", "Float" -> new Variable((float) result.getDouble(row, col));
+            case "Long", "long" -> new Variable(result.getLong(row, col));
+            case "short", "Short" -> new Variable((short) result.getLong(row, col));
+            case "byte" -> new Variable((byte) result.getLong(row, col));
+            case "char", "Character" -> new Variable(result.getString(row, col).charAt(0));
+            default -> new Variable(result.getObject(row, col));
+        };
     }
 
     /**
@@ -99,22 +125,43 @@ public class DatabaseArgumentGenerator extends DummyArgumentGenerator {
      */
     @Override
     public void generateArgument(Parameter param) {
-        if (prepared) {
+        if (selection().prepared) {
             Variable v = mockParameter(param);
             arguments.put(param.getNameAsString(), v);
             AntikytheraRunTime.push(v);
         }
     }
 
-    private static void prepare()  {
-        if (query != null && query.getSimplifiedResultSet() != null) {
-            prepared = true;
+    /**
+     * Choose the row that provides the arguments.
+     * The first time round it is the first row of the simplified query. When the same query
+     * comes up again the candidate rows are handed out in turn, so that each iteration gets
+     * a row that takes the filter columns a different way. Without candidates the other rows
+     * of the simplified query are used instead.
+     */
+    private static void prepare(Selection s)  {
+        if (s.query != null && s.query.getSimplifiedResultSet() != null) {
+            QueryResult candidates = s.query.getCandidateResultSet();
+            if (s.round > 0 && candidates != null && !candidates.isEmpty()) {
+                s.rows = candidates;
+                s.row = (s.round - 1) % candidates.size();
+            } else {
+                s.rows = s.query.getSimplifiedResultSet();
+                s.row = s.round % s.rows.size();
+            }
+            s.prepared = true;
         }
     }
 
+    /**
+     * Remember the query that was last executed in the evaluation context of the current thread.
+     * @param query the repository query whose rows provide the arguments
+     */
     public static void setQuery(RepositoryQuery query) {
-        DatabaseArgumentGenerator.query = query;
-        prepared = false;
-        prepare();
+        Selection s = selection();
+        s.round = query == s.query ? s.round + 1 : 0;
+        s.query = query;
+        s.prepared = false;
+        prepare(s);
     }
 }
@@ -0,0 +1,145 @@
+package sa.com.cloudsolutions.antikythera.evaluator;
+
+import com.github.javaparser.ast.CompilationUnit;
+import com.github.javaparser.ast.body.FieldDeclaration;
+import com.github.javaparser.ast.body.TypeDeclaration;
+import com.github.javaparser.ast.body.VariableDeclarator;
+import com.github.javaparser.ast.type.Type;
+import sa.com.cloudsolutions.antikythera.parser.EntityIndex;
+import sa.com.cloudsolutions.antikythera.parser.QueryResult;
+import sa.com.cloudsolutions.antikythera.parser.RepositoryParser;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * <p>Describes how the rows of a query result are copied into the fields of an entity.</p>
+ *
+ * Working out which column belongs to which field involves walking the fields of the entity and
+ * looking up their columns in the {@link EntityIndex}. That only needs to be done once for each combination of
+ * entity and columns, after which mapping a row is a loop over the matched fields.
+ *
+ * Each matched field also gets a converter that turns the value from the database into the
+ * type of the field; for example the BigDecimal that Oracle returns for a NUMBER column into
+ * the Long of an id field.
+ */
+class EntityMappingPlan {
+    private static final Map<String, EntityMappingPlan> plans = new ConcurrentHashMap<>();
+
+    private final List<FieldMapping> fields = new ArrayList<>();
+
+    private record FieldMapping(String name, Type type, int column, Function<Object, Object> converter) {
+    }
+
+    private EntityMappingPlan(String className, CompilationUnit cu, QueryResult result) {
+        TypeDeclaration<?> type = findType(className, cu);
+        List<FieldDeclaration> declarations = type == null ? cu.findAll(FieldDeclaration.class) : type.getFields();
+        for (FieldDeclaration field : declarations) {
+            for (VariableDeclarator fieldVar : field.getVariables()) {
+                int column = result.findColumn(columnName(type, fieldVar.getNameAsString()));
+                if (column >= 0) {
+                    fields.add(new FieldMapping(fieldVar.getNameAsString(), fieldVar.getType(), column,
+                            converter(fieldVar.getType())));
+                }
+            }
+        }
+    }
+
+    /**
+     * Find the plan for the given entity and result, creating it if need be.
+     * @param className the fully qualified name of the entity
+     * @param cu the compilation unit in which the entity is declared
+     * @param result the rows that will be mapped
+     * @return the mapping plan
+     */
+    static EntityMappingPlan get(String className, CompilationUnit cu, QueryResult result) {
+        String key = className + "|" + result.getColumns();
+        return plans.computeIfAbsent(key, k -> new EntityMappingPlan(className, cu, result));
+    }
+
+    private static TypeDeclaration<?> findType(String className, CompilationUnit cu) {
+        for (TypeDeclaration<?> type : cu.findAll(TypeDeclaration.class)) {
+            if (type.getFullyQualifiedName().orElse(type.getNameAsString()).equals(className)) {
+                return type;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * The column of an entity field is the one given in the entity index, so that it agrees with
+     * the Column annotation. Anything else is matched on the snake case form of the field name.
+     */
+    private static String columnName(TypeDeclaration<?> type, String field) {
+        if (type != null && type.getAnnotationByName("Entity").isPresent()) {
+            Optional<EntityIndex.Field> f = EntityIndex.get(type).getField(field);
+            if (f.isPresent()) {
+                return f.get().column();
+            }
+        }
+        return RepositoryParser.camelToSnake(field);
+    }
+
+    static void clear() {
+        plans.clear();
+    }
+
+    /**
+     * Drop the plans for an entity, so that they are built again once it has been compiled again.
+     * @param className the fully qualified name of the entity
+     */
+    static void forget(String className) {
+        String nested = className + ".";
+        plans.keySet().removeIf(k -> k.startsWith(className + "|") || k.startsWith(nested));
+    }
+
+    /**
+     * Copy a row into the fields of the entity.
+     * @param evaluator the entity instance
+     * @param result the rows returned by the query
+     * @param row the position of the row to copy
+     */
+    void apply(Evaluator evaluator, QueryResult result, int row) {
+        for (FieldMapping mapping : fields) {
+            Object value = result.getObject(row, mapping.column());
+            Variable v = new Variable(value == null ? null : mapping.converter().apply(value));
+            v.setType(mapping.type());
+            evaluator.setField(mapping.name(), v);
+        }
+    }
+
+    int size() {
+        return fields.size();
+    }
+
+    private static Function<Object, Object> converter(Type type) {
+        return switch (type.asString()) {
+            case "Long", "long" -> number(Number::longValue);
+            case "Integer", "int" -> number(Number::intValue);
+            case "Short", "short" -> number(Number::shortValue);
+            case "Byte", "byte" -> number(Number::byteValue);
+            case "Double", "double" -> number(Number::doubleValue);
+            case "Float", "float" -> number(Number::floatValue);
+            case "BigDecimal" -> number(n -> n instanceof BigDecimal ? n : new BigDecimal(n.toString()));
+            case "BigInteger" -> number(n -> n instanceof BigInteger ? n : new BigDecimal(n.toString()).toBigInteger());
+            case "Boolean", "boolean" -> value -> switch (value) {
+                case Boolean b -> b;
+                case Number n -> n.intValue() != 0;
+                default -> value.toString().equals("1") || value.toString().equalsIgnoreCase("true")
+                        || value.toString().equalsIgnoreCase("Y");
+            };
+            case "String" -> Object::toString;
+            default -> Function.identity();
+        };
+    }
+
+    private static Function<Object, Object> number(Function<Number, Object> conversion) {
+        return value -> value instanceof Number n ? conversion.apply(n) : value;
+    }
+}
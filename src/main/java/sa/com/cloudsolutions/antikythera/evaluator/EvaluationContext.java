@@ -0,0 +1,263 @@
+package sa.com.cloudsolutions.antikythera.evaluator;
+
+import com.github.javaparser.ast.CompilationUnit;
+import com.github.javaparser.ast.ImportDeclaration;
+import com.github.javaparser.ast.body.MethodDeclaration;
+import com.github.javaparser.ast.expr.Expression;
+import com.github.javaparser.ast.type.Type;
+import sa.com.cloudsolutions.antikythera.depsolver.GraphNode;
+import sa.com.cloudsolutions.antikythera.evaluator.mock.MockingCall;
+import sa.com.cloudsolutions.antikythera.generator.TestGenerator;
+import sa.com.cloudsolutions.antikythera.parser.Callable;
+import sa.com.cloudsolutions.antikythera.parser.RepositoryParser;
+
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+
+/**
+ * <p>The state that is built up while methods are being evaluated and tests generated for them.</p>
+ *
+ * That is the stack, the autowired instances and the static fields of {@link AntikytheraRunTime},
+ * the conditionals of {@link Branching}, the rows that the {@link DatabaseArgumentGenerator} takes
+ * its values from, the mocks registered with the MockingRegistry, the when/then
+ * expressions and imports that are collected for the tests, the repositories that have been
+ * detected by the {@link SpringEvaluator}, the dependency graph, the test generators and the
+ * finches. All of them are reached through static methods, which look up the context that belongs
+ * to the current thread.
+ *
+ * What is not held here is shared by all the contexts in the JVM: the compilation units and the
+ * type solvers set up by the AbstractCompiler, the index of entities, the parsed queries, the
+ * truth tables and the classes that AKBuddy has defined. Those do not change once they have been
+ * built, or only ever grow, so a context can be thrown away and a new one started without having
+ * to parse the project again.
+ *
+ * There is one context that is shared by every thread that has not been given one of its own,
+ * so for a single run on one thread the behaviour is the same as when all of this was held in
+ * static fields. Separate generation sessions, or services that are processed in parallel, each
+ * get a new context, which is entered with {@link #run(Runnable)} or {@link #call(Task)}.
+ * Evaluators remember the context in which they were created.
+ */
+public class EvaluationContext {
+    private static final EvaluationContext shared = new EvaluationContext();
+    private static final ThreadLocal<EvaluationContext> current = ThreadLocal.withInitial(() -> shared);
+
+    /**
+     * Work that is done in a context.
+     * @param <T> the type of the result
+     * @param <E> the type of the exception that the work may throw
+     */
+    public interface Task<T, E extends Exception> {
+        T call() throws E;
+    }
+
+    /**
+     * <p>We are not using a stack data structure here, but a Deque. This is because Deque is a
+     * double-ended queue, which can be used as a stack. It is more efficient than a Stack ADT.
+     * Because in java the stack is synchronized.</p>
+     *
+     * While it's normal practice to also place the return value of a method call into the
+     * stack, we are not doing so in here.
+     */
+    private final Deque<Variable> stack = new LinkedList<>();
+
+    /**
+     * Stores the fields that have been autowired.
+     * While there should not be cyclic dependencies, the reality is that they do exist in the wild.
+     * Additionally, due to the way that transactions work in spring boot, you often find classes
+     * auto wiring themselves.
+     * What this means to us is that setting up the fields will often lead to infinite recursions
+     * and stack overflows. To avoid that, lets keep all Autowired instances cached.
+     */
+    private final Map<String, Variable> autowired = new HashMap<>();
+
+    /**
+     * Keeps track of static variables.
+     * The fully qualified class name is the primary key. The values will be a map, where a field
+     * name will be the key and the variable will hold the value of the static field.
+     */
+    private final Map<String, Map<String, Variable>> statics = new HashMap<>();
+
+    private final Map<MethodDeclaration, PriorityQueue<LineOfCode>> conditionals = new HashMap<>();
+    private final Map<Integer, LineOfCode> branches = new HashMap<>();
+
+    private final Map<String, Map<Callable, MockingCall>> mockedFields = new HashMap<>();
+
+    private final List<Expression> whenThen = new ArrayList<>();
+    private final Set<ImportDeclaration> imports = new HashSet<>();
+
+    private final Map<String, RepositoryParser> repositories = new HashMap<>();
+    private ArgumentGenerator argumentGenerator;
+    /**
+     * The query and the row that the DatabaseArgumentGenerator takes its values from.
+     */
+    private final DatabaseArgumentGenerator.Selection argumentSelection = new DatabaseArgumentGenerator.Selection();
+
+    /**
+     * The nodes of the dependency graph with their hash code as the key.
+     */
+    private final Map<Integer, GraphNode> graphNodes = new HashMap<>();
+    /**
+     * Fully qualified class names and the compilation units that the dependency solver has
+     * generated for them.
+     */
+    private final Map<String, CompilationUnit> dependencies = new HashMap<>();
+    /**
+     * The stack for the depth first search of the dependency graph.
+     */
+    private final LinkedList<GraphNode> dependencyStack = new LinkedList<>();
+    /**
+     * The types of the parameters and local variables of the method that the dependency solver
+     * is looking at.
+     */
+    private final Map<String, Type> names = new HashMap<>();
+
+    /**
+     * The unit test generators by the fully qualified name of the class under test.
+     */
+    private final Map<String, TestGenerator> unitTestGenerators = new HashMap<>();
+    /**
+     * The api test generators by the fully qualified name of the controller.
+     */
+    private final Map<String, TestGenerator> apiTestGenerators = new HashMap<>();
+
+    /**
+     * The finches by the name of the class that they replace, or null if they have not been
+     * loaded yet.
+     */
+    private Map<String, Object> finches;
+
+    /**
+     * The last value handed out for an entity id that would have come from a sequence.
+     */
+    private long sequence;
+
+    /**
+     * @return the context of the current thread
+     */
+    public static EvaluationContext current() {
+        return current.get();
+    }
+
+    /**
+     * Run a task with this as the context of the current thread.
+     * The context that the thread had before is restored afterwards.
+     * @param task the work to be done
+     */
+    public void run(Runnable task) {
+        call(() -> {
+            task.run();
+            return null;
+        });
+    }
+
+    /**
+     * Do some work with this as the context of the current thread.
+     * The context that the thread had before is restored afterwards.
+     * @param task the work to be done
+     * @return the result of the task
+     * @throws E if the task fails
+     */
+    public <T, E extends Exception> T call(Task<T, E> task) throws E {
+        EvaluationContext previous = current.get();
+        current.set(this);
+        try {
+            return task.call();
+        } finally {
+            current.set(previous);
+        }
+    }
+
+    public Deque<Variable> getStack() {
+        return stack;
+    }
+
+    public Map<String, Variable> getAutowired() {
+        return autowired;
+    }
+
+    public Map<String, Map<String, Variable>> getStatics() {
+        return statics;
+    }
+
+    public Map<MethodDeclaration, PriorityQueue<LineOfCode>> getConditionals() {
+        return conditionals;
+    }
+
+    public Map<Integer, LineOfCode> getBranches() {
+        return branches;
+    }
+
+    public Map<String, Map<Callable, MockingCall>> getMockedFields() {
+        return mockedFields;
+    }
+
+    public List<Expression> getWhenThen() {
+        return whenThen;
+    }
+
+    public Set<ImportDeclaration> getImports() {
+        return imports;
+    }
+
+    public Map<String, RepositoryParser> getRepositories() {
+        return repositories;
+    }
+
+    public ArgumentGenerator getArgumentGenerator() {
+        return argumentGenerator;
+    }
+
+    public void setArgumentGenerator(ArgumentGenerator argumentGenerator) {
+        this.argumentGenerator = argumentGenerator;
+    }
+
+    DatabaseArgumentGenerator.Selection getArgumentSelection() {
+        return argumentSelection;
+    }
+
+    public Map<Integer, GraphNode> getGraphNodes() {
+        return graphNodes;
+    }
+
+    public Map<String, CompilationUnit> getDependencies() {
+        return dependencies;
+    }
+
+    public LinkedList<GraphNode> getDependencyStack() {
+        return dependencyStack;
+    }
+
+    public Map<String, Type> getNames() {
+        return names;
+    }
+
+    public Map<String, TestGenerator> getUnitTestGenerators() {
+        return unitTestGenerators;
+    }
+
+    public Map<String, TestGenerator> getApiTestGenerators() {
+        return apiTestGenerators;
+    }
+
+    public Map<String, Object> getFinches() {
+        return finches;
+    }
+
+    public void setFinches(Map<String, Object> finches) {
+        this.finches = finches;
+    }
+
+    /**
+     * @return the next value for an entity id
+     */
+    public long nextSequence() {
+        return ++sequence;
+    }
+}
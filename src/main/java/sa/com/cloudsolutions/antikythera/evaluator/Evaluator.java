@@ -131,7 +131,10 @@ public class Evaluator {
 
     protected TypeDeclaration<?> typeDeclaration;
 
-    private static long sequence = 0;
+    /**
+     * The evaluation context in which this evaluator was created.
+     */
+    private EvaluationContext evaluationContext = EvaluationContext.current();
 
     protected Evaluator() {
         locals = new HashMap<>();
@@ -141,6 +144,7 @@ public class Evaluator {
     protected Evaluator(EvaluatorFactory.Context context) {
         this();
         this.className = context.getClassName();
+        this.evaluationContext = context.getEvaluationContext();
         cu = AntikytheraRunTime.getCompilationUnit(className);
         if (cu != null) {
             typeDeclaration = AbstractCompiler.getMatchingType(cu, className).orElseThrow();
@@ -362,12 +366,27 @@ public class Evaluator {
     private Variable evaluateConditionalExpression(ConditionalExpr conditionalExpr) throws ReflectiveOperationException {
         Variable v = evaluateExpression(conditionalExpr.getCondition());
         if (v != null && v.getValue().equals(Boolean.TRUE)) {
+            branchTaken(conditionalExpr, true);
             return evaluateExpression(conditionalExpr.getThenExpr());
         } else {
+            branchTaken(conditionalExpr, false);
             return evaluateExpression(conditionalExpr.getElseExpr());
         }
     }
 
+    /**
+     * Called each time that the code under evaluation chooses a branch: an if statement or a
+     * conditional expression is decided, a switch entry is selected, a loop body is entered or
+     * skipped or a catch clause handles an exception.
+     * @param node the if statement, conditional expression, loop, switch entry or catch clause.
+     *             A switch statement itself when none of its entries were selected.
+     * @param outcome true if the then branch is taken or the loop body is entered; always true for
+     *                switch entries and catch clauses
+     */
+    protected void branchTaken(Node node, boolean outcome) {
+        // only the evaluators that generate tests are interested in this
+    }
+
     /**
      * Create an array using reflection
      *
@@ -1576,6 +1595,7 @@ public class Evaluator {
     private void executeSwitchStatement(SwitchStmt switchStmt) throws Exception {
         boolean matchFound = false;
         Statement defaultStmt = null;
+        Node defaultEntry = null;
 
         for (var entry : switchStmt.getEntries()) {
             NodeList<Expression> labels = entry.getLabels();
@@ -1584,6 +1604,7 @@ public class Evaluator {
                     BinaryExpr bin = new BinaryExpr(switchStmt.getSelector(), label.asIntegerLiteralExpr(), BinaryExpr.Operator.EQUALS);
                     Variable v = evaluateExpression(bin);
                     if ((boolean) v.getValue()) {
+                        branchTaken(entry, true);
                         executeBlock(entry.getStatements());
                         matchFound = true;
                         break;
@@ -1592,11 +1613,19 @@ public class Evaluator {
             }
             if (labels.isEmpty()) {
                 defaultStmt = entry.getStatements().getFirst().orElse(null);
+                defaultEntry = entry;
             }
         }
 
-        if (!matchFound && defaultStmt != null) {
-            executeStatement(defaultStmt);
+        if (!matchFound) {
+            if (defaultEntry != null) {
+                branchTaken(defaultEntry, true);
+            } else {
+                branchTaken(switchStmt, false);
+            }
+            if (defaultStmt != null) {
+                executeStatement(defaultStmt);
+            }
         }
     }
 
@@ -1607,8 +1636,10 @@ public class Evaluator {
         Object iterValue = iter.getValue();
 
         if (iterValue instanceof Collection<?> list) {
+            branchTaken(forEachStmt, !list.isEmpty());
             executeForEachWithCollection(list, forEachStmt);
         } else {
+            branchTaken(forEachStmt, Array.getLength(iterValue) > 0);
             executeForEachWithArray(forEachStmt, iterValue);
         }
 
@@ -1669,8 +1700,13 @@ public class Evaluator {
                 evaluateExpression(vdecl);
             }
         }
+        boolean entered = false;
         while ((boolean) evaluateExpression(forStmt.getCompare().orElseThrow()).getValue() &&
                 Boolean.TRUE.equals(loops.peekLast())) {
+            if (!entered) {
+                branchTaken(forStmt, true);
+                entered = true;
+            }
             executeBlock(forStmt.getBody().asBlockStmt().getStatements());
             for (Node n : forStmt.getUpdate()) {
                 if (n instanceof Expression e) {
@@ -1678,6 +1714,9 @@ public class Evaluator {
                 }
             }
         }
+        if (!entered) {
+            branchTaken(forStmt, false);
+        }
         loops.pollLast();
     }
 
@@ -1698,9 +1737,17 @@ public class Evaluator {
      */
     private void executeWhile(WhileStmt whileStmt) throws ReflectiveOperationException {
         loops.push(true);
+        boolean entered = false;
         while ((boolean) evaluateExpression(whileStmt.getCondition()).getValue() && Boolean.TRUE.equals(loops.peekLast())) {
+            if (!entered) {
+                branchTaken(whileStmt, true);
+                entered = true;
+            }
             executeBlock(whileStmt.getBody().asBlockStmt().getStatements());
         }
+        if (!entered) {
+            branchTaken(whileStmt, false);
+        }
         loops.pollLast();
     }
 
@@ -1713,7 +1760,9 @@ public class Evaluator {
     void ifThenElseBlock(IfStmt ifst) throws Exception {
 
         Variable v = evaluateExpression(ifst.getCondition());
-        if ((boolean) v.getValue()) {
+        boolean outcome = (boolean) v.getValue();
+        branchTaken(ifst, outcome);
+        if (outcome) {
             executeStatement(ifst.getThenStmt());
         } else {
             Optional<Statement> elseBlock = ifst.getElseStmt();
@@ -1737,6 +1786,7 @@ public class Evaluator {
                         clause.getParameter().getType().asClassOrInterfaceType().getNameAsString());
 
                 if (wrapper != null && isExceptionMatch(wrapper, e)) {
+                    branchTaken(clause, true);
                     setLocal(t, clause.getParameter().getNameAsString(), new Variable(e));
                     executeBlock(clause.getBody().getStatements());
                     matchFound = true;
@@ -1852,7 +1902,7 @@ public class Evaluator {
 
     private void checkSequences(FieldDeclaration field, VariableDeclarator variableDeclarator, Variable v) {
         if (isSequenceField(field, variableDeclarator)) {
-            incrementSequence();
+            long sequence = EvaluationContext.current().nextSequence();
             v.setValue(sequence);
             MethodCallExpr mce = new MethodCallExpr(
                     "set" + ClassProcessor.instanceToClassName(variableDeclarator.getNameAsString()));
@@ -1890,6 +1940,10 @@ public class Evaluator {
         return cu;
     }
 
+    public EvaluationContext getEvaluationContext() {
+        return evaluationContext;
+    }
+
     public void setCompilationUnit(CompilationUnit compilationUnit) {
         this.cu = compilationUnit;
     }
@@ -1903,10 +1957,6 @@ public class Evaluator {
                 && ( typeName.equals("int") || typeName.equals("long") || typeName.equals("Integer") || typeName.equals("Long")));
     }
 
-    private static void incrementSequence() {
-        sequence++;
-    }
-
     /**
      * <p>Java parser visitor used to set up the fields in the class.</p>
      * <p>
@@ -106,6 +106,10 @@ public class EvaluatorFactory {
     public static class Context {
         String className;
         Evaluator enclosure;
+        /**
+         * The evaluation context that the evaluator will belong to.
+         */
+        EvaluationContext evaluationContext = EvaluationContext.current();
 
         private Context(String className) {
             this.className = className;
@@ -124,6 +128,10 @@ public class EvaluatorFactory {
             return enclosure;
         }
 
+        public EvaluationContext getEvaluationContext() {
+            return evaluationContext;
+        }
+
         @Override
         public String toString() {
             if (className != null) {
@@ -7,8 +7,10 @@ import com.github.javaparser.ast.stmt.Statement;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 
 import sa.com.cloudsolutions.antikythera.generator.RepositoryQuery;
+import sa.com.cloudsolutions.antikythera.generator.TruthTable;
 
 
 /**
@@ -64,6 +66,11 @@ public class LineOfCode {
      */
     private RepositoryQuery repositoryQuery;
     private boolean result;
+    /**
+     * Truth table rows that are yet to be applied to achieve modified condition/decision
+     * coverage. Null when MC/DC is not being used for this line.
+     */
+    private List<Map<Expression, Object>> coverageRows;
 
     /**
      * Constructs a `LineOfCode` instance for the given statement.
@@ -145,6 +152,25 @@ public class LineOfCode {
     }
 
     public void transition() {
+        if (coverageRows != null && !coverageRows.isEmpty()) {
+            Map<Expression, Object> applied = nextCoverageRow(isFalsePath());
+            coverageRows.remove(applied);
+            if (coverageRows.isEmpty()) {
+                pathTaken = BOTH_PATHS;
+                return;
+            }
+            /*
+             * Target the outcome of a row that is still pending, alternating between the two
+             * outcomes while rows for both remain, so that the state being targeted always
+             * agrees with the row that will be applied next.
+             */
+            boolean next = !Boolean.TRUE.equals(applied.get(TruthTable.RESULT));
+            if (!hasCoverageRow(next)) {
+                next = !next;
+            }
+            pathTaken = next ? FALSE_PATH : TRUE_PATH;
+            return;
+        }
         if (isFalsePath()) {
             pathTaken = LineOfCode.BOTH_PATHS;
         } else {
@@ -300,4 +326,42 @@ public class LineOfCode {
     public Expression getConditionalExpression() {
         return binaryExpr;
     }
+
+    public List<Map<Expression, Object>> getCoverageRows() {
+        return coverageRows;
+    }
+
+    /**
+     * Sets the truth table rows that need to be applied for MC/DC.
+     * While any of these rows remain, transition() will not move this line into the
+     * BOTH_PATHS state.
+     *
+     * @param coverageRows rows from the truth table including the result column
+     */
+    public void setCoverageRows(List<Map<Expression, Object>> coverageRows) {
+        this.coverageRows = new ArrayList<>(coverageRows);
+    }
+
+    /**
+     * Find the coverage row to be applied in the current iteration.
+     * A row that gives the desired result is preferred, but any pending row will do.
+     *
+     * @param state the desired result of the condition
+     * @return the row or null if there are no coverage rows left
+     */
+    public Map<Expression, Object> nextCoverageRow(boolean state) {
+        if (coverageRows == null || coverageRows.isEmpty()) {
+            return null;
+        }
+        for (Map<Expression, Object> row : coverageRows) {
+            if (Boolean.valueOf(state).equals(row.get(TruthTable.RESULT))) {
+                return row;
+            }
+        }
+        return coverageRows.getFirst();
+    }
+
+    private boolean hasCoverageRow(boolean state) {
+        return coverageRows.stream().anyMatch(row -> Boolean.valueOf(state).equals(row.get(TruthTable.RESULT)));
+    }
 }
@@ -26,16 +26,22 @@ public class MethodInterceptor {
     @RuntimeType
     public Object intercept(Method method, Object[] args, MethodDeclaration methodDecl) throws ReflectiveOperationException {
         if (evaluator != null) {
-            // Push arguments onto stack in reverse order
-            for (int i = args.length - 1; i >= 0; i--) {
-                AntikytheraRunTime.push(new Variable(args[i]));
-            }
+            /*
+             * The dynamic classes are shared by all the evaluation contexts, so the call may come
+             * from outside the context that the evaluator belongs to.
+             */
+            return evaluator.getEvaluationContext().call(() -> {
+                // Push arguments onto stack in reverse order
+                for (int i = args.length - 1; i >= 0; i--) {
+                    AntikytheraRunTime.push(new Variable(args[i]));
+                }
 
-            // Execute the method using source code evaluation
-            Variable result = evaluator.executeMethod(methodDecl);
+                // Execute the method using source code evaluation
+                Variable result = evaluator.executeMethod(methodDecl);
 
-            // Return the actual value from the Variable wrapper
-            return result != null ? result.getValue() : null;
+                // Return the actual value from the Variable wrapper
+                return result != null ? result.getValue() : null;
+            });
         }
         return intercept(method, args);
     }
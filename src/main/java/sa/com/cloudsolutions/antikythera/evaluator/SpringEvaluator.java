@@ -28,6 +28,7 @@ import org.slf4j.LoggerFactory;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import sa.com.cloudsolutions.antikythera.configuration.Settings;
+import sa.com.cloudsolutions.antikythera.evaluator.mock.MockingCall;
 import sa.com.cloudsolutions.antikythera.evaluator.mock.MockingRegistry;
 import sa.com.cloudsolutions.antikythera.exception.AUTException;
 import sa.com.cloudsolutions.antikythera.exception.AntikytheraException;
@@ -37,35 +38,39 @@ import sa.com.cloudsolutions.antikythera.generator.QueryMethodArgument;
 import sa.com.cloudsolutions.antikythera.generator.RepositoryQuery;
 import sa.com.cloudsolutions.antikythera.generator.TestGenerator;
 import sa.com.cloudsolutions.antikythera.generator.TruthTable;
+import sa.com.cloudsolutions.antikythera.generator.TruthTableCache;
 import sa.com.cloudsolutions.antikythera.generator.TypeWrapper;
 import sa.com.cloudsolutions.antikythera.parser.AbstractCompiler;
 import sa.com.cloudsolutions.antikythera.parser.Callable;
 import sa.com.cloudsolutions.antikythera.parser.MCEWrapper;
+import sa.com.cloudsolutions.antikythera.parser.QueryResult;
 import sa.com.cloudsolutions.antikythera.parser.RepositoryParser;
 
 import java.io.IOException;
 import java.lang.reflect.Constructor;
-import java.sql.ResultSet;
-import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.Collection;
-import java.util.HashMap;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Extends the basic evaluator to provide support for JPA repositories and their special behavior.
  */
 public class SpringEvaluator extends ControlFlowEvaluator {
     private static final Logger logger = LoggerFactory.getLogger(SpringEvaluator.class);
-
     /**
-     * Maintains a list of repositories that we have already encountered.
+     * When this setting is true, compound conditions are explored with a minimal set of truth
+     * table rows that gives modified condition/decision coverage.
      */
-    private static final Map<String, RepositoryParser> repositories = new HashMap<>();
+    public static final String MCDC = "mcdc";
 
-    private static ArgumentGenerator argumentGenerator;
     /**
      * <p>List of test generators that we have.</p>
      * <p>
@@ -79,6 +84,24 @@ public class SpringEvaluator extends ControlFlowEvaluator {
      */
     private MethodDeclaration currentMethod;
     private boolean onTest;
+    /**
+     * The truth table row that will be applied to the current conditional in this iteration.
+     */
+    private Map<Expression, Object> conditionValues;
+    /**
+     * Fingerprints of the states that the method under test has already been executed with.
+     */
+    private final Set<String> visitedStates = new HashSet<>();
+    /**
+     * The number of iterations, across all evaluators, that were not executed because they
+     * would have started from a state that had already been explored.
+     */
+    private static final AtomicInteger skippedStates = new AtomicInteger();
+    /**
+     * The branches that have been taken in the current execution of the method under test.
+     * Each one is identified by the if statement or conditional expression and its outcome.
+     */
+    private final Set<String> covered = new LinkedHashSet<>();
 
     protected SpringEvaluator(EvaluatorFactory.Context context) {
         super(context);
@@ -125,14 +148,18 @@ public class SpringEvaluator extends ControlFlowEvaluator {
                         /*
                          * We have found a repository. Now we need to process it. Afterward
                          * it will be added to the repository map, to be identified by the
-                         * field name.
+                         * field name. A repository that has been processed before is kept
+                         * along with the queries that were already parsed for it.
                          */
-                        RepositoryParser parser = new RepositoryParser();
-                        parser.compile(AbstractCompiler.classToPath(className));
-                        parser.processTypes();
-
                         String fqn = AbstractCompiler.findFullyQualifiedName(cu, t.getNameAsString());
-                        repositories.put(fqn, parser);
+                        Map<String, RepositoryParser> repositories = EvaluationContext.current().getRepositories();
+                        if (!repositories.containsKey(fqn)) {
+                            RepositoryParser parser = new RepositoryParser();
+                            parser.compile(AbstractCompiler.classToPath(className));
+                            parser.processTypes();
+                            repositories.put(fqn, parser);
+                            parser.prefetchQueries();
+                        }
                         break;
                     }
                 }
@@ -144,33 +171,14 @@ public class SpringEvaluator extends ControlFlowEvaluator {
      * Converts an SQL row to an Entity.
      *
      * @param variable copy the data from the record into this variable.
-     * @param rs       the sql result set
+     * @param result   the rows returned by the query
+     * @param row      the position of the row to copy
      */
-    private static boolean resultToEntity(Variable variable, ResultSet rs) {
-        try {
-            if (variable.getValue() instanceof Evaluator evaluator && rs.next()) {
-                CompilationUnit cu = AntikytheraRunTime.getCompilationUnit(evaluator.getClassName());
-
-
-                for (FieldDeclaration field : cu.findAll(FieldDeclaration.class)) {
-                    for (VariableDeclarator fieldVar : field.getVariables()) {
-                        String fieldName = fieldVar.getNameAsString();
-                        try {
-                            if (rs.findColumn(RepositoryParser.camelToSnake(fieldName)) > 0) {
-                                Object value = rs.getObject(RepositoryParser.camelToSnake(fieldName));
-                                Variable v = new Variable(value);
-                                v.setType(fieldVar.getType());
-                                evaluator.setField(fieldName, v);
-                            }
-                        } catch (SQLException e) {
-                            logger.warn(e.getMessage());
-                        }
-                    }
-                }
-                return true;
-            }
-        } catch (SQLException e) {
-            logger.warn(e.getMessage());
+    private static boolean resultToEntity(Variable variable, QueryResult result, int row) {
+        if (variable.getValue() instanceof Evaluator evaluator && result != null && row < result.size()) {
+            CompilationUnit cu = AntikytheraRunTime.getCompilationUnit(evaluator.getClassName());
+            EntityMappingPlan.get(evaluator.getClassName(), cu, result).apply(evaluator, result, row);
+            return true;
         }
         return false;
     }
@@ -195,16 +203,25 @@ public class SpringEvaluator extends ControlFlowEvaluator {
 
             int safetyCheck = 0;
             while (safetyCheck < 16) {
-                getLocals().clear();
-                setupFields();
-                mockMethodArguments(md);
-
                 currentConditional = Branching.getHighestPriority(md);
                 if ((currentConditional == null || currentConditional.isFullyTravelled()) && oldSize != 0) {
                     break;
                 }
 
-                executeMethod(md);
+                getLocals().clear();
+                setupFields();
+                int depth = EvaluationContext.current().getStack().size();
+                mockMethodArguments(md);
+
+                conditionValues = findConditionValues();
+                if (visitedStates.add(fingerprint(md))) {
+                    covered.clear();
+                    executeMethod(md);
+                } else {
+                    skippedStates.incrementAndGet();
+                    logger.debug("Skipping a repeated state for {}", md.getNameAsString());
+                    discardArguments(depth);
+                }
                 safetyCheck++;
                 if (currentConditional != null) {
                     currentConditional.transition();
@@ -227,6 +244,20 @@ public class SpringEvaluator extends ControlFlowEvaluator {
     }
 
 
+    /**
+     * Remove the arguments that were generated for an iteration that is not going to be executed.
+     * They are the most recent entries on the stack, so they would otherwise be consumed as the
+     * arguments of a later execution.
+     *
+     * @param depth the size of the stack before the arguments were generated
+     */
+    private static void discardArguments(int depth) {
+        Deque<Variable> stack = EvaluationContext.current().getStack();
+        while (stack.size() > depth) {
+            stack.pop();
+        }
+    }
+
     private void beforeVisit(MethodDeclaration md) {
         md.getParentNode().ifPresent(p -> {
             if (p instanceof ClassOrInterfaceDeclaration) {
@@ -236,10 +267,79 @@ public class SpringEvaluator extends ControlFlowEvaluator {
 
         Branching.clear();
         AntikytheraRunTime.reset();
+        visitedStates.clear();
 
         md.accept(new ConditionVisitor(), null);
     }
 
+    /**
+     * <p>Describe the state that the method is about to be executed with.</p>
+     *
+     * The state is made up of the generated arguments, the truth table row and preconditions
+     * that will be applied for the current conditional, the path taken by the other lines that
+     * the evaluator consults while executing (optionals and repository calls) and the mocks that
+     * have been set up. Two iterations with the same fingerprint take the same path through the
+     * method, so the second one has nothing new to offer.
+     *
+     * Values that do not have a meaningful string representation end up with an identity hash
+     * in the fingerprint, which means such iterations are never considered to be repeats.
+     *
+     * @param md the method that is about to be executed
+     * @return a string that identifies the starting state
+     */
+    String fingerprint(MethodDeclaration md) {
+        StringBuilder b = new StringBuilder();
+        Map<String, Variable> arguments = EvaluationContext.current().getArgumentGenerator().getArguments();
+        for (Map.Entry<String, Variable> arg : new TreeMap<>(arguments).entrySet()) {
+            b.append(arg.getKey()).append('=').append(describe(arg.getValue())).append(';');
+        }
+
+        if (currentConditional != null) {
+            if (currentConditional.getStatement() instanceof IfStmt || currentConditional.getConditionalExpression() != null) {
+                if (conditionValues != null) {
+                    conditionValues.entrySet().stream()
+                            .map(e -> e.getKey() + "=" + e.getValue())
+                            .sorted()
+                            .forEach(e -> b.append(e).append(';'));
+                }
+            } else {
+                b.append(currentConditional.getStatement()).append('@')
+                        .append(currentConditional.getPathTaken()).append(';');
+            }
+            for (Precondition precondition : currentConditional.getPreconditions()) {
+                b.append(precondition.getExpression()).append(';');
+            }
+        }
+
+        for (LineOfCode line : Branching.get(md)) {
+            if (!(line.getStatement() instanceof IfStmt) && line.getConditionalExpression() == null) {
+                b.append(line.getStatement()).append('@').append(line.getPathTaken()).append(';');
+            }
+        }
+
+        for (MockingCall call : MockingRegistry.getAllMocks()) {
+            b.append(call.getCallable()).append("->").append(describe(call.getVariable()))
+                    .append(call.getExpression()).append(';');
+        }
+        return b.toString();
+    }
+
+    private static String describe(Variable v) {
+        if (v == null) {
+            return "null";
+        }
+        if (v.getValue() instanceof Evaluator eval) {
+            StringBuilder b = new StringBuilder(eval.getClassName()).append('{');
+            new TreeMap<>(eval.fields).forEach((name, field) -> b.append(name).append('=').append(field).append(','));
+            return b.append('}').toString();
+        }
+        return v.getType() + ":" + v + v.getInitializer();
+    }
+
+    public static int getSkippedStates() {
+        return skippedStates.get();
+    }
+
     @Override
     protected void setupParameters(MethodDeclaration md) throws ReflectiveOperationException {
         super.setupParameters(md);
@@ -323,7 +423,7 @@ public class SpringEvaluator extends ControlFlowEvaluator {
     void mockMethodArguments(MethodDeclaration md) throws ReflectiveOperationException {
         for (int i = md.getParameters().size() - 1; i >= 0; i--) {
             var param = md.getParameter(i);
-            argumentGenerator.generateArgument(param);
+            EvaluationContext.current().getArgumentGenerator().generateArgument(param);
         }
     }
 
@@ -335,7 +435,7 @@ public class SpringEvaluator extends ControlFlowEvaluator {
      * @return the result set
      */
     private RepositoryQuery executeQuery(Expression name, MethodCallExpr methodCall) throws AntikytheraException, ReflectiveOperationException {
-        RepositoryParser repository = repositories.get(getFieldClass(name));
+        RepositoryParser repository = EvaluationContext.current().getRepositories().get(getFieldClass(name));
         if (repository != null) {
             MCEWrapper methodCallWrapper = wrapCallExpression(methodCall);
 
@@ -447,6 +547,7 @@ public class SpringEvaluator extends ControlFlowEvaluator {
         if (response != null) {
             for (TestGenerator generator : generators) {
                 generator.setPreConditions(Branching.getApplicableConditions(currentMethod));
+                generator.setCoverage(new LinkedHashSet<>(covered));
                 generator.createTests(currentMethod, response);
             }
             return new Variable(response);
@@ -454,6 +555,11 @@ public class SpringEvaluator extends ControlFlowEvaluator {
         return null;
     }
 
+    @Override
+    protected void branchTaken(Node node, boolean outcome) {
+        covered.add(node.getClass().getSimpleName() + "#" + System.identityHashCode(node) + "@" + outcome);
+    }
+
     public void addGenerator(TestGenerator generator) {
         generators.add(generator);
     }
@@ -550,7 +656,7 @@ public class SpringEvaluator extends ControlFlowEvaluator {
                 Optional<Expression> expr = methodCall.getScope();
                 if (expr.isPresent()) {
                     String fieldClass = getFieldClass(expr.get());
-                    if (repositories.containsKey(fieldClass) && !(v.getValue() instanceof MockingEvaluator)) {
+                    if (EvaluationContext.current().getRepositories().containsKey(fieldClass) && !(v.getValue() instanceof MockingEvaluator)) {
                         boolean isMocked = false;
                         String fieldName = getFieldName(expr.get());
                         if (fieldName != null && getField(fieldName) != null && getField(fieldName).getType() != null) {
@@ -587,32 +693,53 @@ public class SpringEvaluator extends ControlFlowEvaluator {
     }
 
     /**
-     * Set up an if condition so that it will evaluate to true or false in future executions.
+     * Find the truth table row that will make the current conditional evaluate to the state that
+     * we are looking for.
+     * @return the values keyed by the expressions in the condition or null if there is no
+     *      conditional to set up or it cannot be satisfied.
      */
-    void setupIfCondition() {
+    private Map<Expression, Object> findConditionValues() {
+        if (currentConditional == null || !(currentConditional.getStatement() instanceof IfStmt
+                || currentConditional.getConditionalExpression() != null)) {
+            return null;
+        }
         boolean state = currentConditional.isFalsePath();
 
         List<Expression> collectedConditions = ConditionVisitor.collectConditionsUpToMethod(currentConditional.getStatement());
-        TruthTable tt = new TruthTable();
+        List<BinaryExpr> constraints = new ArrayList<>();
 
         for (Expression cond : collectedConditions) {
             if (cond.isBinaryExpr()) {
                 BinaryExpr bin = cond.asBinaryExpr();
                 if (bin.getLeft().isNameExpr()) {
-                    tt.addConstraint(cond.asBinaryExpr().getLeft().asNameExpr(), cond.asBinaryExpr());
+                    constraints.add(bin);
                 }
             }
         }
 
         collectedConditions.add(currentConditional.getConditionalExpression());
-        tt.setCondition(BinaryOps.getCombinedCondition(collectedConditions));
-        tt.generateTruthTable();
+        Expression combined = BinaryOps.getCombinedCondition(collectedConditions);
 
-        List<Map<Expression, Object>> values = tt.findValuesForCondition(state);
+        if (Settings.getProperty(MCDC, Boolean.class).orElse(false)) {
+            if (currentConditional.getCoverageRows() == null) {
+                currentConditional.setCoverageRows(TruthTableCache.findMCDCValues(
+                        combined, constraints, currentConditional.getConditionalExpression()));
+            }
+            return currentConditional.nextCoverageRow(state);
+        }
+        return TruthTableCache.findValuesForCondition(combined, constraints, state, 1)
+                .stream().findFirst().orElse(null);
+    }
 
-        if (!values.isEmpty()) {
-            Map<Expression, Object> value = values.getFirst();
-            for (var entry : value.entrySet()) {
+    /**
+     * Set up an if condition so that it will evaluate to true or false in future executions.
+     */
+    void setupIfCondition() {
+        if (conditionValues != null) {
+            for (var entry : conditionValues.entrySet()) {
+                if (entry.getKey().equals(TruthTable.RESULT)) {
+                    continue;
+                }
                 if (entry.getKey().isMethodCallExpr()) {
                     setupConditionThroughMethodCalls(currentConditional.getStatement(), entry);
                 } else if (entry.getKey().isNameExpr()) {
@@ -620,7 +747,6 @@ public class SpringEvaluator extends ControlFlowEvaluator {
                 }
             }
         }
-
     }
 
     /**
@@ -635,7 +761,7 @@ public class SpringEvaluator extends ControlFlowEvaluator {
     Variable executeSource(MethodCallExpr methodCall) throws AntikytheraException, ReflectiveOperationException {
         Expression expression = methodCall.getScope().orElseThrow();
         if (expression.isNameExpr()) {
-            RepositoryParser rp = repositories.get(getFieldClass(expression));
+            RepositoryParser rp = EvaluationContext.current().getRepositories().get(getFieldClass(expression));
             if (rp != null) {
                 RepositoryQuery q = executeQuery(expression, methodCall);
                 if (q != null) {
@@ -651,7 +777,7 @@ public class SpringEvaluator extends ControlFlowEvaluator {
         return super.executeSource(methodCall);
     }
 
-    private Variable processResult(ExpressionStmt stmt, ResultSet rs) throws AntikytheraException, ReflectiveOperationException {
+    private Variable processResult(ExpressionStmt stmt, QueryResult result) throws AntikytheraException, ReflectiveOperationException {
         if (stmt.getExpression().isVariableDeclarationExpr()) {
             VariableDeclarationExpr vdecl = stmt.getExpression().asVariableDeclarationExpr();
 
@@ -670,9 +796,9 @@ public class SpringEvaluator extends ControlFlowEvaluator {
 
                         Variable variable = Reflect.variableFactory(fullyQualifiedName);
                         if (mainType.endsWith("List") || mainType.endsWith("Map") || mainType.endsWith("Set")) {
-                            for (int i = 0; i < 10; i++) {
+                            for (int i = 0; i < result.size(); i++) {
                                 Variable row = createObject(stmt, objectCreationExpr);
-                                if (SpringEvaluator.resultToEntity(row, rs)) {
+                                if (SpringEvaluator.resultToEntity(row, result, i)) {
                                     ((Collection) variable.getValue()).add(row);
                                 } else {
                                     break;
@@ -684,7 +810,7 @@ public class SpringEvaluator extends ControlFlowEvaluator {
                 } else {
                     ObjectCreationExpr objectCreationExpr = new ObjectCreationExpr(null, classType, new NodeList<>());
                     Variable row = createObject(stmt, objectCreationExpr);
-                    if (SpringEvaluator.resultToEntity(row, rs)) {
+                    if (SpringEvaluator.resultToEntity(row, result, 0)) {
                         return row;
                     } else {
                         return new Variable(null);
@@ -758,7 +884,7 @@ public class SpringEvaluator extends ControlFlowEvaluator {
     }
 
     public void setArgumentGenerator(ArgumentGenerator argumentGenerator) {
-        SpringEvaluator.argumentGenerator = argumentGenerator;
+        EvaluationContext.current().setArgumentGenerator(argumentGenerator);
         for (TestGenerator gen : generators) {
             gen.setArgumentGenerator(argumentGenerator);
         }
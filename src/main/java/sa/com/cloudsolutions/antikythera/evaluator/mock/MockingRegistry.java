@@ -21,6 +21,7 @@ import org.mockito.quality.Strictness;
 import sa.com.cloudsolutions.antikythera.configuration.Settings;
 import sa.com.cloudsolutions.antikythera.evaluator.AKBuddy;
 import sa.com.cloudsolutions.antikythera.evaluator.AntikytheraRunTime;
+import sa.com.cloudsolutions.antikythera.evaluator.EvaluationContext;
 import sa.com.cloudsolutions.antikythera.evaluator.Evaluator;
 import sa.com.cloudsolutions.antikythera.evaluator.EvaluatorFactory;
 import sa.com.cloudsolutions.antikythera.evaluator.MethodInterceptor;
@@ -45,9 +46,9 @@ import static org.mockito.Mockito.withSettings;
 /**
  * Keep track of all the types that are being mocked internally while evaluating expressions.
  * Also supports the when/then type of mocking that you find in frameworks like mockito.
+ * The mocks are registered with the {@link EvaluationContext} of the current thread.
  */
 public class MockingRegistry {
-    private static final Map<String, Map<Callable, MockingCall>> mockedFields = new HashMap<>();
     public static final String MOCKITO = "Mockito";
 
     private MockingRegistry() {
@@ -59,11 +60,11 @@ public class MockingRegistry {
      * @param className the name of the class to mark as mocked
      */
     public static void markAsMocked(String className) {
-        mockedFields.put(className, new HashMap<>());
+        EvaluationContext.current().getMockedFields().put(className, new HashMap<>());
     }
 
     public static boolean isMockTarget(String className) {
-        return mockedFields.containsKey(className);
+        return EvaluationContext.current().getMockedFields().containsKey(className);
     }
 
     public static String generateRegistryKey(List<TypeWrapper> resolvedTypes) {
@@ -82,7 +83,7 @@ public class MockingRegistry {
     }
 
     public static void reset() {
-        mockedFields.clear();
+        EvaluationContext.current().getMockedFields().clear();
     }
 
     /**
@@ -94,7 +95,7 @@ public class MockingRegistry {
      * @param mockingCall represents the method being called and the mocked return value
      */
     public static void when(String className, MockingCall mockingCall) {
-        Map<Callable, MockingCall> map = mockedFields.computeIfAbsent(className, k -> new HashMap<>());
+        Map<Callable, MockingCall> map = EvaluationContext.current().getMockedFields().computeIfAbsent(className, k -> new HashMap<>());
         map.put(mockingCall.getCallable(), mockingCall);
     }
 
@@ -167,7 +168,7 @@ public class MockingRegistry {
 
     public static List<MockingCall> getAllMocks() {
         List<MockingCall> result = new ArrayList<>();
-        for (Map<Callable, MockingCall> map : mockedFields.values()) {
+        for (Map<Callable, MockingCall> map : EvaluationContext.current().getMockedFields().values()) {
             result.addAll(map.values());
         }
         return result;
@@ -181,7 +182,7 @@ public class MockingRegistry {
      * @return the MockingCall that was created for the method.
      */
     public static MockingCall getThen(String className, Callable callable) {
-        Map<Callable, MockingCall> map = mockedFields.get(className);
+        Map<Callable, MockingCall> map = EvaluationContext.current().getMockedFields().get(className);
         if (map != null) {
             return map.get(callable);
         }
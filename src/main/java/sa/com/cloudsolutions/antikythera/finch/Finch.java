@@ -3,6 +3,7 @@ package sa.com.cloudsolutions.antikythera.finch;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import sa.com.cloudsolutions.antikythera.configuration.Settings;
+import sa.com.cloudsolutions.antikythera.evaluator.EvaluationContext;
 import javax.tools.JavaCompiler;
 import javax.tools.ToolProvider;
 import java.io.File;
@@ -20,10 +21,15 @@ import java.util.Map;
 /**
  * Finches are simple mechanism to replace classes in the source code with custom classes.
  *
+ * The finch instances belong to the evaluation context of the current thread. The classes are
+ * compiled and loaded only once for each folder, and every context gets its own instances.
  */
 public class Finch {
-    static Map<String, Object> finches;
     private static final Logger logger = LoggerFactory.getLogger(Finch.class);
+    /**
+     * The classes that have been compiled, by the folder that their sources were found in.
+     */
+    private static final Map<String, List<Class<?>>> compiled = new HashMap<>();
 
     public static void main(String[] args) throws Exception {
 
@@ -42,12 +48,13 @@ public class Finch {
 
     public static void loadFinches() {
         try {
-            if (Finch.finches == null) {
-                Finch.finches = new HashMap<>();
+            EvaluationContext context = EvaluationContext.current();
+            if (context.getFinches() == null) {
+                Map<String, Object> finches = new HashMap<>();
+                context.setFinches(finches);
                 Collection<String> scouts = Settings.getPropertyList("finch", String.class);
                 for (String scout : scouts) {
-                    Map<String, Object> finches = Finch.loadClasses(new File(scout));
-                    Finch.finches.putAll(finches);
+                    finches.putAll(Finch.loadClasses(new File(scout)));
                 }
             }
         } catch (Exception e) {
@@ -56,9 +63,23 @@ public class Finch {
     }
 
     public static Map<String, Object> loadClasses(File sourceDir) throws MalformedURLException, ClassNotFoundException, NoSuchMethodException, InvocationTargetException, InstantiationException, IllegalAccessException {
+        Map<String, Object> classes = new HashMap<>();
+        for (Class<?> cls : compile(sourceDir)) {
+            Object instance = cls.getDeclaredConstructor().newInstance();
+            classes.put(cls.getName(), instance);
+        }
+        return classes;
+    }
+
+    private static synchronized List<Class<?>> compile(File sourceDir) throws MalformedURLException, ClassNotFoundException {
+        List<Class<?>> classes = compiled.get(sourceDir.getAbsolutePath());
+        if (classes != null) {
+            return classes;
+        }
+        classes = new ArrayList<>();
+
         // List to hold the paths of all Java source files
         List<String> sourceFiles = new ArrayList<>();
-        Map<String, Object> classes = new HashMap<>();
 
         // Recursively find all Java source files in the directory
         findJavaFiles(sourceDir, sourceFiles);
@@ -73,17 +94,16 @@ public class Finch {
             throw new RuntimeException("Compilation failed.");
         }
 
-        // Load and instantiate the compiled classes
+        // Load the compiled classes
         URLClassLoader classLoader = URLClassLoader.newInstance(new URL[]{sourceDir.toURI().toURL()});
         for (String sourceFile : sourceFiles) {
             String className = sourceFile
                     .replace(sourceDir.getPath() + File.separator, "")
                     .replace(File.separator, ".")
                     .replace(".java", "");
-            Class<?> cls = Class.forName(className, true, classLoader);
-            Object instance = cls.getDeclaredConstructor().newInstance();
-            classes.put(cls.getName(), instance);
+            classes.add(Class.forName(className, true, classLoader));
         }
+        compiled.put(sourceDir.getAbsolutePath(), classes);
         return classes;
     }
 
@@ -99,10 +119,10 @@ public class Finch {
     }
 
     public static Object getFinch(String resolvedClass) {
-        return finches.get(resolvedClass);
+        return EvaluationContext.current().getFinches().get(resolvedClass);
     }
 
     public static void clear() {
-        finches = null;
+        EvaluationContext.current().setFinches(null);
     }
 }
@@ -1,32 +1,48 @@
 package sa.com.cloudsolutions.antikythera.generator;
 
+import com.github.javaparser.ast.CompilationUnit;
 import org.codehaus.plexus.util.xml.pull.XmlPullParserException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import sa.com.cloudsolutions.antikythera.configuration.Settings;
 import sa.com.cloudsolutions.antikythera.evaluator.AntikytheraRunTime;
+import sa.com.cloudsolutions.antikythera.evaluator.EvaluationContext;
+import sa.com.cloudsolutions.antikythera.evaluator.SpringEvaluator;
 import sa.com.cloudsolutions.antikythera.exception.AntikytheraException;
 import sa.com.cloudsolutions.antikythera.exception.EvaluatorException;
 import sa.com.cloudsolutions.antikythera.parser.AbstractCompiler;
+import sa.com.cloudsolutions.antikythera.parser.ConnectionPool;
 import sa.com.cloudsolutions.antikythera.parser.MavenHelper;
+import sa.com.cloudsolutions.antikythera.parser.QueryPrefetcher;
+import sa.com.cloudsolutions.antikythera.parser.QuerySnapshots;
 import sa.com.cloudsolutions.antikythera.parser.RestControllerParser;
 import sa.com.cloudsolutions.antikythera.parser.ServicesParser;
 import sa.com.cloudsolutions.antikythera.parser.Stats;
 
 import java.io.File;
-import java.io.FileWriter;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.nio.file.StandardCopyOption;
 
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 @SuppressWarnings("java:S6548")
 public class Antikythera {
 
     public static final String SRC = "src";
+    /**
+     * The number of threads on which services are processed.
+     */
+    public static final String THREADS = "threads";
     private static final Logger logger = LoggerFactory.getLogger(Antikythera.class);
     private static final String PACKAGE_PATH = "src/main/java/sa/com/cloudsolutions/antikythera";
     private static Antikythera instance;
@@ -71,7 +87,7 @@ public class Antikythera {
                     Files.createDirectories(targetPath);
                 }
             } else {
-                Files.copy(sourcePath, targetPath, StandardCopyOption.REPLACE_EXISTING);
+                OutputWriter.copy(sourcePath, targetPath);
             }
         }
     }
@@ -79,6 +95,16 @@ public class Antikythera {
     public static void main(String[] args) throws IOException, XmlPullParserException, EvaluatorException {
         Antikythera antk = Antikythera.getInstance();
         antk.preProcess();
+        if (args.length > 0 && args[0].equals(Daemon.ARGUMENT)) {
+            new Daemon().serve();
+            close();
+            return;
+        }
+        if (args.length > 0 && args[0].equals(Watcher.ARGUMENT)) {
+            new Watcher(antk.services).watch();
+            close();
+            return;
+        }
         antk.generateApiTests();
         Stats stats = RestControllerParser.getStats();
 
@@ -87,13 +113,38 @@ public class Antikythera {
         logger.info("Generated {} tests", stats.getTests());
 
         antk.generateUnitTests();
+        logger.info("Truth table cache: {} hits, {} misses, {} evictions, hit rate {}",
+                TruthTableCache.getHits(), TruthTableCache.getMisses(), TruthTableCache.getEvictions(),
+                String.format("%.2f", TruthTableCache.getHitRate()));
+        logger.info("Skipped {} repeated exploration states", SpringEvaluator.getSkippedStates());
+        if (UnitTestGenerator.getDropped() > 0) {
+            logger.info("Minimization dropped {} tests", UnitTestGenerator.getDropped());
+        }
+        close();
+        logger.info("Wrote {} files, {} were already up to date", OutputWriter.getWritten(), OutputWriter.getUnchanged());
+    }
+
+    /**
+     * Wait for the files to be written, save what has to be kept for the next run and release
+     * the database connections.
+     * @throws IOException if any of the generated files could not be written
+     */
+    static void close() throws IOException {
+        OutputWriter.shutdown();
+        QuerySnapshots.save();
+        QueryPrefetcher.shutdown();
+        ConnectionPool.shutdown();
     }
 
     private void copyBaseFiles(String outputPath) throws IOException, XmlPullParserException {
         String testPath = PACKAGE_PATH.replace("main", "test");
         mavenHelper.copyPom();
-        mavenHelper.copyTemplate("TestHelper.java", testPath, "base");
-        mavenHelper.copyTemplate("Configurations.java", testPath, "configurations");
+        if (SpringTestGenerator.isMockMvc()) {
+            mavenHelper.copyTemplate("MockMvcHelper.java", testPath, "base");
+        } else {
+            mavenHelper.copyTemplate("TestHelper.java", testPath, "base");
+            mavenHelper.copyTemplate("Configurations.java", testPath, "configurations");
+        }
 
         Path pathToCopy = Paths.get(outputPath, SRC, "test", "resources");
         Files.createDirectories(pathToCopy);
@@ -125,20 +176,35 @@ public class Antikythera {
     }
 
     public void writeFilesToTest(String belongingPackage, String filename, String content) throws IOException {
-        String filePath = Settings.getOutputPath() + File.separator + SRC + File.separator + "test" + File.separator + "java"
-                + File.separator + belongingPackage.replace(".", File.separator) + File.separator + filename;
+        writeFile(testFilePath(belongingPackage, filename), content);
+    }
 
-        writeFile(filePath, content);
+    /**
+     * Queue a generated test class to be written by the {@link OutputWriter}.
+     * @param belongingPackage the package of the test class
+     * @param filename the name of the file
+     * @param cu the test class, which must not be changed afterwards
+     */
+    public void writeFilesToTest(String belongingPackage, String filename, CompilationUnit cu) {
+        writeFile(testFilePath(belongingPackage, filename), cu);
+    }
+
+    private static String testFilePath(String belongingPackage, String filename) {
+        return Settings.getOutputPath() + File.separator + SRC + File.separator + "test" + File.separator + "java"
+                + File.separator + belongingPackage.replace(".", File.separator) + File.separator + filename;
     }
 
     public void writeFile(String filePath, String content) throws IOException {
-        File file = new File(filePath);
-        File parentDir = file.getParentFile();
-        Files.createDirectories(parentDir.toPath());
-        try (FileWriter writer = new FileWriter(file)) {
-            writer.write(content);
-            writer.flush();
-        }
+        OutputWriter.write(Paths.get(filePath), content);
+    }
+
+    /**
+     * Queue a compilation unit to be written by the {@link OutputWriter}.
+     * @param filePath the file to write to
+     * @param cu the compilation unit, which must not be changed afterwards
+     */
+    public void writeFile(String filePath, CompilationUnit cu) {
+        OutputWriter.submit(Paths.get(filePath), cu);
     }
 
     public void preProcess() throws IOException, XmlPullParserException {
@@ -149,14 +215,47 @@ public class Antikythera {
 
     }
 
+    /**
+     * Generate unit tests for the services.
+     *
+     * When the threads setting is greater than one the services are processed on that many
+     * worker threads; otherwise they are processed one after another.
+     *
+     * @throws IOException if the tests cannot be written to the output folder
+     */
     private void generateUnitTests() throws IOException {
+        Map<String, List<String[]>> targets = findServices(services);
+        int threads = Settings.getProperty(THREADS, Integer.class).orElse(1);
+        if (threads > 1 && targets.size() > 1) {
+            generateUnitTestsInParallel(targets, threads);
+        }
+        else {
+            for (Map.Entry<String, List<String[]>> target : targets.entrySet()) {
+                List<ServicesParser> processors = new ArrayList<>();
+                for (String[] parts : target.getValue()) {
+                    processors.add(processService(target.getKey(), parts, EvaluationContext.current()));
+                }
+                writeFiles(processors);
+            }
+        }
+    }
+
+    /**
+     * Work out which classes are to be processed from entries in the format of the services setting.
+     * @param services class names or package names, optionally followed by # and a method name
+     * @return the parts of each entry that refers to a class, keyed by the name of that class in
+     *      the order in which they were found.
+     * @throws IOException if a package folder cannot be read
+     */
+    static Map<String, List<String[]>> findServices(Collection<String> services) throws IOException {
+        Map<String, List<String[]>> targets = new LinkedHashMap<>();
         for (String service : services) {
             String[] parts = service.split("#");
             String path = parts[0];
 
             // Check if it's a source file in compilation units
             if (AntikytheraRunTime.getCompilationUnit(path) != null) {
-                processService(path, parts);
+                targets.computeIfAbsent(path, k -> new ArrayList<>()).add(parts);
             } else {
                 // Might be a package - check directory
                 Path packagePath = Paths.get(Settings.getBasePath(),
@@ -166,16 +265,13 @@ public class Antikythera {
                     try (var paths = Files.walk(packagePath)) {
                         paths.filter(Files::isRegularFile)
                              .filter(p -> p.toString().endsWith(".java"))
+                             .sorted()
                              .forEach(p -> {
                                  String relativePath = Paths.get(Settings.getBasePath())
                                      .relativize(p).toString()
                                      .replace(File.separatorChar, '.')
                                      .replaceAll("\\.java$", "");
-                                 try {
-                                     processService(relativePath, parts);
-                                 } catch (IOException e) {
-                                     logger.error("Failed to process service {}", relativePath, e);
-                                 }
+                                 targets.computeIfAbsent(relativePath, k -> new ArrayList<>()).add(parts);
                              });
                     }
                 } else {
@@ -183,18 +279,85 @@ public class Antikythera {
                 }
             }
         }
+        return targets;
+    }
+
+    /**
+     * <p>Process the services on a pool of worker threads.</p>
+     *
+     * Each class is processed in an evaluation context of its own, so that the stack, the mocks
+     * and the branches of one service are not seen by the others, and so that the tests generated
+     * for a class do not depend on which classes happened to be processed before it on the same
+     * thread. All the entries for the same class are processed together, because they share a
+     * test generator. The tests are written out once everything has been evaluated, in the same
+     * order as they would have been by {@link #generateUnitTests()} without the worker threads.
+     *
+     * @param targets the classes to be processed
+     * @param threads the number of worker threads
+     * @throws IOException if the tests cannot be written to the output folder
+     */
+    private void generateUnitTestsInParallel(Map<String, List<String[]>> targets, int threads) throws IOException {
+        logger.info("Processing {} services on {} threads", targets.size(), threads);
+        ExecutorService executor = Executors.newFixedThreadPool(threads, r -> {
+            Thread t = new Thread(r, "service-worker");
+            t.setDaemon(true);
+            return t;
+        });
+        try {
+            List<Future<List<ServicesParser>>> results = new ArrayList<>();
+            for (Map.Entry<String, List<String[]>> target : targets.entrySet()) {
+                EvaluationContext context = new EvaluationContext();
+                results.add(executor.submit(() -> {
+                    List<ServicesParser> processors = new ArrayList<>();
+                    for (String[] parts : target.getValue()) {
+                        processors.add(processService(target.getKey(), parts, context));
+                    }
+                    return processors;
+                }));
+            }
+
+            for (Future<List<ServicesParser>> result : results) {
+                writeFiles(result.get());
+            }
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException re) {
+                throw re;
+            }
+            throw new AntikytheraException("Failed to process services", e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new AntikytheraException("Interrupted while processing services", e);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Write the tests for a class once all the entries for it have been processed.
+     * The entries share a test generator, so it is written just once, and no longer changes
+     * while it is waiting to be written.
+     * @param processors the parsers for the entries of a class
+     * @throws IOException if the tests cannot be written
+     */
+    static void writeFiles(List<ServicesParser> processors) throws IOException {
+        for (ServicesParser processor : processors.reversed()) {
+            if (processor.getMethodCount() > 0) {
+                processor.writeFiles();
+                return;
+            }
+        }
     }
 
-    private void processService(String servicePath, String[] parts) throws IOException {
+    static ServicesParser processService(String servicePath, String[] parts, EvaluationContext context) {
         logger.info("******************");
         logger.info("Processing service {}", servicePath);
 
-        ServicesParser processor = new ServicesParser(servicePath);
+        ServicesParser processor = new ServicesParser(servicePath, context);
         if (parts.length == 2) {
             processor.start(parts[1]);
         } else {
             processor.start();
         }
-        processor.writeFiles();
+        return processor;
     }
 }
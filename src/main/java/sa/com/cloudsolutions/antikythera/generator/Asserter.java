@@ -2,23 +2,69 @@ package sa.com.cloudsolutions.antikythera.generator;
 
 import com.github.javaparser.ast.CompilationUnit;
 import com.github.javaparser.ast.body.FieldDeclaration;
-import com.github.javaparser.ast.body.TypeDeclaration;
+import com.github.javaparser.ast.body.VariableDeclarator;
+import com.github.javaparser.ast.expr.CharLiteralExpr;
 import com.github.javaparser.ast.expr.Expression;
 import com.github.javaparser.ast.expr.MethodCallExpr;
+import com.github.javaparser.ast.expr.StringLiteralExpr;
 import com.github.javaparser.ast.stmt.BlockStmt;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import sa.com.cloudsolutions.antikythera.configuration.Settings;
 import sa.com.cloudsolutions.antikythera.evaluator.AntikytheraRunTime;
 import sa.com.cloudsolutions.antikythera.evaluator.Evaluator;
 import sa.com.cloudsolutions.antikythera.evaluator.Variable;
 
 import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
+/**
+ * <p>Builds the assertions that are placed at the end of the generated tests.</p>
+ *
+ * The fields of the object that has been returned are asserted through their getters. How far
+ * that goes is controlled by the following settings, so that large graphs of entities do not
+ * turn into huge tests that are slow to generate and to compile.
+ * <ul>
+ *     <li>assertions.depth: how many levels of nested objects are followed; the default of
+ *     {@value #DEFAULT_DEPTH} asserts only the fields of the returned object itself</li>
+ *     <li>assertions.fields: the most fields that are asserted for each object, default
+ *     {@value #DEFAULT_FIELDS}</li>
+ *     <li>assertions.collection_sample: how many elements at the head of a list are asserted in
+ *     addition to its size, default {@value #DEFAULT_SAMPLE}</li>
+ *     <li>assertions.max_literal: strings longer than this are checked by their length rather
+ *     than their content, default {@value #DEFAULT_MAX_LITERAL}</li>
+ * </ul>
+ * An object that has already been visited on the way down is only checked for null, so cycles in
+ * the graph end there. Which fields an object has is worked out once for each class.
+ */
 public abstract class Asserter {
     private static final Logger logger = LoggerFactory.getLogger(Asserter.class);
 
+    public static final int DEFAULT_DEPTH = 1;
+    public static final int DEFAULT_FIELDS = 5;
+    public static final int DEFAULT_SAMPLE = 0;
+    public static final int DEFAULT_MAX_LITERAL = 200;
+
+    /**
+     * The fields to be asserted for classes that are being evaluated, by fully qualified name.
+     */
+    private static final Map<String, List<String>> sourcePlans = new ConcurrentHashMap<>();
+    /**
+     * The getters to be asserted for compiled classes.
+     */
+    private static final Map<Class<?>, List<Method>> binaryPlans = new ConcurrentHashMap<>();
+
     public abstract Expression assertNotNull(String variable);
     public abstract Expression assertNull(String variable);
     public abstract void setupImports(CompilationUnit gen);
@@ -27,48 +73,165 @@ public abstract class Asserter {
 
     public void addFieldAsserts(MethodResponse resp, BlockStmt body) {
         if (resp.getBody() != null && resp.getBody().getValue() instanceof Evaluator ev) {
-            int i = 0;
-            TypeDeclaration<?> type = AntikytheraRunTime.getTypeDeclaration(ev.getClassName()).orElseThrow();
-            for(FieldDeclaration field : type.getFields()) {
-                try {
-                    String fieldName = field.getVariable(0).getNameAsString();
-                    Variable value = ev.getField(fieldName);
-
-                    if (value != null && !fieldName.equals("serialVersionUID")
-                            && value.getValue() != null) {
-                        String getter = "get" + fieldName.substring(0, 1).toUpperCase() + fieldName.substring(1);
-                        body.addStatement(fieldAssertion(getter, value));
-                        i++;
+            Set<Object> visited = Collections.newSetFromMap(new IdentityHashMap<>());
+            visited.add(ev);
+            addFieldAsserts("resp", ev, 1, body, visited);
+        }
+    }
+
+    /**
+     * Assert the fields of an object, going into nested objects while the depth allows it.
+     * @param expr the expression through which the object is reached in the test
+     * @param object an evaluator or an instance of a compiled class
+     * @param depth the level of the object, with the returned object at level 1
+     * @param body the block to which the assertions are added
+     * @param visited the objects on the path from the returned object to this one
+     */
+    private void addFieldAsserts(String expr, Object object, int depth, BlockStmt body, Set<Object> visited) {
+        int limit = setting("fields", DEFAULT_FIELDS);
+        int i = 0;
+        for (Map.Entry<String, Object> field : fieldValues(object).entrySet()) {
+            if (i == limit) {
+                break;
+            }
+            Object value = field.getValue();
+            if (value == null) {
+                continue;
+            }
+            try {
+                String getterCall = expr + "." + field.getKey() + "()";
+                addAssert(getterCall, value, depth, body, visited);
+                i++;
+            } catch (Exception pex) {
+                logger.error("Error asserting {}", field.getKey(), pex);
+            }
+        }
+    }
+
+    private void addAssert(String expr, Object value, int depth, BlockStmt body, Set<Object> visited) {
+        if (isLeaf(value)) {
+            body.addStatement(leafAssertion(expr, value));
+            return;
+        }
+        if (value instanceof Collection<?> || value instanceof Map<?, ?>) {
+            body.addStatement(leafAssertion(expr, value));
+            if (value instanceof List<?> list && depth < setting("depth", DEFAULT_DEPTH)) {
+                int sample = Math.min(list.size(), setting("collection_sample", DEFAULT_SAMPLE));
+                for (int j = 0; j < sample; j++) {
+                    Object element = list.get(j);
+                    if (element != null) {
+                        addAssert(expr + ".get(" + j + ")", element, depth + 1, body, visited);
                     }
-                } catch (Exception pex) {
-                    logger.error("Error asserting {}", field.getVariable(0).getNameAsString(), pex);
-                }
-                if (i == 5) {
-                    break;
                 }
             }
+            return;
+        }
+        body.addStatement(assertNotNull(expr));
+        if (depth < setting("depth", DEFAULT_DEPTH) && visited.add(value)) {
+            addFieldAsserts(expr, value, depth + 1, body, visited);
+            visited.remove(value);
         }
     }
 
-
     public Expression fieldAssertion(String getter, Variable v) {
-        Object value = v.getValue();
+        return leafAssertion("resp." + getter + "()", v.getValue());
+    }
 
-        String getterCall = "resp." + getter + "()";
-        if (value instanceof String) {
-            return assertEquals("\"" + v.getValue() + "\"", getterCall);
+    /**
+     * Build an assertion for a value that is not followed any further.
+     */
+    private Expression leafAssertion(String expr, Object value) {
+        if (value instanceof String str) {
+            if (str.length() > setting("max_literal", DEFAULT_MAX_LITERAL)) {
+                return assertEquals(String.valueOf(str.length()), expr + ".length()");
+            }
+            return assertEquals(new StringLiteralExpr().setString(str).toString(), expr);
         }
-        if (value instanceof Collection<?>) {
-            try {
-                Method m = v.getClazz().getMethod("size");
-                Object result = m.invoke(value);
-                return assertEquals(result.toString(), getterCall + ".size()");
-            } catch (ReflectiveOperationException e) {
-                logger.warn("Could not use reflection for assertion");
+        if (value instanceof Collection<?> c) {
+            return assertEquals(String.valueOf(c.size()), expr + ".size()");
+        }
+        if (value instanceof Map<?, ?> m) {
+            return assertEquals(String.valueOf(m.size()), expr + ".size()");
+        }
+        if (value instanceof Enum<?> e) {
+            return assertEquals("\"" + e.name() + "\"", expr + ".name()");
+        }
+        if (value instanceof Character c) {
+            return assertEquals(new CharLiteralExpr(c).toString(), expr);
+        }
+        if (value instanceof Number || value instanceof Boolean) {
+            return assertEquals(value.toString(), expr);
+        }
+        return assertNotNull(expr);
+    }
+
+    private static boolean isLeaf(Object value) {
+        return value instanceof String || value instanceof Number || value instanceof Boolean
+                || value instanceof Character || value instanceof Enum<?>
+                || (!(value instanceof Evaluator) && !(value instanceof Collection<?>) && !(value instanceof Map<?, ?>)
+                    && value.getClass().getName().startsWith("java."));
+    }
+
+    /**
+     * Find the values of the fields of an object, keyed by the name of the getter for the field.
+     */
+    private static Map<String, Object> fieldValues(Object object) {
+        Map<String, Object> values = new LinkedHashMap<>();
+        if (object instanceof Evaluator ev) {
+            for (String name : sourcePlans.computeIfAbsent(ev.getClassName(), Asserter::sourcePlan)) {
+                Variable v = ev.getField(name);
+                values.put("get" + name.substring(0, 1).toUpperCase() + name.substring(1),
+                        v == null ? null : v.getValue());
+            }
+        } else {
+            for (Method m : binaryPlans.computeIfAbsent(object.getClass(), Asserter::binaryPlan)) {
+                try {
+                    values.put(m.getName(), m.invoke(object));
+                } catch (ReflectiveOperationException | RuntimeException e) {
+                    logger.debug("Could not call {}: {}", m.getName(), e.getMessage());
+                }
             }
         }
-        return assertEquals(v.getValue().toString(), getterCall);
+        return values;
+    }
+
+    private static List<String> sourcePlan(String className) {
+        List<String> names = new ArrayList<>();
+        AntikytheraRunTime.getTypeDeclaration(className).ifPresent(type -> {
+            for (FieldDeclaration field : type.getFields()) {
+                if (!field.isStatic()) {
+                    for (VariableDeclarator variable : field.getVariables()) {
+                        if (!variable.getNameAsString().equals("serialVersionUID")) {
+                            names.add(variable.getNameAsString());
+                        }
+                    }
+                }
+            }
+        });
+        return names;
+    }
+
+    private static List<Method> binaryPlan(Class<?> cls) {
+        return Arrays.stream(cls.getMethods())
+                .filter(m -> m.getParameterCount() == 0 && !Modifier.isStatic(m.getModifiers())
+                        && m.getName().startsWith("get") && m.getName().length() > 3
+                        && !m.getName().equals("getClass") && m.getReturnType() != void.class)
+                .sorted(Comparator.comparing(Method::getName))
+                .toList();
+    }
+
+    /**
+     * Drop the fields that were found for a class, so that they are looked up again once the
+     * class has been compiled again.
+     * @param className the fully qualified name of the class
+     */
+    public static void forget(String className) {
+        String nested = className + ".";
+        sourcePlans.keySet().removeIf(k -> k.equals(className) || k.startsWith(nested));
+    }
 
+    private static int setting(String name, int defaultValue) {
+        return Settings.getProperty("assertions." + name, Number.class).map(Number::intValue).orElse(defaultValue);
     }
 
     public Expression assertEmpty(String variable) {
@@ -1,9 +1,9 @@
 package sa.com.cloudsolutions.antikythera.generator;
 
+import com.github.javaparser.ast.CompilationUnit;
 import sa.com.cloudsolutions.antikythera.configuration.Settings;
 
 import java.io.File;
-import java.io.FileWriter;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Paths;
@@ -26,16 +26,22 @@ public class CopyUtils {
     }
 
     public static void writeFile( String relativePath, String content) throws IOException {
-        String filePath = Settings.getProperty(Settings.OUTPUT_PATH).toString() +
+        OutputWriter.write(Paths.get(sourcePath(relativePath)), content);
+    }
+
+    /**
+     * Queue a compilation unit to be written by the {@link OutputWriter}.
+     * @param relativePath the path of the file relative to the source folder of the output
+     * @param cu the compilation unit, which must not be changed afterwards
+     */
+    public static void writeFile(String relativePath, CompilationUnit cu) {
+        OutputWriter.submit(Paths.get(sourcePath(relativePath)), cu);
+    }
+
+    private static String sourcePath(String relativePath) {
+        return Settings.getProperty(Settings.OUTPUT_PATH).toString() +
                 File.separator + SRC + File.separator + "main" + File.separator + "java" +
                 File.separator + relativePath;
-
-        File file = new File(filePath);
-        File parentDir = file.getParentFile();
-        Files.createDirectories(parentDir.toPath());
-        try (FileWriter writer = new FileWriter(file)) {
-            writer.write(content);
-        }
     }
 
 
@@ -0,0 +1,262 @@
+package sa.com.cloudsolutions.antikythera.generator;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import sa.com.cloudsolutions.antikythera.configuration.Settings;
+import sa.com.cloudsolutions.antikythera.evaluator.EvaluationContext;
+import sa.com.cloudsolutions.antikythera.parser.RestControllerParser;
+import sa.com.cloudsolutions.antikythera.parser.ServicesParser;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.io.PrintWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * <p>Keeps the project loaded and generates tests for jobs as they come in.</p>
+ *
+ * Started by passing {@value #ARGUMENT} as the first argument. The settings are loaded, the jar
+ * paths built and the project preprocessed just once, after which the parsed sources, the type
+ * solvers, the classes created by AKBuddy, the finches and the query caches are reused by every
+ * job. Each target is evaluated in an evaluation context of its own, so nothing that was built up
+ * while generating the tests for one job is seen by the next.
+ *
+ * Jobs are read from standard input and the results written to standard output, unless
+ * daemon.port is set, in which case the daemon listens on that port of the loopback interface and
+ * each connection may send as many jobs as it likes. Either way there is one JSON object per line
+ * in both directions. While reading from standard input, the log is sent to standard error so
+ * that nothing but replies appears on standard output. A job looks like
+ * <pre>
+ *     {"id": "1", "services": ["com.example.PersonService#save"], "controllers": ["com.example.PersonController"]}
+ * </pre>
+ * where the services and controllers are written in the same way as in the configuration. The
+ * reply has the id of the job, its status, the time taken in milliseconds and the outcome for
+ * each target. {"command": "stop"} shuts the daemon down.
+ *
+ * Jobs are processed one at a time, in the order in which they are received.
+ */
+public class Daemon {
+    private static final Logger logger = LoggerFactory.getLogger(Daemon.class);
+
+    public static final String ARGUMENT = "--daemon";
+    public static final String PORT = "daemon.port";
+
+    private static final String STATUS = "status";
+    private static final String ERROR = "error";
+    private static final String MILLIS = "millis";
+
+    private final ObjectMapper mapper = new ObjectMapper();
+    private volatile boolean running = true;
+    private ServerSocket server;
+    private int jobs;
+
+    /**
+     * Accept jobs until asked to stop, or until the input is closed when reading from stdin.
+     * @throws IOException if the port cannot be listened on
+     */
+    public void serve() throws IOException {
+        Object port = Settings.getProperty(PORT);
+        if (port == null) {
+            // the replies have standard output to themselves; for the rest of the run the log and
+            // anything else that is printed goes to standard error instead
+            PrintStream replies = System.out;
+            System.setOut(System.err);
+            logger.info("Reading jobs from standard input");
+            serve(new InputStreamReader(System.in, StandardCharsets.UTF_8),
+                    new PrintWriter(replies, true, StandardCharsets.UTF_8));
+        } else {
+            listen(Integer.parseInt(port.toString()));
+        }
+        logger.info("Processed {} jobs", jobs);
+    }
+
+    private void listen(int port) throws IOException {
+        try (ServerSocket socket = new ServerSocket(port, 0, InetAddress.getLoopbackAddress())) {
+            server = socket;
+            logger.info("Listening for jobs on port {}", socket.getLocalPort());
+            while (running) {
+                Socket client;
+                try {
+                    client = socket.accept();
+                } catch (SocketException e) {
+                    // the socket is closed by a stop command
+                    break;
+                }
+                Thread t = new Thread(() -> serve(client), "daemon-client");
+                t.setDaemon(true);
+                t.start();
+            }
+        }
+    }
+
+    private void serve(Socket client) {
+        try (client) {
+            serve(new InputStreamReader(client.getInputStream(), StandardCharsets.UTF_8),
+                    new PrintWriter(client.getOutputStream(), true, StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            logger.warn("Lost connection to client: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Read jobs one line at a time and write a reply for each of them.
+     * @param in where the jobs come from
+     * @param out where the replies go
+     * @throws IOException if the jobs cannot be read
+     */
+    void serve(Reader in, Writer out) throws IOException {
+        BufferedReader reader = new BufferedReader(in);
+        PrintWriter writer = out instanceof PrintWriter pw ? pw : new PrintWriter(out, true);
+        String line;
+        while (running && (line = reader.readLine()) != null) {
+            if (!line.isBlank()) {
+                writer.println(handle(line));
+                writer.flush();
+            }
+        }
+    }
+
+    /**
+     * Carry out a single job.
+     * @param line the job as a JSON object
+     * @return the reply as a JSON object on a single line
+     */
+    synchronized String handle(String line) {
+        long start = System.nanoTime();
+        ObjectNode reply = mapper.createObjectNode();
+        try {
+            JsonNode job = mapper.readTree(line);
+            if (job == null || !job.isObject()) {
+                throw new IllegalArgumentException("A job should be a JSON object");
+            }
+            if (job.hasNonNull("id")) {
+                reply.set("id", job.get("id"));
+            }
+            if ("stop".equals(job.path("command").asText())) {
+                stop();
+                reply.put(STATUS, "stopped");
+            } else {
+                jobs++;
+                ArrayNode results = reply.putArray("results");
+                for (String controller : strings(job.path("controllers"))) {
+                    results.add(generateApiTests(controller));
+                }
+                for (String service : strings(job.path("services"))) {
+                    results.add(generateUnitTests(service));
+                }
+                boolean failed = false;
+                for (JsonNode result : results) {
+                    failed |= !"ok".equals(result.path(STATUS).asText());
+                }
+                reply.put(STATUS, failed ? ERROR : "ok");
+            }
+        } catch (JsonProcessingException | IllegalArgumentException e) {
+            reply.put(STATUS, ERROR);
+            reply.put(ERROR, e.getMessage());
+        }
+        reply.put(MILLIS, elapsed(start));
+        return reply.toString();
+    }
+
+    private ObjectNode generateApiTests(String controller) {
+        long start = System.nanoTime();
+        ObjectNode result = mapper.createObjectNode();
+        result.put("controller", controller);
+        try {
+            String name = controller.replace(".java", "").split("#")[0];
+            new RestControllerParser(name, new EvaluationContext()).start();
+            OutputWriter.flush();
+            result.put(STATUS, "ok");
+        } catch (Exception e) {
+            failed(result, controller, e);
+        }
+        result.put(MILLIS, elapsed(start));
+        return result;
+    }
+
+    private ObjectNode generateUnitTests(String service) {
+        long start = System.nanoTime();
+        ObjectNode result = mapper.createObjectNode();
+        result.put("service", service);
+        try {
+            Map<String, List<String[]>> targets = Antikythera.findServices(List.of(service));
+            if (targets.isEmpty()) {
+                throw new IllegalArgumentException("Not found: " + service);
+            }
+            int methods = 0;
+            int tests = 0;
+            for (Map.Entry<String, List<String[]>> target : targets.entrySet()) {
+                EvaluationContext context = new EvaluationContext();
+                List<ServicesParser> processors = new ArrayList<>();
+                for (String[] parts : target.getValue()) {
+                    ServicesParser processor = Antikythera.processService(target.getKey(), parts, context);
+                    processors.add(processor);
+                    methods += processor.getMethodCount();
+                }
+                tests += processors.getLast().getTestCount();
+                Antikythera.writeFiles(processors);
+            }
+            OutputWriter.flush();
+            result.put("classes", targets.size());
+            result.put("methods", methods);
+            result.put("tests", tests);
+            result.put(STATUS, "ok");
+        } catch (Exception e) {
+            failed(result, service, e);
+        }
+        result.put(MILLIS, elapsed(start));
+        return result;
+    }
+
+    private static void failed(ObjectNode result, String target, Exception e) {
+        logger.warn("Could not generate tests for {}", target, e);
+        result.put(STATUS, ERROR);
+        result.put(ERROR, e.getMessage() == null ? e.getClass().getName() : e.getMessage());
+    }
+
+    /**
+     * Stop accepting jobs. The job that is being processed, if any, is allowed to finish.
+     */
+    public void stop() {
+        running = false;
+        if (server != null) {
+            try {
+                server.close();
+            } catch (IOException e) {
+                logger.warn("Could not close the daemon socket: {}", e.getMessage());
+            }
+        }
+    }
+
+    private static List<String> strings(JsonNode node) {
+        List<String> values = new ArrayList<>();
+        if (node.isTextual()) {
+            values.add(node.asText());
+        } else if (node.isArray()) {
+            node.forEach(n -> values.add(n.asText()));
+        } else if (!node.isMissingNode() && !node.isNull()) {
+            throw new IllegalArgumentException("Expected a list of names but found " + node);
+        }
+        return values;
+    }
+
+    private static long elapsed(long start) {
+        return (System.nanoTime() - start) / 1_000_000;
+    }
+}
@@ -2,23 +2,25 @@ package sa.com.cloudsolutions.antikythera.generator;
 
 import com.github.javaparser.ast.CompilationUnit;
 import sa.com.cloudsolutions.antikythera.configuration.Settings;
+import sa.com.cloudsolutions.antikythera.evaluator.EvaluationContext;
 import sa.com.cloudsolutions.antikythera.parser.AbstractCompiler;
 
-import java.util.HashMap;
-import java.util.Map;
 
 public class Factory {
-    private static final Map<String, TestGenerator> unit = new HashMap<>();
-    private static final Map<String, TestGenerator> integration = new HashMap<>();
-    private static final Map<String, TestGenerator> api = new HashMap<>();
-
     private Factory() {}
 
+    /**
+     * Find the test generator for a class, creating it if need be.
+     * The generators belong to the evaluation context of the current thread.
+     * @param type unit, integration or api
+     * @param cu the compilation unit of the class under test
+     * @return a test generator, or null for integration tests
+     */
     public static TestGenerator create(String type, CompilationUnit cu) {
         String className = AbstractCompiler.getPublicType(cu).getFullyQualifiedName().orElse(null);
         TestGenerator gen = null;
         if (type.equals("unit")) {
-            gen = unit.get(className);
+            gen = EvaluationContext.current().getUnitTestGenerators().get(className);
             if (gen != null) {
                 return gen;
             }
@@ -27,16 +29,10 @@ public class Factory {
             }
         }
         else if(type.equals("integration")) {
-            gen = integration.get(cu);
-            if (gen != null) {
-                return gen;
-            }
-            else {
-                gen = createIntegrationTestGenerator();
-            }
+            gen = createIntegrationTestGenerator();
         }
         else {
-            gen = api.get(className);
+            gen = EvaluationContext.current().getApiTestGenerators().get(className);
             if (gen != null) {
                 return gen;
             }
@@ -62,14 +58,14 @@ public class Factory {
     private static TestGenerator createApiTestGenerator(CompilationUnit cu) {
         String className = AbstractCompiler.getPublicType(cu).getFullyQualifiedName().orElse(null);
         SpringTestGenerator gen = new SpringTestGenerator(cu);
-        api.put(className, gen);
+        EvaluationContext.current().getApiTestGenerators().put(className, gen);
         return gen;
     }
 
     private static TestGenerator createUnitTestGenerator(CompilationUnit cu) {
         String className = AbstractCompiler.getPublicType(cu).getFullyQualifiedName().orElse(null);
         UnitTestGenerator gen = new UnitTestGenerator(cu);
-        unit.put(className, gen);
+        EvaluationContext.current().getUnitTestGenerators().put(className, gen);
         return gen;
     }
 }
@@ -0,0 +1,233 @@
+package sa.com.cloudsolutions.antikythera.generator;
+
+import com.github.javaparser.ast.Node;
+import com.github.javaparser.printer.DefaultPrettyPrinter;
+import com.github.javaparser.printer.Printer;
+import com.github.javaparser.printer.configuration.DefaultPrinterConfiguration;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import sa.com.cloudsolutions.antikythera.configuration.Settings;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * <p>Prints the generated compilation units and writes them to disk on a thread of its own.</p>
+ *
+ * Pretty printing a test class and writing it out takes a while for the larger services, and
+ * there is no reason for the evaluation of the next class to wait for it. The compilation units
+ * are handed over through a queue of output.queue_size entries (default
+ * {@value #DEFAULT_QUEUE_SIZE}); when the queue is full the generator waits for the writer to
+ * catch up, so that not too many of them are held in memory at once. All files are printed with
+ * the same printer configuration, which gives the same output as Node.toString().
+ *
+ * A compilation unit must not be changed once it has been handed over. Failures are reported by
+ * {@link #flush()}, which should be called before anything that expects the files to be on disk.
+ *
+ * A file is left alone when it already has exactly the content that would be written to it. Most
+ * of the generated files are the same from one run to the next, and if they were written again
+ * their modification times would change and the build tool of the output project would compile
+ * every one of them again.
+ */
+public class OutputWriter {
+    private static final Logger logger = LoggerFactory.getLogger(OutputWriter.class);
+
+    public static final int DEFAULT_QUEUE_SIZE = 16;
+
+    private static final Printer printer = new DefaultPrettyPrinter(new DefaultPrinterConfiguration());
+
+    private record Job(Path path, Node node) {
+    }
+
+    private static BlockingQueue<Job> queue;
+    private static Thread worker;
+    private static int pending;
+    private static IOException failure;
+    private static final AtomicInteger written = new AtomicInteger();
+    private static final AtomicInteger unchanged = new AtomicInteger();
+
+    private OutputWriter() {
+    }
+
+    /**
+     * Queue a compilation unit to be written, waiting if the queue is full.
+     * @param path the file to write to
+     * @param node the compilation unit
+     */
+    public static void submit(Path path, Node node) {
+        BlockingQueue<Job> q;
+        synchronized (OutputWriter.class) {
+            if (worker == null) {
+                start();
+            }
+            pending++;
+            q = queue;
+        }
+        try {
+            q.put(new Job(path, node));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            done(null);
+            logger.warn("Interrupted before {} could be written", path);
+        }
+    }
+
+    private static void start() {
+        Object size = Settings.getProperty("output.queue_size");
+        queue = new ArrayBlockingQueue<>(size == null ? DEFAULT_QUEUE_SIZE : Integer.parseInt(size.toString()));
+        worker = new Thread(() -> drain(queue), "output-writer");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    private static void drain(BlockingQueue<Job> q) {
+        while (true) {
+            Job job;
+            try {
+                job = q.take();
+            } catch (InterruptedException e) {
+                return;
+            }
+            IOException error = null;
+            try {
+                write(job.path(), job.node());
+            } catch (IOException e) {
+                error = e;
+            } catch (RuntimeException e) {
+                error = new IOException("Could not print " + job.path(), e);
+            }
+            done(error);
+        }
+    }
+
+    private static synchronized void done(IOException error) {
+        if (error != null) {
+            logger.error("Could not write {}", error.getMessage());
+            if (failure == null) {
+                failure = error;
+            }
+        }
+        pending--;
+        OutputWriter.class.notifyAll();
+    }
+
+    /**
+     * Print a node straight to a file.
+     * @param path the file to write to
+     * @param node the compilation unit
+     * @throws IOException if the file cannot be written
+     */
+    static void write(Path path, Node node) throws IOException {
+        write(path, printer.print(node));
+    }
+
+    /**
+     * Write content to a file, creating the folders that lead up to it.
+     * @param path the file to write to
+     * @param content what goes into the file
+     * @throws IOException if the file cannot be written
+     */
+    public static void write(Path path, String content) throws IOException {
+        write(path, content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Write content to a file unless the file already holds exactly that content.
+     * @param path the file to write to
+     * @param content what goes into the file
+     * @return true if the file was written, false if it was left alone
+     * @throws IOException if the file cannot be written
+     */
+    public static boolean write(Path path, byte[] content) throws IOException {
+        if (isUnchanged(path, content)) {
+            unchanged.incrementAndGet();
+            return false;
+        }
+        Files.createDirectories(path.toAbsolutePath().getParent());
+        try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(path))) {
+            out.write(content);
+        }
+        written.incrementAndGet();
+        return true;
+    }
+
+    /**
+     * Copy a file unless the destination already has the same content.
+     * @param source the file to copy
+     * @param destination where it is copied to
+     * @return true if the file was copied
+     * @throws IOException if the file cannot be read or written
+     */
+    public static boolean copy(Path source, Path destination) throws IOException {
+        return write(destination, Files.readAllBytes(source));
+    }
+
+    /**
+     * The size is compared first, so that the existing file only has to be read when it could be
+     * the same.
+     */
+    static boolean isUnchanged(Path path, byte[] content) throws IOException {
+        return Files.isRegularFile(path) && Files.size(path) == content.length
+                && Arrays.equals(Files.readAllBytes(path), content);
+    }
+
+    /**
+     * @return the number of files that have been written
+     */
+    public static int getWritten() {
+        return written.get();
+    }
+
+    /**
+     * @return the number of files that were not written because their content had not changed
+     */
+    public static int getUnchanged() {
+        return unchanged.get();
+    }
+
+    /**
+     * Wait until everything that has been queued has been written.
+     * @throws IOException if any of the files could not be written since the last flush
+     */
+    public static synchronized void flush() throws IOException {
+        while (pending > 0) {
+            try {
+                OutputWriter.class.wait();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while waiting for files to be written", e);
+            }
+        }
+        if (failure != null) {
+            IOException e = failure;
+            failure = null;
+            throw e;
+        }
+    }
+
+    /**
+     * Write out what is left in the queue and stop the writer thread.
+     * @throws IOException if any of the files could not be written
+     */
+    public static void shutdown() throws IOException {
+        try {
+            flush();
+        } finally {
+            synchronized (OutputWriter.class) {
+                if (worker != null) {
+                    worker.interrupt();
+                    worker = null;
+                    queue = null;
+                }
+            }
+        }
+    }
+}
@@ -1,7 +1,6 @@
 package sa.com.cloudsolutions.antikythera.generator;
 
 import com.github.javaparser.ast.NodeList;
-import com.github.javaparser.ast.body.FieldDeclaration;
 import com.github.javaparser.ast.body.MethodDeclaration;
 import com.github.javaparser.ast.body.Parameter;
 import com.github.javaparser.ast.type.Type;
@@ -42,13 +41,15 @@ import sa.com.cloudsolutions.antikythera.configuration.Settings;
 import sa.com.cloudsolutions.antikythera.evaluator.Variable;
 import sa.com.cloudsolutions.antikythera.exception.AntikytheraException;
 import sa.com.cloudsolutions.antikythera.parser.Callable;
+import sa.com.cloudsolutions.antikythera.parser.EntityIndex;
+import sa.com.cloudsolutions.antikythera.parser.QueryResult;
 import sa.com.cloudsolutions.antikythera.parser.RepositoryParser;
 
-import java.sql.ResultSet;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -58,6 +59,23 @@ import java.util.regex.Pattern;
 public class RepositoryQuery {
     private static final Logger logger = LoggerFactory.getLogger(RepositoryQuery.class);
 
+    /**
+     * Statements that have already been parsed and had their fields converted to snake case.
+     * The same repositories are loaded many times during a run, and the statement does not change
+     * once it has been converted, so it can be shared by all the queries built from the same sql.
+     */
+    private static final Map<String, Statement> parsedStatements = new ConcurrentHashMap<>();
+    /**
+     * Simplified statements along with the placeholder mapping that was worked out for them.
+     */
+    private static final Map<String, SimplifiedQuery> simplifiedQueries = new ConcurrentHashMap<>();
+
+    private record SimplifiedQuery(Statement statement, List<ParameterMapping> parameters) {
+    }
+
+    private record ParameterMapping(String columnName, List<Integer> placeHolderIds, boolean removed) {
+    }
+
     /**
      * Whether the query is native or not.
      * This is the value of the native flag to the @Query annotation.
@@ -65,16 +83,21 @@ public class RepositoryQuery {
     boolean isNative;
 
     /**
-     * The result set from the last execution of this query if any
+     * The rows from the last execution of this query if any
      */
-    private ResultSet resultSet;
+    private QueryResult resultSet;
     /**
      * The result set from running the query with only predefined parameters.
      * When the default query is being executed the presence of many filters will typically cause
      * the result set to be empty. You are more likely to get a non-empty result when you have a
      * small number of filters. This simplifiedResultSet represents that.
      */
-    private ResultSet simplifiedResultSet;
+    private QueryResult simplifiedResultSet;
+    /**
+     * Rows from the simplified query picked so that the columns used as filters take different
+     * values; for each such column a row where it is null and a row where it is not.
+     */
+    private QueryResult candidateResultSet;
     /**
      * This is the list of parameters that are defined in the function signature
      */
@@ -171,19 +194,19 @@ public class RepositoryQuery {
      * Get the result set for the simplified query. This will often be non-empty.
      * @return the result set for the simplified query
      */
-    public ResultSet getSimplifiedResultSet() {
+    public QueryResult getSimplifiedResultSet() {
         return simplifiedResultSet;
     }
 
     /**
      * Get the result set for the un tampered query
-     * @return a JDBC result set which is likely to be empty in most situations.
+     * @return the rows from the query which are likely to be empty in most situations.
      */
-    public ResultSet getResultSet() {
+    public QueryResult getResultSet() {
         return resultSet;
     }
 
-    public void setResultSet(ResultSet resultSet) {
+    public void setResultSet(QueryResult resultSet) {
         this.resultSet = resultSet;
     }
 
@@ -345,32 +368,13 @@ public class RepositoryQuery {
         // hence the need to loop through here.
         for(TypeWrapper unit : units) {
             String field = parts[1].split(" ")[0];
-            Optional<FieldDeclaration> x = unit.getType().getFieldByName(field);
+            Optional<EntityIndex.Field> x = EntityIndex.get(unit.getType()).getField(field);
             if(x.isPresent()) {
-                var member = x.get();
-                String lhs = null;
-                String rhs = null;
-
-                // find if there is a join column annotation, that will tell us the column names
-                // to map for the on clause.
-
-                for (var ann : member.getAnnotations()) {
-                    if (ann.getNameAsString().equals("JoinColumn")) {
-                        if (ann.isNormalAnnotationExpr()) {
-                            for (var pair : ann.asNormalAnnotationExpr().getPairs()) {
-                                if (pair.getNameAsString().equals("name")) {
-                                    lhs = RepositoryParser.camelToSnake(pair.getValue().toString());
-                                }
-                                if (pair.getNameAsString().equals("referencedColumnName")) {
-                                    rhs = RepositoryParser.camelToSnake(pair.getValue().toString());
-                                }
-                            }
-                        } else {
-                            lhs = RepositoryParser.camelToSnake(ann.asSingleMemberAnnotationExpr().getMemberValue().toString());
-                        }
-                        break;
-                    }
-                }
+                var member = x.get().declaration();
+
+                // a join column annotation will tell us the column names to map for the on clause.
+                String lhs = x.get().joinColumn();
+                String rhs = x.get().referencedColumn();
 
                 other = RepositoryParser.findEntity(member.getElementType());
 
@@ -411,16 +415,8 @@ public class RepositoryQuery {
     private static String implicitJoin(TypeWrapper other, String lhs) {
         // lets roll with an implicit join for now
         // todo fix this by figuring out the join column from other annotations
-        for(var column : other.getType().getFields()) {
-            for(var ann : column.getAnnotations()) {
-                if(ann.getNameAsString().equals("Id")) {
-                    lhs = RepositoryParser.camelToSnake(column.getVariable(0).getNameAsString());
-
-                    break;
-                }
-            }
-        }
-        return lhs;
+        String id = EntityIndex.get(other.getType()).getIdColumn();
+        return id == null ? lhs : id;
     }
 
     public void setEntityType(Type entityType) {
@@ -434,6 +430,12 @@ public class RepositoryQuery {
     public void setQuery(String query) {
         this.originalQuery = query;
         query = cleanUp(query);
+        String key = entityType + "|" + table + "|" + query;
+        Statement cached = parsedStatements.get(key);
+        if (cached != null) {
+            this.statement = cached;
+            return;
+        }
         try {
             this.statement = CCJSqlParserUtil.parse(query);
             TypeWrapper entity = RepositoryParser.findEntity(entityType);
@@ -443,9 +445,41 @@ public class RepositoryQuery {
         } catch (AntikytheraException e) {
             logger.debug(e.getMessage());
         }
+        if (statement != null) {
+            parsedStatements.put(key, statement);
+        }
     }
 
+    /**
+     * Build the statement with the minimal set of filters.
+     *
+     * Which filters are removed depends on the query, on the parameters of the repository method
+     * and on which of the arguments are literals. The result of simplifying is kept for each
+     * such combination and reused the next time the same method is called in the same way.
+     *
+     * @throws JSQLParserException if the query cannot be parsed
+     * @throws AntikytheraException if the entities used in joins cannot be found
+     */
     public void buildSimplifiedQuery() throws JSQLParserException, AntikytheraException {
+        String key = simplificationKey();
+        SimplifiedQuery cached = simplifiedQueries.get(key);
+        if (cached != null) {
+            this.simplifiedStatement = cached.statement();
+            for (int i = 0; i < methodParameters.size(); i++) {
+                ParameterMapping mapping = cached.parameters().get(i);
+                QueryMethodParameter p = methodParameters.get(i);
+                p.setColumnName(mapping.columnName());
+                p.setPlaceHolderId(new ArrayList<>(mapping.placeHolderIds()));
+                p.setRemoved(mapping.removed());
+            }
+            return;
+        }
+
+        for (QueryMethodParameter p : methodParameters) {
+            p.setColumnName(null);
+            p.setPlaceHolderId(new ArrayList<>());
+            p.setRemoved(false);
+        }
         this.simplifiedStatement = CCJSqlParserUtil.parse(cleanUp(this.originalQuery));
         TypeWrapper entity = RepositoryParser.findEntity(entityType);
         convertFieldsToSnakeCase(simplifiedStatement, entity);
@@ -453,6 +487,44 @@ public class RepositoryQuery {
         if (simplifiedStatement instanceof PlainSelect ps) {
             simplifyWhereClause(ps.getWhere());
         }
+
+        List<ParameterMapping> mappings = new ArrayList<>();
+        for (QueryMethodParameter p : methodParameters) {
+            mappings.add(new ParameterMapping(p.getColumnName(), List.copyOf(p.getPlaceHolderId()), p.isRemoved()));
+        }
+        simplifiedQueries.put(key, new SimplifiedQuery(simplifiedStatement, mappings));
+    }
+
+    private String simplificationKey() {
+        StringBuilder b = new StringBuilder();
+        if (methodDeclaration != null && methodDeclaration.isMethodDeclaration()) {
+            b.append(methodDeclaration.asMethodDeclaration().getDeclarationAsString());
+        }
+        b.append('|').append(entityType).append('|').append(table).append('|').append(originalQuery).append('|');
+        for (QueryMethodArgument arg : methodArguments) {
+            b.append(arg != null && arg.getArgument().isLiteralExpr() ? 'L' : 'V');
+        }
+        return b.toString();
+    }
+
+    /**
+     * Drop the statements that may have been converted with a class that is about to be compiled
+     * again. Column names come from the entity of the query and from the entities that it joins,
+     * which are not recorded, so all the statements are dropped when any entity changes.
+     * @param className the fully qualified name of the class
+     */
+    public static void forget(String className) {
+        if (EntityIndex.isEntity(className)) {
+            clearCache();
+        }
+    }
+
+    /**
+     * Forget the statements that were parsed so far.
+     */
+    public static void clearCache() {
+        parsedStatements.clear();
+        simplifiedQueries.clear();
     }
 
     public String getOriginalQuery() {
@@ -640,13 +712,25 @@ public class RepositoryQuery {
 
     /**
      * Sets the result set for the simplified query.
-     * It should already have advanced to the first row.
+     * It should contain at least one row.
      * @param resultSet the result set for the simplified query (the one with minimal filters)
      */
-    public void setSimplifedResultSet(ResultSet resultSet) {
+    public void setSimplifedResultSet(QueryResult resultSet) {
         this.simplifiedResultSet = resultSet;
     }
 
+    /**
+     * Get the candidate rows that give different values to the columns used as filters.
+     * @return the candidate rows or null if they have not been fetched
+     */
+    public QueryResult getCandidateResultSet() {
+        return candidateResultSet;
+    }
+
+    public void setCandidateResultSet(QueryResult candidateResultSet) {
+        this.candidateResultSet = candidateResultSet;
+    }
+
     public void setWriteOps(boolean b) {
         this.writeOps = b;
     }
@@ -2,10 +2,16 @@ package sa.com.cloudsolutions.antikythera.generator;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.github.javaparser.ast.CompilationUnit;
+import com.github.javaparser.ast.ImportDeclaration;
 import com.github.javaparser.ast.body.ClassOrInterfaceDeclaration;
+import com.github.javaparser.ast.body.ConstructorDeclaration;
+import com.github.javaparser.ast.body.FieldDeclaration;
+import com.github.javaparser.ast.body.TypeDeclaration;
 import org.springframework.http.ResponseEntity;
+import sa.com.cloudsolutions.antikythera.configuration.Settings;
 import sa.com.cloudsolutions.antikythera.evaluator.Precondition;
 import sa.com.cloudsolutions.antikythera.evaluator.Variable;
+import sa.com.cloudsolutions.antikythera.evaluator.mock.MockingRegistry;
 import sa.com.cloudsolutions.antikythera.parser.AbstractCompiler;
 
 import com.github.javaparser.ast.NodeList;
@@ -15,6 +21,7 @@ import com.github.javaparser.ast.body.Parameter;
 import com.github.javaparser.ast.body.VariableDeclarator;
 import com.github.javaparser.ast.expr.AnnotationExpr;
 import com.github.javaparser.ast.expr.AssignExpr;
+import com.github.javaparser.ast.expr.Expression;
 
 import com.github.javaparser.ast.expr.IntegerLiteralExpr;
 import com.github.javaparser.ast.expr.MethodCallExpr;
@@ -36,6 +43,7 @@ import sa.com.cloudsolutions.antikythera.parser.RestControllerParser;
 
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 
 /**
  * Test generator for spring applications.
@@ -62,9 +70,22 @@ import java.util.Map;
  * actions taken depend sorely on the query string or post body. Therefore, it's always necessary
  * for us to try methods without branching three times. The first time without any query strings,
  * Secondly with naive values and finally with values that will result in queries being executed.
+ *
+ * By default the tests extend TestHelper and send their requests to a running instance of the
+ * application. When the api_tests setting is {@value #MOCKMVC} they extend MockMvcHelper
+ * instead: the controller is set up on its own with MockMvc and the fields that it depends on
+ * are replaced with mocks, which are also registered with the MockingRegistry so that the
+ * evaluator records the Mockito.when() calls that the tests need.
  */
 public class SpringTestGenerator extends  TestGenerator {
     private static final Logger logger = LoggerFactory.getLogger(SpringTestGenerator.class);
+    public static final String MODE = "api_tests";
+    public static final String MOCKMVC = "mockmvc";
+
+    /**
+     * True if the tests are to be run in process with MockMvc
+     */
+    private final boolean mockMvc;
     /**
      * The URL path component common to all functions in a controller.
      */
@@ -77,8 +98,16 @@ public class SpringTestGenerator extends  TestGenerator {
         gen = new CompilationUnit();
         cu.getPackageDeclaration().ifPresent(gen::setPackageDeclaration);
 
+        mockMvc = isMockMvc();
         ClassOrInterfaceDeclaration cdecl =  gen.addClass(className);
-        cdecl.addExtendedType("TestHelper");
+        cdecl.addExtendedType(mockMvc ? "MockMvcHelper" : "TestHelper");
+    }
+
+    /**
+     * @return true if the controller tests should be generated for MockMvc
+     */
+    public static boolean isMockMvc() {
+        return MOCKMVC.equals(Settings.getProperty(MODE, String.class).orElse(null));
     }
 
     /**
@@ -157,9 +186,10 @@ public class SpringTestGenerator extends  TestGenerator {
             addQueryParams(makeGetCall, request, body);
         }
 
-        VariableDeclarationExpr responseVar = new VariableDeclarationExpr(new ClassOrInterfaceType(null, "Response"), "response");
+        VariableDeclarationExpr responseVar = new VariableDeclarationExpr(new ClassOrInterfaceType(null, responseType()), "response");
         AssignExpr assignExpr = new AssignExpr(responseVar, makeGetCall, AssignExpr.Operator.ASSIGN);
 
+        addWhens(body);
         body.addStatement(new ExpressionStmt(assignExpr));
 
         addCheckStatus(response);
@@ -167,6 +197,27 @@ public class SpringTestGenerator extends  TestGenerator {
 
     }
 
+    private String responseType() {
+        return mockMvc ? "MockMvcResponse" : "Response";
+    }
+
+    /**
+     * Add the Mockito.when() calls for the mocks that were used while evaluating the method.
+     * They only mean something when the controller is wired to the mocks.
+     */
+    private void addWhens(BlockStmt body) {
+        if (mockMvc) {
+            List<Expression> whenThen = getWhenThen();
+            for (Expression expr : whenThen) {
+                body.addStatement(expr);
+            }
+            whenThen.clear();
+            for (ImportDeclaration imp : getImports()) {
+                gen.addImport(imp);
+            }
+        }
+    }
+
     private  void addQueryParams(MethodCallExpr getCall, ControllerRequest request, BlockStmt body) {
         getCall.addArgument(new StringLiteralExpr(request.getPath()));
         if(!request.getQueryParameters().isEmpty()) {
@@ -264,8 +315,9 @@ public class SpringTestGenerator extends  TestGenerator {
 
         gen.getType(0).addMember(testMethod);
 
-        VariableDeclarationExpr responseVar = new VariableDeclarationExpr(new ClassOrInterfaceType(null, "Response"), "response");
+        VariableDeclarationExpr responseVar = new VariableDeclarationExpr(new ClassOrInterfaceType(null, responseType()), "response");
         AssignExpr assignExpr = new AssignExpr(responseVar, makePost, AssignExpr.Operator.ASSIGN);
+        addWhens(body);
         body.addStatement(new ExpressionStmt(assignExpr));
 
 
@@ -409,10 +461,12 @@ public class SpringTestGenerator extends  TestGenerator {
     MethodDeclaration buildTestMethod(MethodDeclaration md) {
         MethodDeclaration testMethod = super.buildTestMethod(md);
 
-        NormalAnnotationExpr testCaseTypeAnnotation = new NormalAnnotationExpr();
-        testCaseTypeAnnotation.setName("TestCaseType");
-        testCaseTypeAnnotation.addPair("types", "{TestType.BVT, TestType.REGRESSION}");
-        testMethod.addAnnotation(testCaseTypeAnnotation);
+        if (!mockMvc) {
+            NormalAnnotationExpr testCaseTypeAnnotation = new NormalAnnotationExpr();
+            testCaseTypeAnnotation.setName("TestCaseType");
+            testCaseTypeAnnotation.addPair("types", "{TestType.BVT, TestType.REGRESSION}");
+            testMethod.addAnnotation(testCaseTypeAnnotation);
+        }
 
         testMethod.addThrownException(JsonProcessingException.class);
 
@@ -509,6 +563,22 @@ public class SpringTestGenerator extends  TestGenerator {
         body.addStatement("objectMapper.configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);");
         md.setBody(body);
 
+        if (mockMvc) {
+            identifyFieldsToBeMocked();
+            TypeDeclaration<?> controller = AbstractCompiler.getPublicType(compilationUnitUnderTest);
+            String instanceName = AbstractCompiler.classToInstanceName(controller.getNameAsString());
+            gen.getType(0).addField(controller.getNameAsString(), instanceName).addAnnotation("InjectMocks");
+            body.addStatement("MockitoAnnotations.openMocks(this);");
+            body.addStatement("standaloneSetup(" + instanceName + ");");
+
+            gen.addImport("org.mockito.InjectMocks");
+            gen.addImport("org.mockito.Mock");
+            gen.addImport("org.mockito.Mockito");
+            gen.addImport("org.mockito.MockitoAnnotations");
+            gen.addImport("io.restassured.module.mockmvc.response.MockMvcResponse");
+            gen.addImport("sa.com.cloudsolutions.antikythera.base.MockMvcHelper");
+        }
+
         gen.getType(0).addMember(md);
         gen.addImport("com.fasterxml.jackson.databind.ObjectMapper");
         gen.addImport("com.fasterxml.jackson.databind.DeserializationFeature");
@@ -517,6 +587,50 @@ public class SpringTestGenerator extends  TestGenerator {
         gen.getType(0).addField("ObjectMapper", "objectMapper");
     }
 
+    /**
+     * Mock the fields of the controller that are injected by Spring.
+     * Those are the autowired fields and the ones that are set through the constructor. Final
+     * fields without an initializer are included as well because the constructor that sets
+     * them is usually generated by lombok. Nothing is mocked unless the tests are for MockMvc.
+     */
+    @Override
+    public void identifyFieldsToBeMocked() {
+        if (!mockMvc) {
+            return;
+        }
+        TypeDeclaration<?> controller = AbstractCompiler.getPublicType(compilationUnitUnderTest);
+        for (FieldDeclaration fd : controller.getFields()) {
+            if (fd.getAnnotationByName("Autowired").isPresent() ||
+                    (fd.isFinal() && !fd.isStatic() && fd.getVariable(0).getInitializer().isEmpty())) {
+                addMock(fd.getElementType(), fd.getVariable(0).getNameAsString(),
+                        AbstractCompiler.findTypesInVariable(fd.getVariable(0)));
+            }
+        }
+        for (ConstructorDeclaration constructor : controller.getConstructors()) {
+            for (Parameter param : constructor.getParameters()) {
+                addMock(param.getType(), param.getNameAsString(), AbstractCompiler.findTypesInVariable(param));
+            }
+        }
+    }
+
+    private void addMock(Type type, String name, List<TypeWrapper> wrappers) {
+        if (wrappers.isEmpty() || wrappers.stream().anyMatch(Objects::isNull)) {
+            logger.debug("Could not mock {} because its type is unknown", name);
+            return;
+        }
+        ClassOrInterfaceDeclaration suite = gen.getType(0).asClassOrInterfaceDeclaration();
+        if (suite.getFieldByName(name).isEmpty()) {
+            MockingRegistry.markAsMocked(MockingRegistry.generateRegistryKey(wrappers));
+            suite.addField(type, name).addAnnotation("Mock");
+            for (TypeWrapper wrapper : wrappers) {
+                ImportWrapper imp = AbstractCompiler.findImport(compilationUnitUnderTest, wrapper.getFullyQualifiedName());
+                if (imp != null) {
+                    gen.addImport(imp.getImport());
+                }
+            }
+        }
+    }
+
 
 }
 
@@ -8,10 +8,10 @@ import com.github.javaparser.ast.expr.Expression;
 import com.github.javaparser.ast.stmt.BlockStmt;
 import com.github.javaparser.ast.type.VoidType;
 import sa.com.cloudsolutions.antikythera.evaluator.ArgumentGenerator;
+import sa.com.cloudsolutions.antikythera.evaluator.EvaluationContext;
 import sa.com.cloudsolutions.antikythera.evaluator.Precondition;
 
 import java.io.IOException;
-import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
@@ -41,12 +41,10 @@ public abstract class TestGenerator {
 
     protected List<Precondition> preConditions;
 
-    static List<Expression> whenThen = new ArrayList<>();
-
     /**
-     * Static set of imports to allow MockingRegistry to make updates.
+     * The branches that were taken on the way to the response that the next test is for.
      */
-    static Set<ImportDeclaration> imports = new HashSet<>();
+    protected Set<String> coverage = Set.of();
 
     protected TestGenerator(CompilationUnit cu) {
 
@@ -54,15 +52,28 @@ public abstract class TestGenerator {
     }
 
     public static void addWhenThen(Expression expr) {
-        whenThen.add(expr);
+        EvaluationContext.current().getWhenThen().add(expr);
+    }
+
+    /**
+     * The when/then expressions that have been collected for the test being generated.
+     * They belong to the evaluation context of the current thread.
+     */
+    static List<Expression> getWhenThen() {
+        return EvaluationContext.current().getWhenThen();
     }
 
+    /**
+     * Add an import to the tests. The imports are kept in the evaluation context of the current
+     * thread to allow MockingRegistry to make updates.
+     * @param s the import declaration
+     */
     public static void addImport(ImportDeclaration s) {
-        imports.add(s);
+        EvaluationContext.current().getImports().add(s);
     }
 
     public static Set<ImportDeclaration> getImports() {
-        return imports;
+        return EvaluationContext.current().getImports();
     }
 
     protected String createTestName(MethodDeclaration md) {
@@ -166,6 +177,10 @@ public abstract class TestGenerator {
         asserter.setupImports(gen);
     }
 
+    public void setCoverage(Set<String> coverage) {
+        this.coverage = coverage;
+    }
+
     public void setPreConditions(List<Precondition> preConditions) {
         this.preConditions = preConditions;
     }
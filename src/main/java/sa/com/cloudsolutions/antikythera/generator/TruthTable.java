@@ -15,7 +15,9 @@ import sa.com.cloudsolutions.antikythera.evaluator.NumericComparator;
 import sa.com.cloudsolutions.antikythera.evaluator.Variable;
 
 import java.io.PrintStream;
+import java.util.AbstractList;
 import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -23,6 +25,9 @@ import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.TreeSet;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
 
 /**
  * <p>Generate (and print) truth tables for given conditionals</p>
@@ -59,9 +64,45 @@ public class TruthTable {
      */
     private final HashMap<Expression, List<Expression>> constraints;
     /**
-     * The matrix of values for the variables and the result of the condition
+     * The variables in the condition, indexed once. The position of a variable in this array is
+     * the index of its column in the truth table.
      */
-    private List<Map<Expression, Object>> table;
+    private Expression[] variableList = new Expression[0];
+    /**
+     * The domain of each variable, in the same order as the variableList
+     */
+    private List<Pair<Object, Object>> bounds = List.of();
+    /**
+     * The range of values for each numeric variable. Null for variables that have a two valued
+     * domain.
+     */
+    private Interval[] ranges;
+    /**
+     * Column storage for the numeric variables, one entry for each row of the truth table.
+     */
+    private int[][] numericColumns;
+    /**
+     * Column storage for the variables with a two valued domain. A set bit means that the row
+     * uses the upper bound of the domain and a clear bit means that it uses the lower bound.
+     */
+    private BitSet[] binaryColumns;
+    /**
+     * The result of the condition for each row of the truth table.
+     */
+    private BitSet results = new BitSet();
+    /**
+     * The number of rows in the truth table.
+     */
+    private int rowCount;
+
+    /**
+     * Bit patterns selecting the upper bound for the first six two valued variables, when 64
+     * rows are evaluated at once. The variable at position k alternates every 2^k rows.
+     */
+    private static final long[] SELECTORS = {
+            0xAAAAAAAAAAAAAAAAL, 0xCCCCCCCCCCCCCCCCL, 0xF0F0F0F0F0F0F0F0L,
+            0xFF00FF00FF00FF00L, 0xFFFF0000FFFF0000L, 0xFFFFFFFF00000000L
+    };
 
     /**
      * Should we consider null values when generating the truth table?
@@ -156,9 +197,8 @@ public class TruthTable {
         // Restore the original setting after domain adjustment
         this.allowNullInputs = oldState;
 
-        Expression[] variableList = variables.keySet().toArray(new Expression[0]);
-        table = new ArrayList<>();
-        generateCombinations(variableList);
+        variableList = variables.keySet().toArray(new Expression[0]);
+        generateCombinations();
     }
 
     /**
@@ -202,24 +242,222 @@ public class TruthTable {
 
     /**
      * Creates and fills the truth table.
-     * @param variableList all the variables in the conditional.
+     * When every variable is a boolean and there are no constraints, 64 rows are evaluated at a
+     * time with bitwise operations. Otherwise, the rows are evaluated one after the other.
      */
-    private void generateCombinations(Expression[] variableList) {
+    private void generateCombinations() {
         Map<Expression, Interval> numericRanges = collectNumericRanges(variableList);
-        int totalCombinations = calculateTotalCombinations(variableList, numericRanges);
-        table = new ArrayList<>();
+        int totalCombinations = Math.max(0, calculateTotalCombinations(variableList, numericRanges));
+
+        bounds = new ArrayList<>(variableList.length);
+        ranges = new Interval[variableList.length];
+        numericColumns = new int[variableList.length][];
+        binaryColumns = new BitSet[variableList.length];
+        for (int k = 0; k < variableList.length; k++) {
+            bounds.add(variables.get(variableList[k]));
+            ranges[k] = numericRanges.get(variableList[k]);
+            if (ranges[k] != null) {
+                numericColumns[k] = new int[totalCombinations];
+            } else {
+                binaryColumns[k] = new BitSet(totalCombinations);
+            }
+        }
+        results = new BitSet(totalCombinations);
+        rowCount = 0;
+
+        if (constraints.isEmpty() && hasOnlyBooleanDomains() && isBooleanOnly(condition)) {
+            generateBooleanCombinations(totalCombinations);
+        } else {
+            generateRowByRow(totalCombinations);
+        }
+    }
 
+    /**
+     * Evaluates the condition one row at a time.
+     * The rows that do not satisfy the constraints are discarded.
+     * @param totalCombinations the number of rows to consider
+     */
+    private void generateRowByRow(int totalCombinations) {
+        Map<Expression, Object> truthValues = new HashMap<>();
         for (int i = 0; i < totalCombinations; i++) {
-            Map<Expression, Object> truthValues = generateRowValues(variableList, numericRanges, i);
+            storeRow(i, rowCount);
+            readRow(rowCount, truthValues);
             // Only add combinations that satisfy all constraints
             if (satisfiesConstraints(truthValues)) {
                 Object result = evaluateCondition(condition, truthValues);
-                truthValues.put(RESULT, isTrue(result));
-                table.add(truthValues);
+                results.set(rowCount, isTrue(result));
+                rowCount++;
+            }
+        }
+    }
+
+    /**
+     * Evaluates a condition made up only of boolean variables, 64 rows at a time.
+     * Each long word holds one bit per row, so a single pass over the expression tree gives the
+     * result for all the rows in the word.
+     * @param totalCombinations the number of rows in the table
+     */
+    private void generateBooleanCombinations(int totalCombinations) {
+        int words = (totalCombinations + 63) >>> 6;
+        long[][] columns = new long[variableList.length][words];
+        long[] result = new long[words];
+        Map<Expression, Integer> index = new HashMap<>();
+        for (int k = 0; k < variableList.length; k++) {
+            index.put(variableList[k], k);
+        }
+
+        for (int w = 0; w < words; w++) {
+            for (int k = 0; k < variableList.length; k++) {
+                columns[k][w] = selectorWord(k, w);
+            }
+            result[w] = evaluateWord(condition, index, columns, w);
+        }
+
+        int tail = totalCombinations & 63;
+        if (tail != 0) {
+            long mask = (1L << tail) - 1;
+            result[words - 1] &= mask;
+            for (long[] column : columns) {
+                column[words - 1] &= mask;
+            }
+        }
+
+        for (int k = 0; k < variableList.length; k++) {
+            binaryColumns[k] = BitSet.valueOf(columns[k]);
+        }
+        results = BitSet.valueOf(result);
+        rowCount = totalCombinations;
+    }
+
+    /**
+     * The bits that select the upper bound of a two valued variable for 64 consecutive rows.
+     * @param k the index of the variable. Since all variables are two valued, its stride is 2^k
+     * @param word the index of the word, the first row in the word is 64 * word
+     * @return a long with a set bit for each row that takes the upper bound
+     */
+    private static long selectorWord(int k, int word) {
+        if (k < SELECTORS.length) {
+            return SELECTORS[k];
+        }
+        return ((((long) word << 6) >>> k) & 1) == 1 ? -1L : 0L;
+    }
+
+    private long evaluateWord(Expression expr, Map<Expression, Integer> index, long[][] columns, int word) {
+        if (expr.isEnclosedExpr()) {
+            return evaluateWord(expr.asEnclosedExpr().getInner(), index, columns, word);
+        }
+        if (expr.isUnaryExpr()) {
+            return ~evaluateWord(expr.asUnaryExpr().getExpression(), index, columns, word);
+        }
+        if (expr.isBinaryExpr()) {
+            BinaryExpr binaryExpr = expr.asBinaryExpr();
+            long left = evaluateWord(binaryExpr.getLeft(), index, columns, word);
+            long right = evaluateWord(binaryExpr.getRight(), index, columns, word);
+            return switch (binaryExpr.getOperator()) {
+                case AND -> left & right;
+                case OR -> left | right;
+                case EQUALS -> ~(left ^ right);
+                case NOT_EQUALS -> left ^ right;
+                default -> throw new UnsupportedOperationException("Unsupported operator: " + binaryExpr.getOperator());
+            };
+        }
+        if (expr.isBooleanLiteralExpr()) {
+            return expr.asBooleanLiteralExpr().getValue() ? -1L : 0L;
+        }
+        int k = index.get(expr);
+        return Boolean.TRUE.equals(bounds.get(k).b) ? columns[k][word] : ~columns[k][word];
+    }
+
+    private boolean hasOnlyBooleanDomains() {
+        for (Pair<Object, Object> p : bounds) {
+            if (!(p.a instanceof Boolean && p.b instanceof Boolean && !p.a.equals(p.b))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Can the expression be evaluated with bitwise operations?
+     * @param expr the condition or a part of it
+     * @return true if the expression is made up only of logical operators, boolean literals and
+     *      boolean variables.
+     */
+    private boolean isBooleanOnly(Expression expr) {
+        if (expr.isEnclosedExpr()) {
+            return isBooleanOnly(expr.asEnclosedExpr().getInner());
+        }
+        if (expr.isUnaryExpr()) {
+            return expr.asUnaryExpr().getOperator() == UnaryExpr.Operator.LOGICAL_COMPLEMENT
+                    && isBooleanOnly(expr.asUnaryExpr().getExpression());
+        }
+        if (expr.isBinaryExpr()) {
+            BinaryExpr.Operator op = expr.asBinaryExpr().getOperator();
+            return (op == BinaryExpr.Operator.AND || op == BinaryExpr.Operator.OR
+                    || op == BinaryExpr.Operator.EQUALS || op == BinaryExpr.Operator.NOT_EQUALS)
+                    && isBooleanOnly(expr.asBinaryExpr().getLeft())
+                    && isBooleanOnly(expr.asBinaryExpr().getRight());
+        }
+        if (expr.isBooleanLiteralExpr()) {
+            return true;
+        }
+        return (expr.isNameExpr() || expr.isFieldAccessExpr() || expr.isMethodCallExpr())
+                && variables.containsKey(expr);
+    }
+
+    /**
+     * <p>Writes the values for a single combination into the columns of the truth table.</p>
+     *
+     * <p>This method converts a numerical combination into specific values for each variable by:
+     * 1. For numeric variables (with extended domains):
+     *    - Uses modulo arithmetic to select a value within the variable's range
+     *    - Example: For range [0,5], combination 7 with product 2 gives (7/2)%6 = 3
+     * 2. For non-numeric variables (typically boolean or string):
+     *    - Uses binary choice (0 or 1) to select between lower and upper bounds
+     *    - Example: For boolean, combination 3 with product 2 gives (3/2)%2 = 1 -> true</p>
+     *
+     * <p>The 'product' variable maintains the stride length for each variable position, ensuring
+     * all possible combinations are covered systematically.</p>
+     *
+     * @param combination Current combination number being processed
+     * @param row the row in the columns to write to
+     */
+    private void storeRow(int combination, int row) {
+        int product = 1;
+
+        for (int k = 0; k < variableList.length; k++) {
+            Interval range = ranges[k];
+            if (range != null) {
+                numericColumns[k][row] = range.min + (combination / product) % range.width;
+                product *= range.width;
+            } else {
+                binaryColumns[k].set(row, ((combination / product) % 2) == 1);
+                product *= 2;
             }
         }
     }
 
+    /**
+     * Reads the values of the variables for a row of the truth table.
+     * @param row the index of the row
+     * @param truthValues the values will be placed in this map
+     */
+    private void readRow(int row, Map<Expression, Object> truthValues) {
+        for (int k = 0; k < variableList.length; k++) {
+            if (ranges[k] != null) {
+                truthValues.put(variableList[k], numericColumns[k][row]);
+            } else {
+                truthValues.put(variableList[k], binaryColumns[k].get(row) ? bounds.get(k).b : bounds.get(k).a);
+            }
+        }
+    }
+
+    private Map<Expression, Object> rowValues(int row) {
+        Map<Expression, Object> truthValues = new HashMap<>();
+        readRow(row, truthValues);
+        return truthValues;
+    }
+
     private boolean satisfiesConstraints(Map<Expression, Object> truthValues) {
         if (truthValues == null || truthValues.isEmpty()) {
             return false;
@@ -310,46 +548,6 @@ public class TruthTable {
         return numericRanges;
     }
 
-    /**
-     * <p>Generates values for each variable in a single row of the truth table.</p>
-     *
-     * <p>This method converts a numerical combination into specific values for each variable by:
-     * 1. For numeric variables (with extended domains):
-     *    - Uses modulo arithmetic to select a value within the variable's range
-     *    - Example: For range [0,5], combination 7 with product 2 gives (7/2)%6 = 3
-     * 2. For non-numeric variables (typically boolean or string):
-     *    - Uses binary choice (0 or 1) to select between lower and upper bounds
-     *    - Example: For boolean, combination 3 with product 2 gives (3/2)%2 = 1 -> true</p>
-     *
-     * <p>The 'product' variable maintains the stride length for each variable position, ensuring
-     * all possible combinations are covered systematically.</p>
-     *
-     * @param variableList Array of variables to assign values to
-     * @param domain Map of variables to their maximum values (for numeric variables)
-     * @param combination Current combination number being processed
-     * @return Map of variable expressions to their assigned values
-     */
-    private Map<Expression, Object> generateRowValues(Expression[] variableList,
-                                                      Map<Expression, Interval> domain, int combination) {
-        Map<Expression, Object> truthValues = new HashMap<>();
-        int product = 1;
-
-        for (Expression v : variableList) {
-            if (domain.containsKey(v)) {
-                Interval range = domain.get(v);
-                int value = range.min + (combination / product) % range.width;
-                truthValues.put(v, value);
-                product *= range.width;
-            } else {
-                Pair<Object, Object> bounds = variables.get(v);
-                boolean value = ((combination / product) % 2) == 1;
-                truthValues.put(v, value ? bounds.b : bounds.a);
-                product *= 2;
-            }
-        }
-        return truthValues;
-    }
-
     private void adjustDomain() {
         if (isDefaultDomain()) {
             int maxLiteral = findMaxIntegerLiteral();
@@ -488,6 +686,7 @@ public class TruthTable {
     private void writeTruthTable(PrintStream out) {
         out.println("Truth Table for condition: " + condition);
 
+        List<Map<Expression, Object>> table = getTable();
         if (!table.isEmpty()) {
             Map<Expression, Object> firstRow = table.get(0);
             final String FORMAT = "%-11s";
@@ -532,9 +731,7 @@ public class TruthTable {
         String state = desiredState ? "true" : "false";
         out.println("\nValues to make the condition " + state + " for: " + condition);
 
-        List<Map<Expression, Object>> values = findValuesForCondition(desiredState);
-
-        values.stream().findFirst().ifPresentOrElse(
+        streamValuesForCondition(desiredState).findFirst().ifPresentOrElse(
                 row -> {
                     // Sort the keys alphabetically
                     List<String> sortedKeys = row.keySet().stream()
@@ -558,21 +755,161 @@ public class TruthTable {
      * @return a list of maps containing the values that make the condition true or false
      */
     public List<Map<Expression, Object>> findValuesForCondition(boolean desiredState) {
+        return streamValuesForCondition(desiredState).toList();
+    }
+
+    /**
+     * Find at most limit combinations of values that make the condition true or false.
+     * @param desiredState either true or false
+     * @param limit the maximum number of combinations to return
+     * @return a list of maps containing the values that make the condition true or false
+     */
+    public List<Map<Expression, Object>> findValuesForCondition(boolean desiredState, int limit) {
+        return streamValuesForCondition(desiredState).limit(limit).toList();
+    }
+
+    /**
+     * Lazily stream the values that make the condition true or false.
+     * A map is created for a row only when the stream reaches it, so consumers that need just
+     * the first few combinations do not pay for the rest of the table.
+     * @param desiredState either true or false
+     * @return a stream of maps containing the values that make the condition true or false
+     */
+    public Stream<Map<Expression, Object>> streamValuesForCondition(boolean desiredState) {
+        IntStream rows = desiredState
+                ? IntStream.iterate(results.nextSetBit(0), i -> i >= 0 && i < rowCount, i -> results.nextSetBit(i + 1))
+                : IntStream.iterate(results.nextClearBit(0), i -> i < rowCount, i -> results.nextClearBit(i + 1));
+        return rows.mapToObj(this::rowValues);
+    }
+
+    /**
+     * Select a minimal set of rows that achieves modified condition/decision coverage for the
+     * whole condition.
+     * @return the selected rows, each including the RESULT column.
+     */
+    public List<Map<Expression, Object>> findMCDCValues() {
+        return findMCDCValues(condition);
+    }
+
+    /**
+     * <p>Select a minimal set of rows that achieves modified condition/decision coverage.</p>
+     *
+     * <p>Every atomic condition in the decision must be shown to independently affect the outcome.
+     * That needs a pair of rows in which only that atomic condition changes and the result changes
+     * along with it. When no such pair exists (for example because the same atomic condition is
+     * repeated) any pair where both the atomic condition and the result change is accepted.</p>
+     *
+     * <p>Pairs are picked greedily so that rows are shared between atomic conditions as much as
+     * possible, which typically gives n + 1 rows for n atomic conditions instead of 2^n.</p>
+     *
+     * @param decision the part of the condition whose atomic conditions need to be covered.
+     *                 Atomic conditions in the rest of the condition are held fixed by the pairs,
+     *                 so that this can be used for an if statement nested inside other guards.
+     * @return the selected rows in table order, each including the RESULT column.
+     */
+    public List<Map<Expression, Object>> findMCDCValues(Expression decision) {
+        List<Expression> atoms = new ArrayList<>();
+        collectAtoms(condition, atoms);
+        List<Expression> targets = new ArrayList<>();
+        collectAtoms(decision, targets);
+
+        if (atoms.isEmpty() || atoms.size() > 63) {
+            return List.of();
+        }
+
+        Map<Long, Integer> rowsByVector = new HashMap<>();
+        Map<Expression, Object> truthValues = new HashMap<>();
+        for (int row = 0; row < rowCount; row++) {
+            readRow(row, truthValues);
+            long vector = 0;
+            for (int i = 0; i < atoms.size(); i++) {
+                if (isTrue(evaluateCondition(atoms.get(i), truthValues))) {
+                    vector |= 1L << i;
+                }
+            }
+            rowsByVector.putIfAbsent(vector, row);
+        }
+
+        List<List<int[]>> candidates = new ArrayList<>();
+        for (Expression target : targets) {
+            int i = atoms.indexOf(target);
+            if (i >= 0) {
+                List<int[]> pairs = findIndependencePairs(rowsByVector, 1L << i);
+                if (!pairs.isEmpty()) {
+                    candidates.add(pairs);
+                }
+            }
+        }
+        candidates.sort((a, b) -> Integer.compare(a.size(), b.size()));
+
+        Set<Integer> selected = new TreeSet<>();
+        for (List<int[]> pairs : candidates) {
+            int[] best = pairs.getFirst();
+            int bestShared = -1;
+            for (int[] pair : pairs) {
+                int shared = (selected.contains(pair[0]) ? 1 : 0) + (selected.contains(pair[1]) ? 1 : 0);
+                if (shared > bestShared) {
+                    best = pair;
+                    bestShared = shared;
+                }
+            }
+            selected.add(best[0]);
+            selected.add(best[1]);
+        }
+
+        List<Map<Expression, Object>> table = getTable();
         List<Map<Expression, Object>> result = new ArrayList<>();
+        for (int row : selected) {
+            result.add(table.get(row));
+        }
+        return result;
+    }
 
-        for (Map<Expression, Object> row : table) {
-            if ((boolean) row.get(RESULT) == desiredState) {
-                Map<Expression, Object> copy = new HashMap<>();
-                for (Map.Entry<Expression, Object> entry : row.entrySet()) {
-                    if (!entry.getKey().equals(RESULT)) {
-                        copy.put(entry.getKey(), entry.getValue());
+    /**
+     * Find pairs of rows that show an atomic condition independently affecting the result.
+     * @param rowsByVector the first row for each combination of atomic condition values
+     * @param bit the bit of the atomic condition in the vectors
+     * @return pairs of row indexes; unique cause pairs if there are any, otherwise masking pairs.
+     */
+    private List<int[]> findIndependencePairs(Map<Long, Integer> rowsByVector, long bit) {
+        List<int[]> pairs = new ArrayList<>();
+        for (Map.Entry<Long, Integer> entry : rowsByVector.entrySet()) {
+            Integer other = rowsByVector.get(entry.getKey() ^ bit);
+            if ((entry.getKey() & bit) != 0 && other != null && results.get(entry.getValue()) != results.get(other)) {
+                pairs.add(new int[] {entry.getValue(), other});
+            }
+        }
+        if (pairs.isEmpty()) {
+            for (Map.Entry<Long, Integer> a : rowsByVector.entrySet()) {
+                for (Map.Entry<Long, Integer> b : rowsByVector.entrySet()) {
+                    if ((a.getKey() & bit) != 0 && (b.getKey() & bit) == 0
+                            && results.get(a.getValue()) != results.get(b.getValue())) {
+                        pairs.add(new int[] {a.getValue(), b.getValue()});
                     }
                 }
-                result.add(copy);
             }
         }
+        pairs.sort((a, b) -> a[0] != b[0] ? Integer.compare(a[0], b[0]) : Integer.compare(a[1], b[1]));
+        return pairs;
+    }
 
-        return result;
+    /**
+     * Collect the atomic conditions, that is the operands of the logical operators.
+     * @param expr the condition or a part of it
+     * @param atoms the distinct atomic conditions will be added to this list
+     */
+    private static void collectAtoms(Expression expr, List<Expression> atoms) {
+        if (expr.isEnclosedExpr()) {
+            collectAtoms(expr.asEnclosedExpr().getInner(), atoms);
+        } else if (expr.isUnaryExpr() && expr.asUnaryExpr().getOperator() == UnaryExpr.Operator.LOGICAL_COMPLEMENT) {
+            collectAtoms(expr.asUnaryExpr().getExpression(), atoms);
+        } else if (expr.isBinaryExpr() && (expr.asBinaryExpr().getOperator() == BinaryExpr.Operator.AND
+                || expr.asBinaryExpr().getOperator() == BinaryExpr.Operator.OR)) {
+            collectAtoms(expr.asBinaryExpr().getLeft(), atoms);
+            collectAtoms(expr.asBinaryExpr().getRight(), atoms);
+        } else if (!atoms.contains(expr)) {
+            atoms.add(expr);
+        }
     }
 
     /**
@@ -708,8 +1045,25 @@ private Object evaluateBinaryExpression(BinaryExpr binaryExpr, Map<Expression, O
         return truthValues.get(expr);
     }
 
+    /**
+     * The full truth table including the result column.
+     * The rows are created from the column storage only when they are accessed.
+     * @return a list of maps, one map for each row of the table.
+     */
     public List<Map<Expression, Object>> getTable() {
-        return table;
+        return new AbstractList<>() {
+            @Override
+            public Map<Expression, Object> get(int index) {
+                Map<Expression, Object> row = rowValues(index);
+                row.put(RESULT, results.get(index));
+                return row;
+            }
+
+            @Override
+            public int size() {
+                return rowCount;
+            }
+        };
     }
 
     public void addConstraint(NameExpr name, BinaryExpr constraint) {
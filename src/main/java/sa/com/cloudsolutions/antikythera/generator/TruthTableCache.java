@@ -0,0 +1,202 @@
+package sa.com.cloudsolutions.antikythera.generator;
+
+import com.github.javaparser.ast.expr.BinaryExpr;
+import com.github.javaparser.ast.expr.Expression;
+import com.github.javaparser.ast.expr.NameExpr;
+import sa.com.cloudsolutions.antikythera.configuration.Settings;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * <p>Run wide cache of truth tables.</p>
+ *
+ * The same guard conditions (x == null, list.isEmpty(), a != null &amp;&amp; b != null) show up
+ * in a great many methods. Instead of building a truth table from scratch for each of them,
+ * the condition is reduced to a canonical form where every name is replaced positionally with
+ * v0, v1, ... while literals, method names and operators are kept. Conditions with the same
+ * canonical form share one truth table, and the rows of that table are mapped back to the
+ * expressions of the caller.
+ *
+ * The cache holds at most truth_table_cache_size entries (from the settings) and evicts the
+ * least recently used table when it is full.
+ */
+public class TruthTableCache {
+    public static final int DEFAULT_SIZE = 1024;
+    private static final String CANONICAL_PREFIX = "v";
+
+    private static int maxSize = -1;
+    private static long hits;
+    private static long misses;
+    private static long evictions;
+
+    private static final LinkedHashMap<String, TruthTable> tables = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, TruthTable> eldest) {
+            if (size() > getMaxSize()) {
+                evictions++;
+                return true;
+            }
+            return false;
+        }
+    };
+
+    private TruthTableCache() {
+    }
+
+    /**
+     * Find the values that make the condition true or false
+     * @param condition the conditional expression
+     * @param desiredState either true or false
+     * @param limit the maximum number of combinations to return
+     * @return a list of maps containing the values, keyed by the expressions in the condition.
+     */
+    public static synchronized List<Map<Expression, Object>> findValuesForCondition(Expression condition, boolean desiredState, int limit) {
+        return findValuesForCondition(condition, List.of(), desiredState, limit);
+    }
+
+    /**
+     * Find the values that make the condition true or false
+     * @param condition the conditional expression
+     * @param constraints binary expressions that restrict the domain of the name on their left.
+     * @param desiredState either true or false
+     * @param limit the maximum number of combinations to return
+     * @return a list of maps containing the values, keyed by the expressions in the condition.
+     */
+    public static synchronized List<Map<Expression, Object>> findValuesForCondition(Expression condition, List<BinaryExpr> constraints,
+                                                                                    boolean desiredState, int limit) {
+        Map<String, String> names = new LinkedHashMap<>();
+        TruthTable tt = lookup(condition, constraints, names);
+
+        Map<String, String> reverse = reverse(names);
+        return tt.streamValuesForCondition(desiredState)
+                .limit(limit)
+                .map(row -> remap(row, condition, reverse))
+                .toList();
+    }
+
+    /**
+     * Select a minimal set of values that achieves modified condition/decision coverage.
+     * @param condition the conditional expression
+     * @param constraints binary expressions that restrict the domain of the name on their left.
+     * @param decision the part of the condition whose atomic conditions need to be covered
+     * @return the selected rows keyed by the expressions in the condition, including the
+     *      TruthTable.RESULT column
+     * @see TruthTable#findMCDCValues(Expression)
+     */
+    public static synchronized List<Map<Expression, Object>> findMCDCValues(Expression condition, List<BinaryExpr> constraints,
+                                                                            Expression decision) {
+        Map<String, String> names = new LinkedHashMap<>();
+        TruthTable tt = lookup(condition, constraints, names);
+        Expression canonicalDecision = rename(decision.clone(), names);
+
+        Map<String, String> reverse = reverse(names);
+        return tt.findMCDCValues(canonicalDecision).stream()
+                .map(row -> remap(row, condition, reverse))
+                .toList();
+    }
+
+    private static TruthTable lookup(Expression condition, List<BinaryExpr> constraints, Map<String, String> names) {
+        Expression canonical = rename(condition.clone(), names);
+        List<BinaryExpr> canonicalConstraints = new ArrayList<>();
+        for (BinaryExpr constraint : constraints) {
+            canonicalConstraints.add(rename(constraint.clone(), names).asBinaryExpr());
+        }
+
+        String key = canonical + " " + canonicalConstraints;
+        TruthTable tt = tables.get(key);
+        if (tt == null) {
+            misses++;
+            tt = new TruthTable(canonical);
+            for (BinaryExpr constraint : canonicalConstraints) {
+                if (constraint.getLeft().isNameExpr()) {
+                    tt.addConstraint(constraint.getLeft().asNameExpr(), constraint);
+                }
+            }
+            tt.generateTruthTable();
+            tables.put(key, tt);
+        } else {
+            hits++;
+        }
+        return tt;
+    }
+
+    private static Map<String, String> reverse(Map<String, String> names) {
+        Map<String, String> reverse = new HashMap<>();
+        names.forEach((original, replacement) -> reverse.put(replacement, original));
+        return reverse;
+    }
+
+    private static Map<Expression, Object> remap(Map<Expression, Object> row, Expression condition,
+                                                 Map<String, String> reverse) {
+        Map<Expression, Object> result = new HashMap<>();
+        for (Map.Entry<Expression, Object> entry : row.entrySet()) {
+            if (entry.getKey().equals(TruthTable.RESULT)) {
+                result.put(TruthTable.RESULT, entry.getValue());
+                continue;
+            }
+            Expression restored = rename(entry.getKey().clone(), reverse);
+            Expression original = condition.findFirst(Expression.class, restored::equals).orElse(restored);
+            result.put(original, entry.getValue());
+        }
+        return result;
+    }
+
+    /**
+     * Replace all the names in the expression.
+     * @param expr an expression that will be modified in place
+     * @param names a mapping from the current names to the replacements. A name that is not
+     *              already mapped will be given the next positional name.
+     * @return the modified expression
+     */
+    private static Expression rename(Expression expr, Map<String, String> names) {
+        List<NameExpr> nameExprs = expr.findAll(NameExpr.class);
+        for (NameExpr n : nameExprs) {
+            String replacement = names.computeIfAbsent(n.getNameAsString(), k -> CANONICAL_PREFIX + names.size());
+            n.setName(replacement);
+        }
+        return expr;
+    }
+
+    private static int getMaxSize() {
+        if (maxSize < 0) {
+            maxSize = Settings.getProperty("truth_table_cache_size", Integer.class).orElse(DEFAULT_SIZE);
+        }
+        return maxSize;
+    }
+
+    public static synchronized void setMaxSize(int size) {
+        maxSize = size;
+    }
+
+    public static synchronized void clear() {
+        tables.clear();
+        hits = 0;
+        misses = 0;
+        evictions = 0;
+    }
+
+    public static synchronized int size() {
+        return tables.size();
+    }
+
+    public static synchronized long getHits() {
+        return hits;
+    }
+
+    public static synchronized long getMisses() {
+        return misses;
+    }
+
+    public static synchronized long getEvictions() {
+        return evictions;
+    }
+
+    public static synchronized double getHitRate() {
+        long total = hits + misses;
+        return total == 0 ? 0 : (double) hits / total;
+    }
+}
@@ -50,9 +50,14 @@ import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * <p>Unit test generator.</p>
@@ -68,7 +73,20 @@ import java.util.Optional;
 public class UnitTestGenerator extends TestGenerator {
     private static final Logger logger = LoggerFactory.getLogger(UnitTestGenerator.class);
     public static final String TEST_NAME_SUFFIX = "AKTest";
+    /**
+     * Turns on the removal of tests that do not cover any branches that the other tests miss.
+     */
+    public static final String MINIMIZE = "minimize";
+    private static final AtomicInteger dropped = new AtomicInteger();
     private final String filePath;
+    /**
+     * The tests generated in this run for each method under test, in the order in which they
+     * were generated, along with the branches that they cover.
+     */
+    private final Map<MethodDeclaration, List<CoveringTest>> covered = new IdentityHashMap<>();
+
+    private record CoveringTest(MethodDeclaration test, Set<String> branches) {
+    }
 
     private boolean autoWired;
     private String instanceName;
@@ -239,6 +257,87 @@ public class UnitTestGenerator extends TestGenerator {
             String[] parts = invocation.split("=");
             assertThrows(parts.length == 2 ? parts[1] : parts[0], response);
         }
+        recordCoverage(md, response);
+    }
+
+    /**
+     * Note down the branches that the test that has just been generated covers.
+     * A test that ends in an exception is distinguished from one that returns normally.
+     */
+    private void recordCoverage(MethodDeclaration md, MethodResponse response) {
+        Set<String> branches = new LinkedHashSet<>(coverage);
+        if (response.getException() != null) {
+            branches.add("throws " + response.getException().getClass().getName());
+        }
+        covered.computeIfAbsent(md, k -> new ArrayList<>()).add(new CoveringTest(testMethod, branches));
+    }
+
+    /**
+     * Remove the tests that are not needed to cover the branches of the methods under test.
+     * The tests that were loaded from an existing file are not touched, and at least one test is
+     * kept for each method.
+     * @return the number of tests that were removed
+     */
+    int minimize() {
+        int removed = 0;
+        for (List<CoveringTest> tests : covered.values()) {
+            Set<Integer> keep = new HashSet<>(selectCovering(tests.stream().map(CoveringTest::branches).toList()));
+            List<CoveringTest> kept = new ArrayList<>();
+            for (int i = 0; i < tests.size(); i++) {
+                if (keep.contains(i)) {
+                    kept.add(tests.get(i));
+                } else {
+                    tests.get(i).test().remove();
+                    removed++;
+                }
+            }
+            tests.clear();
+            tests.addAll(kept);
+        }
+        return removed;
+    }
+
+    /**
+     * Greedily pick tests until together they cover everything that all of them cover.
+     * The test that adds the most branches that are not covered yet is picked each time; ties go to
+     * the test that was generated first. If none of the tests covers any branches, the first is
+     * picked.
+     * @param tests the branches covered by each test, in the order in which they were generated
+     * @return the positions of the tests to keep, in ascending order
+     */
+    static List<Integer> selectCovering(List<Set<String>> tests) {
+        Set<String> remaining = new HashSet<>();
+        tests.forEach(remaining::addAll);
+        Set<Integer> selected = new HashSet<>();
+        while (!remaining.isEmpty()) {
+            int best = -1;
+            int bestGain = 0;
+            for (int i = 0; i < tests.size(); i++) {
+                int gain = 0;
+                for (String branch : tests.get(i)) {
+                    if (remaining.contains(branch)) {
+                        gain++;
+                    }
+                }
+                if (gain > bestGain) {
+                    best = i;
+                    bestGain = gain;
+                }
+            }
+            selected.add(best);
+            remaining.removeAll(tests.get(best));
+        }
+        if (selected.isEmpty() && !tests.isEmpty()) {
+            selected.add(0);
+        }
+        return selected.stream().sorted().toList();
+    }
+
+    /**
+     * @return the number of tests that have been removed by minimization in all the generators
+     */
+    public static int getDropped() {
+        return dropped.get();
     }
 
     void addDependencies() {
@@ -251,6 +350,7 @@ public class UnitTestGenerator extends TestGenerator {
      * Deals with adding Mockito.when().then() type expressions to the generated tests.
      */
     private void addWhens() {
+        List<Expression> whenThen = getWhenThen();
         for (Expression expr : whenThen) {
             if (expr instanceof MethodCallExpr mce && skipWhenUsage(mce)) {
                 continue;
@@ -795,7 +895,15 @@ public class UnitTestGenerator extends TestGenerator {
 
     @Override
     public void save() throws IOException {
-        Antikythera.getInstance().writeFile(filePath, gen.toString());
+        if (Settings.getProperty(MINIMIZE, Boolean.class).orElse(false)) {
+            int removed = minimize();
+            if (removed > 0) {
+                dropped.addAndGet(removed);
+                logger.info("Dropped {} tests from {} that did not add to the branch coverage",
+                        removed, filePath);
+            }
+        }
+        Antikythera.getInstance().writeFile(filePath, gen);
     }
 
     static void replaceInitializer(MethodDeclaration method, String name, Expression initialization) {
@@ -0,0 +1,207 @@
+package sa.com.cloudsolutions.antikythera.generator;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import sa.com.cloudsolutions.antikythera.configuration.Settings;
+import sa.com.cloudsolutions.antikythera.evaluator.EvaluationContext;
+import sa.com.cloudsolutions.antikythera.parser.AbstractCompiler;
+import sa.com.cloudsolutions.antikythera.parser.ServicesParser;
+
+import java.io.IOException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <p>Generates the unit tests again whenever the sources of the application under test change.</p>
+ *
+ * Started by passing {@value #ARGUMENT} as the first argument. Tests are generated for all the
+ * services once, as in a normal run, and the classes that each of them depends on are taken from
+ * the dependency graph that was built for it. After that the base path is watched for changes.
+ * Only the files that have changed are parsed again, and their entries in the
+ * AntikytheraRunTime are replaced. Tests are then generated again just for the services that
+ * depend on any of the changed classes.
+ *
+ * Editors tend to write a file more than once when it is saved, and several files change at once
+ * when switching branches, so changes are collected until nothing more has happened for
+ * watch.debounce milliseconds (default {@value #DEFAULT_DEBOUNCE}). The time from the last of
+ * the files being saved to the tests having been written is logged.
+ */
+public class Watcher {
+    private static final Logger logger = LoggerFactory.getLogger(Watcher.class);
+
+    public static final String ARGUMENT = "--watch";
+    public static final String DEBOUNCE = "watch.debounce";
+    public static final long DEFAULT_DEBOUNCE = 300;
+
+    private final Collection<String> services;
+    /**
+     * The classes that each service depends on, including the service itself.
+     */
+    private final Map<String, Set<String>> dependencies = new LinkedHashMap<>();
+    private final Map<WatchKey, Path> directories = new LinkedHashMap<>();
+    private final Path base = Paths.get(Settings.getBasePath());
+    private WatchService watcher;
+
+    public Watcher(Collection<String> services) {
+        this.services = services;
+    }
+
+    /**
+     * Generate the tests and then keep generating them as the sources change.
+     * Returns only if the thread is interrupted.
+     * @throws IOException if the base path cannot be watched
+     */
+    public void watch() throws IOException {
+        for (Map.Entry<String, List<String[]>> target : Antikythera.findServices(services).entrySet()) {
+            generate(target.getKey(), target.getValue());
+        }
+
+        try (WatchService ws = FileSystems.getDefault().newWatchService()) {
+            watcher = ws;
+            register(base);
+            logger.info("Watching {} for changes", base);
+            long debounce = Settings.getProperty(DEBOUNCE, Number.class).map(Number::longValue).orElse(DEFAULT_DEBOUNCE);
+            while (!Thread.currentThread().isInterrupted()) {
+                Set<Path> changed = new LinkedHashSet<>();
+                collect(ws.take(), changed);
+                WatchKey key;
+                while ((key = ws.poll(debounce, TimeUnit.MILLISECONDS)) != null) {
+                    collect(key, changed);
+                }
+                if (!changed.isEmpty()) {
+                    update(changed);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void register(Path directory) throws IOException {
+        try (var paths = Files.walk(directory)) {
+            for (Path dir : paths.filter(Files::isDirectory).toList()) {
+                directories.put(dir.register(watcher, StandardWatchEventKinds.ENTRY_CREATE,
+                        StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_DELETE), dir);
+            }
+        }
+    }
+
+    /**
+     * Note down the java files that an event is about, and start watching new folders.
+     */
+    private void collect(WatchKey key, Set<Path> changed) throws IOException {
+        Path dir = directories.get(key);
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (dir == null || event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                continue;
+            }
+            Path path = dir.resolve((Path) event.context());
+            if (event.kind() == StandardWatchEventKinds.ENTRY_CREATE && Files.isDirectory(path)) {
+                register(path);
+                try (var paths = Files.walk(path)) {
+                    paths.filter(p -> p.toString().endsWith(AbstractCompiler.SUFFIX)).forEach(changed::add);
+                }
+            } else if (path.toString().endsWith(AbstractCompiler.SUFFIX)) {
+                changed.add(path);
+            }
+        }
+        if (!key.reset()) {
+            directories.remove(key);
+        }
+    }
+
+    /**
+     * Compile the changed files again and regenerate the tests for the services affected by them.
+     * @param changed the java files that have been created, modified or deleted
+     * @throws IOException if the tests cannot be written
+     */
+    void update(Set<Path> changed) throws IOException {
+        long saved = 0;
+        Set<String> classes = new HashSet<>();
+        for (Path path : changed) {
+            String relativePath = base.relativize(path).toString();
+            classes.add(AbstractCompiler.pathToClass(relativePath));
+            if (Files.exists(path)) {
+                saved = Math.max(saved, Files.getLastModifiedTime(path).toMillis());
+            }
+            try {
+                AbstractCompiler.recompile(relativePath);
+            } catch (IOException | RuntimeException e) {
+                logger.warn("Could not compile {}: {}", relativePath, e.getMessage());
+            }
+        }
+
+        Map<String, List<String[]>> targets = Antikythera.findServices(services);
+        Set<String> affected = affected(dependencies, classes);
+        for (String cls : classes) {
+            if (targets.containsKey(cls) && !dependencies.containsKey(cls)) {
+                affected.add(cls);
+            }
+        }
+        for (String cls : affected) {
+            List<String[]> parts = targets.get(cls);
+            if (parts == null) {
+                dependencies.remove(cls);
+            } else {
+                generate(cls, parts);
+            }
+        }
+        OutputWriter.flush();
+        if (saved == 0) {
+            saved = System.currentTimeMillis();
+        }
+        logger.info("{} files changed, regenerated tests for {} classes {} ms after they were saved",
+                changed.size(), affected.size(), System.currentTimeMillis() - saved);
+    }
+
+    /**
+     * Find the services that depend on any of the changed classes.
+     * @param dependencies the classes that each service depends on
+     * @param changed the names of the classes that have changed
+     * @return the services in the order in which they appear in the dependencies
+     */
+    static Set<String> affected(Map<String, Set<String>> dependencies, Set<String> changed) {
+        Set<String> affected = new LinkedHashSet<>();
+        for (Map.Entry<String, Set<String>> entry : dependencies.entrySet()) {
+            for (String cls : changed) {
+                if (entry.getValue().contains(cls)) {
+                    affected.add(entry.getKey());
+                    break;
+                }
+            }
+        }
+        return affected;
+    }
+
+    private void generate(String cls, List<String[]> parts) throws IOException {
+        EvaluationContext context = new EvaluationContext();
+        Set<String> dependsOn = new HashSet<>();
+        dependsOn.add(cls);
+        try {
+            List<ServicesParser> processors = new ArrayList<>();
+            for (String[] p : parts) {
+                processors.add(Antikythera.processService(cls, p, context));
+            }
+            Antikythera.writeFiles(processors);
+        } catch (RuntimeException e) {
+            logger.warn("Could not generate tests for {}", cls, e);
+        }
+        dependsOn.addAll(context.getDependencies().keySet());
+        dependencies.put(cls, dependsOn);
+    }
+}
@@ -916,6 +916,7 @@ public class AbstractCompiler {
     /**
      * Precompile all the java files in the base folder.
      * While doing so we will try to determine what interfaces are implemented by each class.
+     * The entities that are found make up the schema of the embedded database when it is in use.
      *
      * @throws IOException when the files cannot be precompiled.
      */
@@ -930,9 +931,36 @@ public class AbstractCompiler {
             for (File javaFile : javaFiles) {
                 InterfaceSolver solver = new InterfaceSolver();
                 solver.compile(Paths.get(Settings.getBasePath()).relativize(javaFile.toPath()).toString());
+                EntityIndex.index(solver.getCompilationUnit());
             }
 
         }
+        if (EmbeddedDatabase.isEnabled()) {
+            EmbeddedDatabase.createSchema();
+        }
+    }
+
+    /**
+     * Compile a file again after it has been changed, or forget it if it has been deleted.
+     * The compilation unit, the types, the interfaces and the entities that were found in the
+     * file the first time around are replaced.
+     *
+     * @param relativePath a path name relative to the base path of the application.
+     * @return the new compilation unit or null if the file no longer exists
+     * @throws IOException if the file cannot be compiled
+     */
+    public static CompilationUnit recompile(String relativePath) throws IOException {
+        AntikytheraRunTime.forget(pathToClass(relativePath));
+        if (!new File(Settings.getBasePath(), relativePath).exists()) {
+            return null;
+        }
+        InterfaceSolver solver = new InterfaceSolver();
+        solver.compile(relativePath);
+        EntityIndex.index(solver.getCompilationUnit());
+        if (EmbeddedDatabase.isEnabled()) {
+            solver.getCompilationUnit().getTypes().forEach(EmbeddedDatabase::createTable);
+        }
+        return solver.getCompilationUnit();
     }
 
     public static TypeDeclaration<?> getEnclosingType(Node n) {
@@ -0,0 +1,274 @@
+package sa.com.cloudsolutions.antikythera.parser;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import sa.com.cloudsolutions.antikythera.configuration.Settings;
+import sa.com.cloudsolutions.antikythera.generator.Antikythera;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <p>A small pool of database connections used to run the queries found in repositories.</p>
+ *
+ * Each connection keeps its own cache of prepared statements keyed by the SQL text, so that the
+ * same query executed over and over again while exploring the branches of a method is only
+ * prepared once. The following settings in the database section of the configuration are used:
+ * <ul>
+ *     <li>pool_size: the maximum number of connections. The default is one for each of the threads
+ *     that services are evaluated on plus one for the queries that are prefetched, and at
+ *     least {@value #DEFAULT_POOL_SIZE}</li>
+ *     <li>statement_cache_size: prepared statements kept open per connection (default 64)</li>
+ *     <li>query_timeout: seconds after which a query is abandoned, 0 for no limit (default 30)</li>
+ *     <li>fetch_size: the number of rows fetched in each round trip (default 100)</li>
+ *     <li>pool_timeout: seconds to wait for a connection when all of them are in use (default 30)</li>
+ * </ul>
+ *
+ * Executing a statement again would close the result set from its previous execution, so a
+ * cached statement is only handed out again once that result set has been closed. While it is
+ * still open, a new statement takes its place in the cache and the old one is closed when the
+ * pool is shut down. Evicting a statement from the cache closes it. The rows should be copied
+ * out with {@link QueryResult#materialize(java.sql.ResultSet)} before the connection is returned
+ * to the pool.
+ */
+public class ConnectionPool {
+    private static final Logger logger = LoggerFactory.getLogger(ConnectionPool.class);
+
+    public static final int DEFAULT_POOL_SIZE = 2;
+    public static final int DEFAULT_STATEMENT_CACHE_SIZE = 64;
+    public static final int DEFAULT_QUERY_TIMEOUT = 30;
+    public static final int DEFAULT_FETCH_SIZE = 100;
+    public static final int DEFAULT_POOL_TIMEOUT = 30;
+
+    /**
+     * Creates the underlying JDBC connections.
+     */
+    @FunctionalInterface
+    public interface ConnectionFactory {
+        Connection create() throws SQLException;
+    }
+
+    private static final Deque<PooledConnection> idle = new ArrayDeque<>();
+    private static final List<PooledConnection> all = new ArrayList<>();
+    private static ConnectionFactory factory = ConnectionPool::openConnection;
+
+    private ConnectionPool() {
+    }
+
+    /**
+     * Take a connection from the pool, opening a new one if none are idle.
+     * When all the connections are in use, waits for one of them to be returned.
+     * The connection should be closed after use, which returns it to the pool.
+     * @return a connection that is not being used by anyone else
+     * @throws SQLException if a new connection could not be established or none became free
+     *      within the pool timeout
+     */
+    public static synchronized PooledConnection acquire() throws SQLException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(getSetting("pool_timeout", DEFAULT_POOL_TIMEOUT));
+        while (true) {
+            PooledConnection pc = idle.poll();
+            while (pc != null && !pc.isValid()) {
+                all.remove(pc);
+                pc.shutdown();
+                pc = idle.poll();
+            }
+            if (pc != null) {
+                return pc;
+            }
+            if (all.size() < getPoolSize()) {
+                pc = new PooledConnection(factory.create());
+                all.add(pc);
+                return pc;
+            }
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0) {
+                throw new SQLException("All %d pooled connections are in use".formatted(all.size()));
+            }
+            try {
+                TimeUnit.NANOSECONDS.timedWait(ConnectionPool.class, remaining);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new SQLException("Interrupted while waiting for a connection", e);
+            }
+        }
+    }
+
+    private static synchronized void release(PooledConnection pc) {
+        if (all.contains(pc) && !idle.contains(pc)) {
+            idle.push(pc);
+            ConnectionPool.class.notifyAll();
+        }
+    }
+
+    /**
+     * Close all the statements and connections in the pool.
+     */
+    public static synchronized void shutdown() {
+        for (PooledConnection pc : all) {
+            pc.shutdown();
+        }
+        all.clear();
+        idle.clear();
+        ConnectionPool.class.notifyAll();
+    }
+
+    /**
+     * @return the maximum number of connections in the pool
+     */
+    public static int getPoolSize() {
+        int threads = Settings.getProperty(Antikythera.THREADS, Number.class).map(Number::intValue).orElse(1);
+        return getSetting("pool_size", Math.max(DEFAULT_POOL_SIZE, threads + 1));
+    }
+
+    public static synchronized int size() {
+        return all.size();
+    }
+
+    public static synchronized void setConnectionFactory(ConnectionFactory connectionFactory) {
+        shutdown();
+        factory = connectionFactory == null ? ConnectionPool::openConnection : connectionFactory;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Connection openConnection() throws SQLException {
+        if (EmbeddedDatabase.isEnabled()) {
+            return EmbeddedDatabase.connect();
+        }
+        Map<String, Object> db = (Map<String, Object>) Settings.getProperty("database");
+        if (db == null) {
+            throw new SQLException("No database has been configured");
+        }
+        Connection conn = DriverManager.getConnection(db.get("url").toString(),
+                db.get("user").toString(), db.get("password").toString());
+        if (db.get("schema") != null) {
+            try (java.sql.Statement statement = conn.createStatement()) {
+                statement.execute("ALTER SESSION SET CURRENT_SCHEMA = " + db.get("schema").toString());
+            }
+        }
+        return conn;
+    }
+
+    private static int getSetting(String name, int defaultValue) {
+        Object value = Settings.getProperty("database." + name);
+        return value == null ? defaultValue : Integer.parseInt(value.toString());
+    }
+
+    /**
+     * A connection borrowed from the pool along with its prepared statement cache.
+     */
+    public static class PooledConnection implements AutoCloseable {
+        private final Connection connection;
+        private final LinkedHashMap<String, PreparedStatement> statements;
+        /**
+         * Statements that were replaced in the cache while their result set was still in use.
+         */
+        private final List<PreparedStatement> detached = new ArrayList<>();
+
+        private PooledConnection(Connection connection) {
+            this.connection = connection;
+            int cacheSize = getSetting("statement_cache_size", DEFAULT_STATEMENT_CACHE_SIZE);
+            statements = new LinkedHashMap<>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, PreparedStatement> eldest) {
+                    if (size() > cacheSize) {
+                        closeQuietly(eldest.getValue());
+                        return true;
+                    }
+                    return false;
+                }
+            };
+        }
+
+        /**
+         * Find or create a prepared statement for the given SQL.
+         * The parameters of a cached statement are cleared before it is handed out. A cached
+         * statement whose last result set is still open is not reused, because executing it would
+         * close that result set under whoever is holding on to it.
+         * @param sql the query text which is also the key for the cache
+         * @return a prepared statement with the timeout and fetch size applied
+         * @throws SQLException if the statement could not be prepared
+         */
+        public PreparedStatement prepare(String sql) throws SQLException {
+            PreparedStatement prep = statements.get(sql);
+            if (prep != null && !prep.isClosed()) {
+                if (!hasOpenResult(prep)) {
+                    prep.clearParameters();
+                    return prep;
+                }
+                detached.add(prep);
+            }
+            prep = connection.prepareStatement(sql);
+            prep.setQueryTimeout(getSetting("query_timeout", DEFAULT_QUERY_TIMEOUT));
+            prep.setFetchSize(getSetting("fetch_size", DEFAULT_FETCH_SIZE));
+            statements.put(sql, prep);
+            return prep;
+        }
+
+        private static boolean hasOpenResult(PreparedStatement prep) {
+            try {
+                ResultSet rs = prep.getResultSet();
+                return rs != null && !rs.isClosed();
+            } catch (SQLException e) {
+                return true;
+            }
+        }
+
+        public Connection getConnection() {
+            return connection;
+        }
+
+        public int cachedStatements() {
+            return statements.size();
+        }
+
+        private boolean isValid() {
+            try {
+                return !connection.isClosed();
+            } catch (SQLException e) {
+                return false;
+            }
+        }
+
+        /**
+         * Returns the connection to the pool. The cached statements remain open.
+         */
+        @Override
+        public void close() {
+            release(this);
+        }
+
+        private void shutdown() {
+            for (PreparedStatement prep : statements.values()) {
+                closeQuietly(prep);
+            }
+            statements.clear();
+            for (PreparedStatement prep : detached) {
+                closeQuietly(prep);
+            }
+            detached.clear();
+            try {
+                connection.close();
+            } catch (SQLException e) {
+                logger.warn("Could not close connection: {}", e.getMessage());
+            }
+        }
+
+        private static void closeQuietly(PreparedStatement prep) {
+            try {
+                prep.close();
+            } catch (SQLException e) {
+                logger.warn("Could not close statement: {}", e.getMessage());
+            }
+        }
+    }
+}
@@ -7,6 +7,7 @@ import com.github.javaparser.ast.visitor.VoidVisitorAdapter;
 import sa.com.cloudsolutions.antikythera.depsolver.DepSolver;
 import sa.com.cloudsolutions.antikythera.depsolver.Graph;
 import sa.com.cloudsolutions.antikythera.evaluator.ArgumentGenerator;
+import sa.com.cloudsolutions.antikythera.evaluator.EvaluationContext;
 import sa.com.cloudsolutions.antikythera.evaluator.NullArgumentGenerator;
 import sa.com.cloudsolutions.antikythera.evaluator.SpringEvaluator;
 
@@ -15,44 +16,51 @@ import java.io.IOException;
 public abstract class DepsolvingParser {
     CompilationUnit cu;
     protected SpringEvaluator evaluator;
+    /**
+     * The evaluation context in which the methods are evaluated.
+     */
+    protected EvaluationContext context = EvaluationContext.current();
 
     public void start() throws IOException {
-        for(TypeDeclaration<?> decl : cu.getTypes()) {
-            DepSolver solver = DepSolver.createSolver();
-            decl.findAll(MethodDeclaration.class).forEach(md -> {
-                if (!md.isPrivate()) {
-                    Graph.createGraphNode(md);
+        context.run(() -> {
+            for (TypeDeclaration<?> decl : cu.getTypes()) {
+                DepSolver solver = DepSolver.createSolver();
+                decl.findAll(MethodDeclaration.class).forEach(md -> {
+                    if (!md.isPrivate()) {
+                        Graph.createGraphNode(md);
 
-                }
-            });
-            solver.dfs();
-        }
+                    }
+                });
+                solver.dfs();
+            }
+        });
     }
 
     public void start(String method) throws IOException{
-        for(TypeDeclaration<?> decl : cu.getTypes()) {
-            DepSolver solver = DepSolver.createSolver();
-            decl.findAll(MethodDeclaration.class).forEach(md -> {
-                if (!md.isPrivate() && md.getNameAsString().equals(method)) {
-                    Graph.createGraphNode(md);
-                }
-            });
-            solver.dfs();
-        }
-
-        cu.accept(new VoidVisitorAdapter<Void>() {
-            @Override
-            public void visit(MethodDeclaration md, Void arg) {
-                /*
-                 * I would gladly do this without a visitor, but discovered a bug in findAll()
-                 */
-                if (md.getNameAsString().equals(method)) {
-                    evaluateMethod(md, new NullArgumentGenerator());
-                }
-                super.visit(md, arg);
+        context.run(() -> {
+            for (TypeDeclaration<?> decl : cu.getTypes()) {
+                DepSolver solver = DepSolver.createSolver();
+                decl.findAll(MethodDeclaration.class).forEach(md -> {
+                    if (!md.isPrivate() && md.getNameAsString().equals(method)) {
+                        Graph.createGraphNode(md);
+                    }
+                });
+                solver.dfs();
             }
-        }, null);
 
+            cu.accept(new VoidVisitorAdapter<Void>() {
+                @Override
+                public void visit(MethodDeclaration md, Void arg) {
+                    /*
+                     * I would gladly do this without a visitor, but discovered a bug in findAll()
+                     */
+                    if (md.getNameAsString().equals(method)) {
+                        evaluateMethod(md, new NullArgumentGenerator());
+                    }
+                    super.visit(md, arg);
+                }
+            }, null);
+        });
     }
 
 
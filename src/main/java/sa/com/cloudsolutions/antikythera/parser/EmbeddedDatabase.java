@@ -0,0 +1,325 @@
+package sa.com.cloudsolutions.antikythera.parser;
+
+import com.github.javaparser.ast.body.FieldDeclaration;
+import com.github.javaparser.ast.body.TypeDeclaration;
+import com.github.javaparser.ast.body.VariableDeclarator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import sa.com.cloudsolutions.antikythera.configuration.Settings;
+import sa.com.cloudsolutions.antikythera.generator.TypeWrapper;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * <p>Runs the repository queries against an in process database instead of a remote one.</p>
+ *
+ * Turned on by setting database.embedded to true. The connection is then made to
+ * database.embedded_url, which defaults to an in memory H2 database in PostgreSQL mode, as
+ * database.embedded_user (default {@value #DEFAULT_USER}) with database.embedded_password
+ * (default empty). The user and password of the remote database are never sent to it. Queries
+ * are always executed in this mode, whatever the value of run_queries.
+ *
+ * The schema is built once the project has been preprocessed: a table is created for each entity
+ * in the {@link EntityIndex}, with a join column taking the type of the key that it refers to, and
+ * filled with database.embedded_rows rows (default {@value #DEFAULT_ROWS}). The rows are chosen so
+ * that conditions on them can go either way: booleans alternate, the last row has nulls in all the
+ * columns that are not part of the key, and columns listed under database.parameters take the
+ * value given there. When the truth table of a condition in the code under test needs a field of
+ * an entity to have a particular value, a row with that value is added with {@link #seed}.
+ */
+public class EmbeddedDatabase {
+    private static final Logger logger = LoggerFactory.getLogger(EmbeddedDatabase.class);
+
+    public static final String DEFAULT_URL = "jdbc:h2:mem:antikythera;MODE=PostgreSQL;DB_CLOSE_DELAY=-1";
+    public static final String DEFAULT_USER = "sa";
+    public static final int DEFAULT_ROWS = 10;
+
+    /**
+     * The number of rows in each of the tables that have already been created.
+     */
+    private static final Map<String, Integer> tables = new HashMap<>();
+    /**
+     * The table, field and value of each row that has been seeded.
+     */
+    private static final Set<String> seeded = new HashSet<>();
+
+    record Column(String name, String sqlType, boolean id) {
+    }
+
+    private EmbeddedDatabase() {
+    }
+
+    public static boolean isEnabled() {
+        Object value = Settings.getProperty("database.embedded");
+        return value != null && Boolean.parseBoolean(value.toString());
+    }
+
+    public static String getUrl() {
+        Object value = Settings.getProperty("database.embedded_url");
+        return value == null ? DEFAULT_URL : value.toString();
+    }
+
+    public static String getUser() {
+        Object value = Settings.getProperty("database.embedded_user");
+        return value == null ? DEFAULT_USER : value.toString();
+    }
+
+    private static String getPassword() {
+        Object value = Settings.getProperty("database.embedded_password");
+        return value == null ? "" : value.toString();
+    }
+
+    /**
+     * Open a connection to the embedded database.
+     * @return the connection
+     * @throws SQLException if there is no driver for the url or the database cannot be opened
+     */
+    static Connection connect() throws SQLException {
+        String url = getUrl();
+        try {
+            DriverManager.getDriver(url);
+        } catch (SQLException e) {
+            throw new SQLException("No JDBC driver found for the embedded database " + url
+                    + ", add the driver for database.embedded_url to the class path", e);
+        }
+        return DriverManager.getConnection(url, getUser(), getPassword());
+    }
+
+    private static int getRows() {
+        Object value = Settings.getProperty("database.embedded_rows");
+        return value == null ? DEFAULT_ROWS : Integer.parseInt(value.toString());
+    }
+
+    /**
+     * Create and fill the tables for all the entities that were found while preprocessing.
+     */
+    public static void createSchema() {
+        for (EntityIndex.Metadata metadata : EntityIndex.all()) {
+            createTable(metadata.getType());
+        }
+    }
+
+    /**
+     * Create and fill the table for an entity unless that has already been done.
+     * @param type the entity class, anything that is not annotated with Entity is ignored
+     */
+    public static synchronized void createTable(TypeDeclaration<?> type) {
+        if (type == null || type.getAnnotationByName("Entity").isEmpty()) {
+            return;
+        }
+        String name = EntityIndex.get(type).getTableName().replace("\"", "");
+        if (tables.containsKey(name.toUpperCase())) {
+            return;
+        }
+        List<Column> columns = columns(type);
+        if (columns.isEmpty()) {
+            return;
+        }
+
+        try (ConnectionPool.PooledConnection pc = ConnectionPool.acquire()) {
+            try (Statement stmt = pc.getConnection().createStatement()) {
+                stmt.execute(createTableSql(name, columns));
+            }
+            int rows = getRows();
+            try (PreparedStatement insert = pc.getConnection().prepareStatement(insertSql(name, columns))) {
+                for (int row = 0; row < rows; row++) {
+                    bind(insert, rowValues(columns, row, rows));
+                    insert.addBatch();
+                }
+                insert.executeBatch();
+            }
+            tables.put(name.toUpperCase(), rows);
+            logger.debug("Created embedded table {}", name);
+        } catch (SQLException e) {
+            logger.warn("Could not create embedded table {}: {}", name, e.getMessage());
+        }
+    }
+
+    /**
+     * Add a row in which a field of an entity has the given value, unless there already is one.
+     * The value is one that the truth table of a condition in the code under test needs, so that
+     * the next time the entity is loaded by a query the condition can go that way.
+     * @param type the entity class
+     * @param field the name of the field
+     * @param value the value that the field should have
+     */
+    public static synchronized void seed(TypeDeclaration<?> type, String field, Object value) {
+        if (type == null || type.getAnnotationByName("Entity").isEmpty()) {
+            return;
+        }
+        String name = EntityIndex.get(type).getTableName().replace("\"", "");
+        Integer rows = tables.get(name.toUpperCase());
+        Optional<EntityIndex.Field> f = EntityIndex.get(type).getField(field);
+        if (rows == null || f.isEmpty() || !seeded.add(name + "|" + field + "|" + value)) {
+            return;
+        }
+        List<Column> columns = columns(type);
+        List<Object> values = new ArrayList<>();
+        boolean found = false;
+        for (Column c : columns) {
+            if (!c.id() && c.name().equals(f.get().column())) {
+                values.add(value);
+                found = true;
+            } else {
+                values.add(generated(c, rows));
+            }
+        }
+        if (!found) {
+            return;
+        }
+
+        try (ConnectionPool.PooledConnection pc = ConnectionPool.acquire();
+             PreparedStatement insert = pc.getConnection().prepareStatement(insertSql(name, columns))) {
+            bind(insert, values);
+            insert.executeUpdate();
+            tables.put(name.toUpperCase(), rows + 1);
+            logger.debug("Seeded {}.{} with {}", name, field, value);
+        } catch (SQLException e) {
+            logger.warn("Could not seed embedded table {}: {}", name, e.getMessage());
+        }
+    }
+
+    private static void bind(PreparedStatement insert, List<Object> values) throws SQLException {
+        for (int i = 0; i < values.size(); i++) {
+            insert.setObject(i + 1, values.get(i));
+        }
+    }
+
+    /**
+     * Forget the tables that were created, for use after the database has been dropped.
+     */
+    public static synchronized void reset() {
+        tables.clear();
+        seeded.clear();
+    }
+
+    /**
+     * Work out the columns of the table for an entity from its metadata in the {@link EntityIndex}.
+     * Static and transient fields are left out, and so are the collection side of relationships.
+     */
+    static List<Column> columns(TypeDeclaration<?> type) {
+        EntityIndex.Metadata metadata = EntityIndex.get(type);
+        List<Column> columns = new ArrayList<>();
+        for (FieldDeclaration field : type.getFields()) {
+            if (field.isStatic() || field.isTransient() || field.getAnnotationByName("Transient").isPresent()
+                    || field.getAnnotationByName("OneToMany").isPresent()
+                    || field.getAnnotationByName("ManyToMany").isPresent()) {
+                continue;
+            }
+            boolean id = field.getAnnotationByName("Id").isPresent();
+            for (VariableDeclarator v : field.getVariables()) {
+                Optional<EntityIndex.Field> f = metadata.getField(v.getNameAsString());
+                if (f.isEmpty()) {
+                    continue;
+                }
+                if (field.getAnnotationByName("ManyToOne").isPresent() || field.getAnnotationByName("OneToOne").isPresent()) {
+                    String name = f.get().joinColumn() == null
+                            ? RepositoryParser.camelToSnake(v.getNameAsString()) + "_id"
+                            : f.get().joinColumn().replace("\"", "");
+                    columns.add(new Column(name, joinColumnType(v, f.get()), id));
+                } else {
+                    columns.add(new Column(f.get().column(), sqlType(v.getTypeAsString()), id));
+                }
+            }
+        }
+        return columns;
+    }
+
+    /**
+     * A join column has the type of the column that it refers to, which is the key of the related
+     * entity unless the JoinColumn annotation names another one. BIGINT is used when the related
+     * entity cannot be found.
+     */
+    private static String joinColumnType(VariableDeclarator v, EntityIndex.Field field) {
+        TypeWrapper related = RepositoryParser.findEntity(v.getType());
+        if (related != null && related.getType() != null) {
+            EntityIndex.Metadata metadata = EntityIndex.get(related.getType());
+            String referenced = field.referencedColumn() == null
+                    ? metadata.getIdColumn() : field.referencedColumn().replace("\"", "");
+            if (referenced != null) {
+                Optional<EntityIndex.Field> key = metadata.getFieldByColumn(referenced);
+                if (key.isPresent()) {
+                    return sqlType(key.get().declaration().getElementType().asString());
+                }
+            }
+        }
+        return "BIGINT";
+    }
+
+    private static String sqlType(String javaType) {
+        return switch (javaType) {
+            case "Long", "long", "BigInteger" -> "BIGINT";
+            case "Integer", "int", "Short", "short", "Byte", "byte" -> "INTEGER";
+            case "Double", "double", "Float", "float" -> "DOUBLE PRECISION";
+            case "BigDecimal" -> "DECIMAL(19,4)";
+            case "Boolean", "boolean" -> "BOOLEAN";
+            case "LocalDate" -> "DATE";
+            case "Date", "LocalDateTime", "Timestamp", "Instant", "ZonedDateTime", "OffsetDateTime" -> "TIMESTAMP";
+            default -> "VARCHAR(255)";
+        };
+    }
+
+    static String createTableSql(String table, List<Column> columns) {
+        StringBuilder sql = new StringBuilder("CREATE TABLE IF NOT EXISTS ").append(table).append(" (");
+        sql.append(columns.stream().map(c -> c.name() + " " + c.sqlType()).collect(Collectors.joining(", ")));
+        List<String> keys = columns.stream().filter(Column::id).map(Column::name).toList();
+        if (!keys.isEmpty()) {
+            sql.append(", PRIMARY KEY (").append(String.join(", ", keys)).append(")");
+        }
+        return sql.append(")").toString();
+    }
+
+    static String insertSql(String table, List<Column> columns) {
+        return "INSERT INTO " + table + " (" +
+                columns.stream().map(Column::name).collect(Collectors.joining(", ")) +
+                ") VALUES (" +
+                columns.stream().map(c -> "?").collect(Collectors.joining(", ")) + ")";
+    }
+
+    static List<Object> rowValues(List<Column> columns, int row, int rows) {
+        Map<?, ?> parameters = Settings.getProperty("database.parameters", Map.class).orElse(Map.of());
+        List<Object> values = new ArrayList<>();
+        for (Column c : columns) {
+            if (!c.id() && rows > 1 && row == rows - 1) {
+                values.add(null);
+                continue;
+            }
+            Object configured = parameters.get(c.name());
+            if (configured != null && !c.id()) {
+                values.add(configured);
+                continue;
+            }
+            values.add(generated(c, row));
+        }
+        return values;
+    }
+
+    private static Object generated(Column c, int row) {
+        return switch (c.sqlType()) {
+            case "BIGINT" -> (long) row + 1;
+            case "INTEGER" -> row + 1;
+            case "DOUBLE PRECISION" -> (row + 1) * 1.5;
+            case "DECIMAL(19,4)" -> BigDecimal.valueOf((row + 1) * 15L, 1);
+            case "BOOLEAN" -> row % 2 == 0;
+            case "DATE" -> Date.valueOf(LocalDate.of(2024, 1, 1).plusDays(row));
+            case "TIMESTAMP" -> Timestamp.valueOf(LocalDate.of(2024, 1, 1).plusDays(row).atStartOfDay());
+            default -> c.name() + "_" + (row + 1);
+        };
+    }
+}
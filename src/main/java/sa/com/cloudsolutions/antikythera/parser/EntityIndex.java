@@ -0,0 +1,263 @@
+package sa.com.cloudsolutions.antikythera.parser;
+
+import com.github.javaparser.ast.CompilationUnit;
+import com.github.javaparser.ast.body.FieldDeclaration;
+import com.github.javaparser.ast.body.TypeDeclaration;
+import com.github.javaparser.ast.body.VariableDeclarator;
+import com.github.javaparser.ast.expr.AnnotationExpr;
+import com.github.javaparser.ast.type.Type;
+import sa.com.cloudsolutions.antikythera.evaluator.AntikytheraRunTime;
+import sa.com.cloudsolutions.antikythera.generator.TypeWrapper;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Supplier;
+
+/**
+ * <p>Table names, columns, keys and join columns of the entities in the project.</p>
+ *
+ * Parsing a repository query involves finding the entity, its table and, for each join, the
+ * related entity along with the columns that the join is made on. All of that is worked out from
+ * the annotations on the entity, and the same entities turn up in query after query. The
+ * entities are indexed while the project is being preprocessed and anything that is not found in
+ * the index is added to it the first time that it is looked up.
+ */
+public class EntityIndex {
+    /**
+     * The metadata for each entity keyed by its fully qualified name.
+     */
+    private static final Map<String, Metadata> entities = new HashMap<>();
+    /**
+     * The entity that a type refers to, by the compilation unit in which the type appears and
+     * the name of the type. Compilation units are compared by identity, because their equals
+     * method compares the whole tree.
+     */
+    private static final Map<CompilationUnit, Map<String, TypeWrapper>> resolved = new IdentityHashMap<>();
+
+    /**
+     * A field of an entity.
+     * @param declaration the field declaration
+     * @param column the column that the field is mapped to
+     * @param joinColumn the name given by a JoinColumn annotation, converted to snake case, or null
+     * @param referencedColumn the referencedColumnName of a JoinColumn annotation or null
+     */
+    public record Field(FieldDeclaration declaration, String column, String joinColumn, String referencedColumn) {
+    }
+
+    /**
+     * What is known about an entity.
+     */
+    public static class Metadata {
+        private final TypeDeclaration<?> type;
+        private final String tableName;
+        private final Map<String, Field> fields = new HashMap<>();
+        private final List<String> idColumns = new ArrayList<>();
+
+        Metadata(TypeDeclaration<?> type) {
+            this.type = type;
+            this.tableName = tableName(type);
+            for (FieldDeclaration fd : type.getFields()) {
+                String joinColumn = null;
+                String referencedColumn = null;
+                Optional<AnnotationExpr> join = fd.getAnnotationByName("JoinColumn");
+                if (join.isPresent()) {
+                    if (join.get().isNormalAnnotationExpr()) {
+                        for (var pair : join.get().asNormalAnnotationExpr().getPairs()) {
+                            if (pair.getNameAsString().equals("name")) {
+                                joinColumn = RepositoryParser.camelToSnake(pair.getValue().toString());
+                            }
+                            if (pair.getNameAsString().equals("referencedColumnName")) {
+                                referencedColumn = RepositoryParser.camelToSnake(pair.getValue().toString());
+                            }
+                        }
+                    } else if (join.get().isSingleMemberAnnotationExpr()) {
+                        joinColumn = RepositoryParser.camelToSnake(
+                                join.get().asSingleMemberAnnotationExpr().getMemberValue().toString());
+                    }
+                }
+                for (VariableDeclarator v : fd.getVariables()) {
+                    String column = columnName(fd).orElse(RepositoryParser.camelToSnake(v.getNameAsString()));
+                    fields.put(v.getNameAsString(), new Field(fd, column, joinColumn, referencedColumn));
+                    if (fd.getAnnotationByName("Id").isPresent()) {
+                        idColumns.add(column);
+                    }
+                }
+            }
+        }
+
+        public TypeDeclaration<?> getType() {
+            return type;
+        }
+
+        public String getTableName() {
+            return tableName;
+        }
+
+        public Optional<Field> getField(String name) {
+            return Optional.ofNullable(fields.get(name));
+        }
+
+        /**
+         * @param column the name of a column in the table of the entity
+         * @return the field that is mapped to the column
+         */
+        public Optional<Field> getFieldByColumn(String column) {
+            return fields.values().stream().filter(f -> f.column().equalsIgnoreCase(column)).findFirst();
+        }
+
+        /**
+         * @return the column of the field annotated with Id or null if there isn't one
+         */
+        public String getIdColumn() {
+            return idColumns.isEmpty() ? null : idColumns.getFirst();
+        }
+    }
+
+    private EntityIndex() {
+    }
+
+    /**
+     * Add the entities declared in a compilation unit to the index.
+     * @param cu a compilation unit that may contain entities
+     */
+    public static synchronized void index(CompilationUnit cu) {
+        if (cu == null) {
+            return;
+        }
+        for (TypeDeclaration<?> type : cu.getTypes()) {
+            if (type.getAnnotationByName("Entity").isPresent()) {
+                entities.put(key(type), new Metadata(type));
+            }
+        }
+    }
+
+    /**
+     * Find the metadata for an entity, adding it to the index if need be.
+     * The metadata is built again if the type has been parsed again since it was indexed. A
+     * type that has since been replaced by a newer compilation of the same class still gets its
+     * metadata, but that does not take the place of the metadata of the newer type.
+     * @param type the entity
+     * @return the metadata
+     */
+    public static synchronized Metadata get(TypeDeclaration<?> type) {
+        String key = key(type);
+        Metadata metadata = entities.get(key);
+        if (metadata != null && metadata.type == type) {
+            return metadata;
+        }
+        Metadata fresh = new Metadata(type);
+        TypeDeclaration<?> current = AntikytheraRunTime.getTypeDeclaration(key).orElse(null);
+        if (metadata == null || current == null || current == type) {
+            entities.put(key, fresh);
+        }
+        return fresh;
+    }
+
+    /**
+     * Find the entity that a type refers to.
+     * @param type the type as it appears in a compilation unit
+     * @param resolver looks up the entity when it has not been seen before
+     * @return the entity or null if the type is not part of a compilation unit
+     */
+    static TypeWrapper resolve(Type type, Supplier<TypeWrapper> resolver) {
+        Optional<CompilationUnit> cu = type.findCompilationUnit();
+        if (cu.isEmpty()) {
+            return null;
+        }
+        String key = type.asString();
+        synchronized (EntityIndex.class) {
+            TypeWrapper wrapper = resolved.getOrDefault(cu.get(), Map.of()).get(key);
+            if (wrapper != null) {
+                return wrapper;
+            }
+        }
+        TypeWrapper wrapper = resolver.get();
+        if (wrapper != null) {
+            synchronized (EntityIndex.class) {
+                resolved.computeIfAbsent(cu.get(), k -> new HashMap<>()).put(key, wrapper);
+            }
+        }
+        return wrapper;
+    }
+
+    /**
+     * @param className the fully qualified name of a class
+     * @return true if the class or one of its nested classes is an entity in the index
+     */
+    public static synchronized boolean isEntity(String className) {
+        String nested = className + ".";
+        return entities.keySet().stream().anyMatch(k -> k.equals(className) || k.startsWith(nested));
+    }
+
+    /**
+     * Drop everything that was worked out from a class, so that it is looked up again once the
+     * class has been compiled again. That is the metadata of the class if it is an entity, the
+     * types resolved in its compilation unit and the places where other compilation units
+     * resolved a type to it.
+     * @param className the fully qualified name of the class
+     */
+    public static synchronized void forget(String className) {
+        String nested = className + ".";
+        entities.keySet().removeIf(k -> k.equals(className) || k.startsWith(nested));
+        resolved.keySet().removeIf(cu -> cu.getTypes().stream()
+                .map(EntityIndex::key).anyMatch(k -> k.equals(className) || k.startsWith(nested)));
+        for (Map<String, TypeWrapper> types : resolved.values()) {
+            types.values().removeIf(w -> w.getType() != null
+                    && (key(w.getType()).equals(className) || key(w.getType()).startsWith(nested)));
+        }
+    }
+
+    /**
+     * @return the metadata of every entity in the index
+     */
+    static synchronized List<Metadata> all() {
+        return new ArrayList<>(entities.values());
+    }
+
+    public static synchronized int size() {
+        return entities.size();
+    }
+
+    public static synchronized void clear() {
+        entities.clear();
+        resolved.clear();
+    }
+
+    private static String key(TypeDeclaration<?> type) {
+        return type.getFullyQualifiedName().orElse(type.getNameAsString());
+    }
+
+    private static Optional<String> columnName(FieldDeclaration fd) {
+        Optional<AnnotationExpr> ann = fd.getAnnotationByName("Column");
+        if (ann.isPresent() && ann.get().isNormalAnnotationExpr()) {
+            for (var pair : ann.get().asNormalAnnotationExpr().getPairs()) {
+                if (pair.getNameAsString().equals("name")) {
+                    return Optional.of(pair.getValue().toString().replace("\"", ""));
+                }
+            }
+        }
+        return Optional.empty();
+    }
+
+    private static String tableName(TypeDeclaration<?> type) {
+        Optional<AnnotationExpr> ann = type.getAnnotationByName("Table");
+        if (ann.isPresent()) {
+            String table = null;
+            if (ann.get().isNormalAnnotationExpr()) {
+                for (var pair : ann.get().asNormalAnnotationExpr().getPairs()) {
+                    if (pair.getNameAsString().equals("name")) {
+                        table = pair.getValue().toString().replace("\"", "");
+                    }
+                }
+            } else {
+                table = ann.get().asSingleMemberAnnotationExpr().getMemberValue().toString().replace("\"", "");
+            }
+            return table;
+        }
+        return RepositoryParser.camelToSnake(type.getNameAsString());
+    }
+}
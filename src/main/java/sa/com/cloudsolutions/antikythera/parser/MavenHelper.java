@@ -9,15 +9,12 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import sa.com.cloudsolutions.antikythera.configuration.Settings;
 import sa.com.cloudsolutions.antikythera.exception.AntikytheraException;
+import sa.com.cloudsolutions.antikythera.generator.OutputWriter;
 
-import java.io.File;
-import java.io.FileOutputStream;
 import java.io.FileReader;
-import java.io.FileWriter;
 import java.io.IOException;
 import java.io.InputStream;
-import java.nio.channels.Channels;
-import java.nio.channels.FileChannel;
+import java.io.StringWriter;
 import java.nio.file.DirectoryStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
@@ -89,7 +86,9 @@ public class MavenHelper {
             }
 
             MavenXpp3Writer writer = new MavenXpp3Writer();
-            writer.write(new FileWriter(destinationPath.toFile()), templateModel);
+            StringWriter pom = new StringWriter();
+            writer.write(pom, templateModel);
+            OutputWriter.write(destinationPath, pom.toString());
         }
     }
 
@@ -103,14 +102,11 @@ public class MavenHelper {
      */
     public void copyTemplate(String filename, String... subPath) throws IOException {
         Path destinationPath = Path.of(Settings.getOutputPath(), subPath);     // Path where template file should be copied into
-        Files.createDirectories(destinationPath);
-        try (InputStream sourceStream = getClass().getClassLoader().getResourceAsStream("templates/" + filename);
-             FileOutputStream destStream = new FileOutputStream(destinationPath + File.separator + filename);
-             FileChannel destChannel = destStream.getChannel()) {
+        try (InputStream sourceStream = getClass().getClassLoader().getResourceAsStream("templates/" + filename)) {
             if (sourceStream == null) {
                 throw new IOException("Template file not found");
             }
-            destChannel.transferFrom(Channels.newChannel(sourceStream), 0, Long.MAX_VALUE);
+            OutputWriter.write(destinationPath.resolve(filename), sourceStream.readAllBytes());
         }
     }
 
@@ -0,0 +1,249 @@
+package sa.com.cloudsolutions.antikythera.parser;
+
+import net.sf.jsqlparser.JSQLParserException;
+import net.sf.jsqlparser.expression.LongValue;
+import net.sf.jsqlparser.parser.CCJSqlParserUtil;
+import net.sf.jsqlparser.statement.Statement;
+import net.sf.jsqlparser.statement.select.Fetch;
+import net.sf.jsqlparser.statement.select.Limit;
+import net.sf.jsqlparser.statement.select.Select;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import sa.com.cloudsolutions.antikythera.configuration.Settings;
+
+import java.security.SecureRandom;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * <p>Keeps the queries that are sent to the database from scanning whole tables.</p>
+ *
+ * The simplified queries have most of their filters removed, and on a large schema they can take
+ * minutes to run. Only the first few rows are ever looked at (see {@link QueryResult}), so every
+ * select is rewritten to ask the database for no more than database.max_rows + 1 rows; the extra
+ * row tells us that the result was truncated. Oracle gets a FETCH FIRST clause and PostgreSQL a
+ * LIMIT. A limit that is already present in the query is kept if it is smaller.
+ *
+ * When database.max_cost is set, the planner's estimate for a query is looked up with EXPLAIN
+ * before the query is run, and queries that are estimated to cost more than that are skipped.
+ * The estimate is only looked up the first time a query is seen.
+ *
+ * The rewritten sql and the estimates are kept in caches that hold at most
+ * database.limit_cache_size entries each (default {@value #DEFAULT_CACHE_SIZE}) and evict the
+ * least recently used entry when they are full.
+ */
+public class QueryLimits {
+    private static final Logger logger = LoggerFactory.getLogger(QueryLimits.class);
+    private static final Pattern PG_COST = Pattern.compile("cost=[\\d.]+\\.\\.([\\d.]+)");
+    /**
+     * Oracle keeps the plans in a plan_table that other sessions, and other runs of the tool, may
+     * be writing to at the same time. Each EXPLAIN gets a statement id of its own, made of a
+     * random prefix chosen once per process and a counter, short enough for the 30 characters
+     * that the statement_id column allows.
+     */
+    private static final String STATEMENT_PREFIX = "ak" + Long.toString(new SecureRandom().nextLong() & Long.MAX_VALUE, 36);
+    private static final AtomicLong statements = new AtomicLong();
+
+    public static final int DEFAULT_CACHE_SIZE = 1024;
+
+    /**
+     * The sql with the row limit added, keyed by the dialect, the limit and the original sql.
+     */
+    private static final Map<String, String> limited = new Lru<>();
+    /**
+     * The cost estimated by the planner, keyed by the dialect and the sql. -1 when the query
+     * could not be explained.
+     */
+    private static final Map<String, Double> costs = new Lru<>();
+
+    /**
+     * Binds the arguments of a query to a prepared statement.
+     */
+    public interface Binder {
+        void bind(PreparedStatement statement) throws SQLException;
+    }
+
+    private QueryLimits() {
+    }
+
+    /**
+     * Add a row limit to a select statement.
+     * @param sql the sql with jdbc placeholders
+     * @param oracle true if the database is oracle
+     * @return the sql with a row limit or the sql unchanged if it is not a select that could be parsed
+     */
+    public static String limit(String sql, boolean oracle) {
+        long rows = QueryResult.getMaxRows() + 1L;
+        String key = oracle + ":" + rows + ":" + sql;
+        String result;
+        synchronized (limited) {
+            result = limited.get(key);
+        }
+        if (result == null) {
+            result = addLimit(sql, oracle, rows);
+            synchronized (limited) {
+                limited.put(key, result);
+            }
+        }
+        return result;
+    }
+
+    static String addLimit(String sql, boolean oracle, long rows) {
+        try {
+            Statement statement = CCJSqlParserUtil.parse(sql);
+            if (statement instanceof Select select) {
+                if (oracle) {
+                    Fetch fetch = select.getFetch();
+                    if (fetch == null || fetch.getExpression() instanceof LongValue v && v.getValue() > rows) {
+                        fetch = new Fetch();
+                        fetch.setExpression(new LongValue(rows));
+                        fetch.setFetchParamFirst(true);
+                        fetch.addFetchParameter("ROWS");
+                        fetch.addFetchParameter("ONLY");
+                        select.setFetch(fetch);
+                    }
+                } else {
+                    Limit limit = select.getLimit();
+                    if (limit == null || limit.getRowCount() instanceof LongValue v && v.getValue() > rows) {
+                        select.setLimit(new Limit().withRowCount(new LongValue(rows)));
+                    }
+                }
+                return select.toString();
+            }
+        } catch (JSQLParserException e) {
+            logger.debug("Could not add a row limit to {}", sql);
+        }
+        return sql;
+    }
+
+    /**
+     * @return the highest planner cost at which queries are still run, or a negative number when
+     *      there is no limit.
+     */
+    public static double getMaxCost() {
+        Object value = Settings.getProperty("database.max_cost");
+        return value == null ? -1 : Double.parseDouble(value.toString());
+    }
+
+    /**
+     * Decide whether a query is too expensive to run.
+     * @param conn the connection on which the query will be run
+     * @param sql the query with jdbc placeholders
+     * @param oracle true if the database is oracle
+     * @param binder binds the arguments of the query
+     * @return true if the planner estimates a cost higher than database.max_cost
+     */
+    public static boolean isTooExpensive(Connection conn, String sql, boolean oracle, Binder binder) {
+        double max = getMaxCost();
+        if (max < 0) {
+            return false;
+        }
+        String key = oracle + ":" + sql;
+        Double cost;
+        synchronized (costs) {
+            cost = costs.get(key);
+        }
+        if (cost == null) {
+            cost = oracle ? oracleCost(conn, sql) : postgresCost(conn, sql, binder);
+            synchronized (costs) {
+                costs.put(key, cost);
+            }
+        }
+        if (cost > max) {
+            logger.warn("Skipping query with estimated cost {}: {}", cost, sql);
+            return true;
+        }
+        return false;
+    }
+
+    private static double postgresCost(Connection conn, String sql, Binder binder) {
+        try (PreparedStatement prep = conn.prepareStatement("EXPLAIN " + sql)) {
+            binder.bind(prep);
+            try (ResultSet rs = prep.executeQuery()) {
+                if (rs.next()) {
+                    Matcher m = PG_COST.matcher(rs.getString(1));
+                    if (m.find()) {
+                        return Double.parseDouble(m.group(1));
+                    }
+                }
+            }
+        } catch (SQLException e) {
+            logger.debug("Could not explain {}: {}", sql, e.getMessage());
+        }
+        return -1;
+    }
+
+    /**
+     * Oracle will explain a statement with bind variables without being given their values, but
+     * it does not accept jdbc placeholders in an EXPLAIN PLAN, so they are numbered instead.
+     */
+    private static double oracleCost(Connection conn, String sql) {
+        StringBuilder numbered = new StringBuilder();
+        for (int i = 0, j = 1; i < sql.length(); i++) {
+            char c = sql.charAt(i);
+            if (c == '?') {
+                numbered.append(":b").append(j++);
+            } else {
+                numbered.append(c);
+            }
+        }
+
+        String id = nextStatementId();
+        try (java.sql.Statement stmt = conn.createStatement()) {
+            try {
+                stmt.execute("EXPLAIN PLAN SET STATEMENT_ID = '" + id + "' FOR " + numbered);
+                try (ResultSet rs = stmt.executeQuery(
+                        "SELECT cost FROM plan_table WHERE statement_id = '" + id + "' AND id = 0")) {
+                    return rs.next() ? rs.getDouble(1) : -1;
+                }
+            } finally {
+                stmt.execute("DELETE FROM plan_table WHERE statement_id = '" + id + "'");
+            }
+        } catch (SQLException e) {
+            logger.debug("Could not explain {}: {}", sql, e.getMessage());
+        }
+        return -1;
+    }
+
+    private static String nextStatementId() {
+        return STATEMENT_PREFIX + "_" + Long.toString(statements.incrementAndGet(), 36);
+    }
+
+    /**
+     * Forget the rewritten sql and the cost estimates.
+     */
+    public static void clear() {
+        synchronized (limited) {
+            limited.clear();
+        }
+        synchronized (costs) {
+            costs.clear();
+        }
+    }
+
+    private static int getCacheSize() {
+        Object value = Settings.getProperty("database.limit_cache_size");
+        return value == null ? DEFAULT_CACHE_SIZE : Integer.parseInt(value.toString());
+    }
+
+    /**
+     * A map that drops its least recently used entry once it holds more than the cache size.
+     */
+    private static class Lru<V> extends LinkedHashMap<String, V> {
+        Lru() {
+            super(16, 0.75f, true);
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, V> eldest) {
+            return size() > getCacheSize();
+        }
+    }
+}
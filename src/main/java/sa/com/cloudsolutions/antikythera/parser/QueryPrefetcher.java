@@ -0,0 +1,112 @@
+package sa.com.cloudsolutions.antikythera.parser;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import sa.com.cloudsolutions.antikythera.configuration.Settings;
+import sa.com.cloudsolutions.antikythera.generator.Antikythera;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * <p>Runs queries in the background before the evaluator asks for them.</p>
+ *
+ * Once a repository has been detected all of its queries are known, and the ones that do not
+ * have any placeholders will return the same rows no matter what state the evaluator is in. Those
+ * are submitted here as soon as the repository is parsed, so that the database does its work
+ * while the evaluator carries on with the method under test. When the query is eventually reached
+ * the result is taken from the finished future instead of going to the database again.
+ *
+ * Prefetching is turned off by setting database.prefetch to false. The background workers get
+ * the connections of the pool that are not needed by the threads that evaluate services, so
+ * that each of those threads always has a connection of its own; when the pool is not larger
+ * than the number of threads nothing is prefetched.
+ */
+public class QueryPrefetcher {
+    private static final Logger logger = LoggerFactory.getLogger(QueryPrefetcher.class);
+
+    private static final Map<String, Future<QueryResult>> futures = new HashMap<>();
+    private static ExecutorService executor;
+
+    private QueryPrefetcher() {
+    }
+
+    public static boolean isEnabled() {
+        Object value = Settings.getProperty("database.prefetch");
+        return (value == null || Boolean.parseBoolean(value.toString())) && getWorkers() > 0;
+    }
+
+    private static int getWorkers() {
+        int threads = Settings.getProperty(Antikythera.THREADS, Number.class).map(Number::intValue).orElse(1);
+        return ConnectionPool.getPoolSize() - threads;
+    }
+
+    /**
+     * Start running a query in the background unless it has already been started.
+     * @param sql identifies the query
+     * @param query runs the query
+     */
+    public static synchronized void submit(String sql, Callable<QueryResult> query) {
+        if (!futures.containsKey(sql)) {
+            if (executor == null) {
+                executor = Executors.newFixedThreadPool(getWorkers(), r -> {
+                    Thread t = new Thread(r, "query-prefetch");
+                    t.setDaemon(true);
+                    return t;
+                });
+            }
+            futures.put(sql, executor.submit(query));
+        }
+    }
+
+    /**
+     * Find the result of a query that was prefetched, waiting for it to finish if need be.
+     * @param sql identifies the query
+     * @return the rows or null if the query was not prefetched or could not be executed, in
+     *      which case the caller should run it.
+     */
+    public static QueryResult take(String sql) {
+        Future<QueryResult> future;
+        synchronized (QueryPrefetcher.class) {
+            future = futures.get(sql);
+        }
+        if (future == null) {
+            return null;
+        }
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            logger.debug("Prefetching {} failed: {}", sql, e.getCause().getMessage());
+        } catch (CancellationException e) {
+            logger.debug("Prefetching {} was abandoned", sql);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        synchronized (QueryPrefetcher.class) {
+            futures.remove(sql);
+        }
+        return null;
+    }
+
+    /**
+     * Abandon the queries that are still running and forget the prefetched results.
+     * Anyone still waiting in {@link #take(String)} is told that there is no result, so that they
+     * run the query themselves.
+     */
+    public static synchronized void shutdown() {
+        for (Future<QueryResult> future : futures.values()) {
+            future.cancel(true);
+        }
+        if (executor != null) {
+            executor.shutdownNow();
+            executor = null;
+        }
+        futures.clear();
+    }
+}
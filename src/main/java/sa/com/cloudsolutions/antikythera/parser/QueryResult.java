@@ -0,0 +1,380 @@
+package sa.com.cloudsolutions.antikythera.parser;
+
+import sa.com.cloudsolutions.antikythera.configuration.Settings;
+
+import java.io.Serial;
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * <p>The rows returned by a query, copied out of the JDBC result set into columns.</p>
+ *
+ * A query result does not hold on to a connection or a statement. The cursor is closed as soon
+ * as the rows have been read, and the rows can then be read any number of times, kept in caches
+ * and written to a snapshot file.
+ *
+ * Each column is stored in the most compact form that can hold all of its values: integral
+ * numbers and booleans in a long array, floating point numbers in a double array and
+ * everything else as objects. Nulls are tracked separately in a bit set. The java type of the
+ * first value in a primitive column is remembered so that {@link #getObject(int, int)} returns
+ * the same type that the driver did.
+ *
+ * At most database.max_rows rows (default {@value #DEFAULT_MAX_ROWS}) are read from a result
+ * set, so that the memory used by a cached query stays predictable.
+ */
+public class QueryResult implements Serializable {
+    @Serial
+    private static final long serialVersionUID = 2L;
+
+    public static final int DEFAULT_MAX_ROWS = 100;
+
+    private final String[] columns;
+    /**
+     * Column labels in upper case mapped to their position.
+     */
+    private final Map<String, Integer> index = new HashMap<>();
+    private final long[][] longs;
+    private final double[][] doubles;
+    private final Object[][] objects;
+    private final BitSet[] nulls;
+    /**
+     * The type of the values in each primitive column. Null for columns stored as objects.
+     */
+    private final Class<?>[] boxes;
+    private int rowCount;
+    private boolean truncated;
+
+    private QueryResult(String[] columns) {
+        this.columns = columns;
+        int count = columns.length;
+        longs = new long[count][];
+        doubles = new double[count][];
+        objects = new Object[count][];
+        nulls = new BitSet[count];
+        boxes = new Class<?>[count];
+        for (int i = 0; i < count; i++) {
+            index.putIfAbsent(columns[i].toUpperCase(), i);
+            nulls[i] = new BitSet();
+        }
+    }
+
+    /**
+     * Copy the rows from the result set and close it.
+     * @param rs a result set positioned before the first row
+     * @return the rows that were read, up to the configured maximum
+     * @throws SQLException if the result set could not be read
+     */
+    public static QueryResult materialize(ResultSet rs) throws SQLException {
+        return materialize(rs, getMaxRows());
+    }
+
+    /**
+     * Copy the rows from the result set and close it.
+     * @param rs a result set positioned before the first row
+     * @param maxRows the number of rows after which the rest of the result set is ignored
+     * @return the rows that were read
+     * @throws SQLException if the result set could not be read
+     */
+    public static QueryResult materialize(ResultSet rs, int maxRows) throws SQLException {
+        try (rs) {
+            ResultSetMetaData metaData = rs.getMetaData();
+            int count = metaData.getColumnCount();
+            String[] columns = new String[count];
+            int[] types = new int[count];
+            for (int i = 0; i < count; i++) {
+                columns[i] = metaData.getColumnLabel(i + 1);
+                types[i] = metaData.getColumnType(i + 1);
+            }
+
+            QueryResult result = new QueryResult(columns);
+            while (rs.next()) {
+                if (result.rowCount == maxRows) {
+                    result.truncated = true;
+                    break;
+                }
+                for (int i = 0; i < count; i++) {
+                    result.store(i, result.rowCount, readValue(rs, i + 1, types[i]));
+                }
+                result.rowCount++;
+            }
+            result.trim();
+            return result;
+        }
+    }
+
+    public static int getMaxRows() {
+        Object value = Settings.getProperty("database.max_rows");
+        return value == null ? DEFAULT_MAX_ROWS : Integer.parseInt(value.toString());
+    }
+
+    private static Object readValue(ResultSet rs, int column, int type) throws SQLException {
+        Object value = switch (type) {
+            case Types.DATE -> rs.getDate(column);
+            case Types.TIMESTAMP, Types.TIMESTAMP_WITH_TIMEZONE -> rs.getTimestamp(column);
+            case Types.CLOB, Types.NCLOB -> rs.getString(column);
+            case Types.BLOB -> rs.getBytes(column);
+            default -> rs.getObject(column);
+        };
+        if (value == null || value instanceof Number || value instanceof String || value instanceof Boolean
+                || value instanceof java.util.Date || value instanceof byte[]) {
+            return value;
+        }
+        return value.toString();
+    }
+
+    private void store(int column, int row, Object value) {
+        if (value == null) {
+            nulls[column].set(row);
+            return;
+        }
+        if (longs[column] == null && doubles[column] == null && objects[column] == null) {
+            allocate(column, value, row);
+        }
+
+        if (longs[column] != null) {
+            Long l = asLong(value, boxes[column]);
+            if (l != null) {
+                longs[column] = ensureCapacity(longs[column], row);
+                longs[column][row] = l;
+                return;
+            }
+            demote(column);
+        } else if (doubles[column] != null) {
+            if (value.getClass().equals(boxes[column])) {
+                doubles[column] = ensureCapacity(doubles[column], row);
+                doubles[column][row] = ((Number) value).doubleValue();
+                return;
+            }
+            demote(column);
+        }
+        objects[column] = ensureCapacity(objects[column], row);
+        objects[column][row] = value;
+    }
+
+    /**
+     * Create the storage for a column when its first value that is not null is found. Any rows
+     * before that one were null, so there has to be room for them as well.
+     */
+    private void allocate(int column, Object value, int row) {
+        int capacity = Math.max(16, row + 1);
+        if (asLong(value, value.getClass()) != null) {
+            longs[column] = new long[capacity];
+            boxes[column] = value.getClass();
+        } else if (value instanceof Double || value instanceof Float) {
+            doubles[column] = new double[capacity];
+            boxes[column] = value.getClass();
+        } else {
+            objects[column] = new Object[capacity];
+        }
+    }
+
+    /**
+     * The value as a long, provided that it has the expected type and can be restored exactly.
+     */
+    private static Long asLong(Object value, Class<?> box) {
+        if (!value.getClass().equals(box)) {
+            return null;
+        }
+        return switch (value) {
+            case Long l -> l;
+            case Integer i -> i.longValue();
+            case Short s -> s.longValue();
+            case Byte b -> b.longValue();
+            case Boolean b -> b ? 1L : 0L;
+            case BigDecimal bd when bd.scale() == 0 && bd.precision() < 19 -> bd.longValue();
+            default -> null;
+        };
+    }
+
+    /**
+     * Move a primitive column over to object storage, because it has a value that does not fit.
+     */
+    private void demote(int column) {
+        Object[] values = new Object[Math.max(16, rowCount + 1)];
+        for (int row = 0; row < rowCount; row++) {
+            if (!nulls[column].get(row)) {
+                values[row] = box(column, row);
+            }
+        }
+        objects[column] = values;
+        longs[column] = null;
+        doubles[column] = null;
+        boxes[column] = null;
+    }
+
+    private Object box(int column, int row) {
+        if (longs[column] != null) {
+            long l = longs[column][row];
+            Class<?> box = boxes[column];
+            if (box.equals(Integer.class)) return (int) l;
+            if (box.equals(Short.class)) return (short) l;
+            if (box.equals(Byte.class)) return (byte) l;
+            if (box.equals(Boolean.class)) return l != 0;
+            if (box.equals(BigDecimal.class)) return BigDecimal.valueOf(l);
+            return l;
+        }
+        if (doubles[column] != null) {
+            double d = doubles[column][row];
+            return boxes[column].equals(Float.class) ? (Object) (float) d : (Object) d;
+        }
+        return objects[column][row];
+    }
+
+    private void trim() {
+        for (int i = 0; i < columns.length; i++) {
+            if (longs[i] != null) longs[i] = Arrays.copyOf(longs[i], rowCount);
+            if (doubles[i] != null) doubles[i] = Arrays.copyOf(doubles[i], rowCount);
+            if (objects[i] != null) objects[i] = Arrays.copyOf(objects[i], rowCount);
+        }
+    }
+
+    private static long[] ensureCapacity(long[] array, int row) {
+        return row < array.length ? array : Arrays.copyOf(array, grow(array.length, row));
+    }
+
+    private static double[] ensureCapacity(double[] array, int row) {
+        return row < array.length ? array : Arrays.copyOf(array, grow(array.length, row));
+    }
+
+    private static Object[] ensureCapacity(Object[] array, int row) {
+        return row < array.length ? array : Arrays.copyOf(array, grow(array.length, row));
+    }
+
+    private static int grow(int length, int row) {
+        return Math.max(16, Math.max(row + 1, length * 2));
+    }
+
+    /**
+     * @return the number of rows that were read
+     */
+    public int size() {
+        return rowCount;
+    }
+
+    public boolean isEmpty() {
+        return rowCount == 0;
+    }
+
+    /**
+     * @return true if the query returned more rows than were read
+     */
+    public boolean isTruncated() {
+        return truncated;
+    }
+
+    public List<String> getColumns() {
+        return List.of(columns);
+    }
+
+    /**
+     * Find the position of a column.
+     * @param label the name of the column, case does not matter
+     * @return the zero based position of the column or -1 if there is no such column
+     */
+    public int findColumn(String label) {
+        Integer i = index.get(label.toUpperCase());
+        return i == null ? -1 : i;
+    }
+
+    public boolean isNull(int row, int column) {
+        checkRow(row);
+        return nulls[column].get(row);
+    }
+
+    public Object getObject(int row, int column) {
+        return isNull(row, column) ? null : box(column, row);
+    }
+
+    public Object getObject(int row, String label) {
+        return getObject(row, requireColumn(label));
+    }
+
+    public String getString(int row, String label) {
+        Object value = getObject(row, label);
+        return value == null ? null : value.toString();
+    }
+
+    /**
+     * @return the value as a long, zero for nulls
+     */
+    public long getLong(int row, String label) {
+        int column = requireColumn(label);
+        if (isNull(row, column)) {
+            return 0;
+        }
+        if (longs[column] != null) {
+            return longs[column][row];
+        }
+        return toNumber(getObject(row, column)).longValue();
+    }
+
+    /**
+     * @return the value as a double, zero for nulls
+     */
+    public double getDouble(int row, String label) {
+        int column = requireColumn(label);
+        if (isNull(row, column)) {
+            return 0;
+        }
+        if (doubles[column] != null) {
+            return doubles[column][row];
+        }
+        if (longs[column] != null) {
+            return longs[column][row];
+        }
+        return toNumber(getObject(row, column)).doubleValue();
+    }
+
+    /**
+     * @return the value as a boolean, false for nulls. Numbers are true when they are not zero,
+     *      strings when they are 1, true or Y.
+     */
+    public boolean getBoolean(int row, String label) {
+        int column = requireColumn(label);
+        if (isNull(row, column)) {
+            return false;
+        }
+        if (longs[column] != null) {
+            return longs[column][row] != 0;
+        }
+        Object value = getObject(row, column);
+        if (value instanceof Number n) {
+            return n.doubleValue() != 0;
+        }
+        String s = value.toString();
+        return s.equals("1") || s.equalsIgnoreCase("true") || s.equalsIgnoreCase("Y");
+    }
+
+    private int requireColumn(String label) {
+        int column = findColumn(label);
+        if (column < 0) {
+            throw new IllegalArgumentException("Column not found: " + label);
+        }
+        return column;
+    }
+
+    private void checkRow(int row) {
+        if (row < 0 || row >= rowCount) {
+            throw new IndexOutOfBoundsException("Row %d of %d".formatted(row, rowCount));
+        }
+    }
+
+    private static Number toNumber(Object value) {
+        if (value instanceof Number n) {
+            return n;
+        }
+        if (value instanceof Boolean b) {
+            return b ? 1 : 0;
+        }
+        return new BigDecimal(value.toString().trim());
+    }
+}
@@ -0,0 +1,218 @@
+package sa.com.cloudsolutions.antikythera.parser;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import sa.com.cloudsolutions.antikythera.configuration.Settings;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputFilter;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * <p>Records the results of repository queries so that they can be replayed without a database.</p>
+ *
+ * The mode is chosen with the snapshot key in the database section of the configuration:
+ * <ul>
+ *     <li>record: queries are executed as usual and each result is saved, keyed by the SQL and
+ *     the values bound to its placeholders.</li>
+ *     <li>replay: queries are answered from the snapshot file and no connection is made. A query
+ *     that was not recorded returns no result.</li>
+ * </ul>
+ * The snapshot is kept in the file named by snapshot_file (antikythera-queries.snapshot by
+ * default). Recording adds to the results that are already in the file. When the file is read
+ * back, only the query results and the types of value that they hold are deserialized; a file
+ * with any other class in it is rejected.
+ *
+ * The dialect of the database that the results came from is saved along with them, so that
+ * replaying does not need a connection url to know how the queries should be written.
+ */
+public class QuerySnapshots {
+    private static final Logger logger = LoggerFactory.getLogger(QuerySnapshots.class);
+
+    public static final String RECORD = "record";
+    public static final String REPLAY = "replay";
+    public static final String DEFAULT_FILE = "antikythera-queries.snapshot";
+    private static final int VERSION = 4;
+
+    /**
+     * The classes that may appear in a snapshot file: the query results, the structures they are
+     * made of and the values that {@link QueryResult} keeps from a result set.
+     */
+    private static final Set<Class<?>> SNAPSHOT_CLASSES = Set.of(QueryResult.class, String.class,
+            HashMap.class, Map.Entry.class, BitSet.class, Class.class, Object.class, Boolean.class,
+            Number.class, Long.class, Integer.class, Short.class, Byte.class, Double.class, Float.class,
+            BigDecimal.class, BigInteger.class, java.util.Date.class, java.sql.Date.class,
+            Time.class, Timestamp.class);
+
+    private static Map<String, QueryResult> snapshots;
+    private static boolean modified;
+    private static String dialect;
+
+    private QuerySnapshots() {
+    }
+
+    public static boolean isRecording() {
+        return RECORD.equals(getMode());
+    }
+
+    public static boolean isReplaying() {
+        return REPLAY.equals(getMode());
+    }
+
+    /**
+     * Build the key under which the result of a query is saved.
+     * @param sql the sql that is sent to the database
+     * @param parameters the values bound to the placeholders, in order
+     * @return the key for the snapshot
+     */
+    public static String key(String sql, List<Object> parameters) {
+        return sql + " " + parameters;
+    }
+
+    /**
+     * @return the dialect of the database that the snapshots were recorded from, or null if it is
+     *      not known.
+     */
+    public static synchronized String getDialect() {
+        getSnapshots();
+        return dialect;
+    }
+
+    /**
+     * Remember the dialect of the database that is being recorded.
+     * @param name the dialect
+     */
+    public static synchronized void setDialect(String name) {
+        dialect = name;
+    }
+
+    /**
+     * Save the rows returned by a query.
+     * @param key identifies the query and its parameters
+     * @param result the rows read from the database
+     */
+    public static synchronized void record(String key, QueryResult result) {
+        getSnapshots().put(key, result);
+        modified = true;
+    }
+
+    /**
+     * Find the saved result for a query.
+     * @param key identifies the query and its parameters
+     * @return the saved rows or null if the query was not recorded.
+     */
+    public static synchronized QueryResult replay(String key) {
+        QueryResult result = getSnapshots().get(key);
+        if (result == null) {
+            logger.warn("No snapshot for query {}", key);
+        }
+        return result;
+    }
+
+    /**
+     * Write the recorded results to the snapshot file.
+     * Nothing is written unless something new has been recorded.
+     */
+    public static synchronized void save() {
+        if (!modified) {
+            return;
+        }
+        File file = getFile();
+        try (ObjectOutputStream out = new ObjectOutputStream(new GZIPOutputStream(
+                new BufferedOutputStream(new FileOutputStream(file))))) {
+            out.writeInt(VERSION);
+            out.writeUTF(dialect == null ? "" : dialect);
+            out.writeInt(snapshots.size());
+            for (Map.Entry<String, QueryResult> entry : snapshots.entrySet()) {
+                out.writeObject(entry.getKey());
+                out.writeObject(entry.getValue());
+            }
+            modified = false;
+            logger.info("Saved {} query snapshots to {}", snapshots.size(), file);
+        } catch (IOException e) {
+            logger.error("Could not save query snapshots to {}: {}", file, e.getMessage());
+        }
+    }
+
+    /**
+     * Forget the loaded snapshots so that the file is read again on next use.
+     */
+    public static synchronized void reset() {
+        snapshots = null;
+        modified = false;
+        dialect = null;
+    }
+
+    private static Map<String, QueryResult> getSnapshots() {
+        if (snapshots == null) {
+            snapshots = load(getFile());
+        }
+        return snapshots;
+    }
+
+    private static Map<String, QueryResult> load(File file) {
+        Map<String, QueryResult> loaded = new HashMap<>();
+        if (!file.exists()) {
+            return loaded;
+        }
+        try (ObjectInputStream in = new ObjectInputStream(new GZIPInputStream(
+                new BufferedInputStream(new FileInputStream(file))))) {
+            in.setObjectInputFilter(QuerySnapshots::filter);
+            if (in.readInt() != VERSION) {
+                logger.warn("Ignoring query snapshots in {} from a different version", file);
+                return loaded;
+            }
+            String recorded = in.readUTF();
+            if (dialect == null && !recorded.isEmpty()) {
+                dialect = recorded;
+            }
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                String key = (String) in.readObject();
+                loaded.put(key, (QueryResult) in.readObject());
+            }
+        } catch (IOException | ClassNotFoundException e) {
+            logger.error("Could not read query snapshots from {}: {}", file, e.getMessage());
+        }
+        return loaded;
+    }
+
+    private static ObjectInputFilter.Status filter(ObjectInputFilter.FilterInfo info) {
+        Class<?> c = info.serialClass();
+        if (c == null) {
+            return ObjectInputFilter.Status.UNDECIDED;
+        }
+        while (c.isArray()) {
+            c = c.getComponentType();
+        }
+        return c.isPrimitive() || SNAPSHOT_CLASSES.contains(c)
+                ? ObjectInputFilter.Status.ALLOWED : ObjectInputFilter.Status.REJECTED;
+    }
+
+    private static String getMode() {
+        Object mode = Settings.getProperty("database.snapshot");
+        return mode == null ? null : mode.toString();
+    }
+
+    private static File getFile() {
+        Object file = Settings.getProperty("database.snapshot_file");
+        return new File(file == null ? DEFAULT_FILE : file.toString());
+    }
+}
@@ -1,7 +1,15 @@
 package sa.com.cloudsolutions.antikythera.parser;
 
 import com.github.javaparser.ast.expr.AnnotationExpr;
+import com.github.javaparser.ast.expr.NameExpr;
 import net.sf.jsqlparser.JSQLParserException;
+import net.sf.jsqlparser.expression.Expression;
+import net.sf.jsqlparser.expression.operators.conditional.AndExpression;
+import net.sf.jsqlparser.expression.operators.relational.IsNullExpression;
+import net.sf.jsqlparser.expression.operators.relational.ParenthesedExpressionList;
+import net.sf.jsqlparser.parser.CCJSqlParserUtil;
+import net.sf.jsqlparser.schema.Column;
+import net.sf.jsqlparser.statement.select.PlainSelect;
 import sa.com.cloudsolutions.antikythera.depsolver.ClassProcessor;
 import sa.com.cloudsolutions.antikythera.evaluator.Evaluator;
 import sa.com.cloudsolutions.antikythera.evaluator.EvaluatorFactory;
@@ -13,6 +21,7 @@ import sa.com.cloudsolutions.antikythera.generator.QueryMethodParameter;
 import sa.com.cloudsolutions.antikythera.generator.RepositoryQuery;
 import sa.com.cloudsolutions.antikythera.configuration.Settings;
 import com.github.javaparser.ast.CompilationUnit;
+import com.github.javaparser.ast.body.CallableDeclaration;
 import com.github.javaparser.ast.body.MethodDeclaration;
 
 import com.github.javaparser.ast.type.Type;
@@ -26,17 +35,16 @@ import sa.com.cloudsolutions.antikythera.generator.TypeWrapper;
 
 import java.io.IOException;
 import java.lang.annotation.Annotation;
-import java.sql.Connection;
-import java.sql.DriverManager;
 import java.sql.PreparedStatement;
-import java.sql.ResultSet;
-import java.sql.ResultSetMetaData;
 import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
@@ -52,15 +60,22 @@ public class RepositoryParser extends ClassProcessor {
     public static final String JPA_REPOSITORY = "JpaRepository";
     public static final String SELECT_STAR = "SELECT * FROM ";
     private static final Pattern CAMEL_TO_SNAKE_PATTERN = Pattern.compile("([a-z])([A-Z]+)");
+    private static final Pattern KEYWORDS_PATTERN = Pattern.compile("get|findBy|findFirstBy|findTopBy|And|OrderBy|NotIn|In|Desc|IsNotNull|IsNull|Not|Containing|Like|Or|Between|LessThanEqual|GreaterThanEqual|GreaterThan|LessThan");
+
+    /**
+     * The components of the derived query methods that have been seen so far, by method name.
+     */
+    private static final Map<String, List<String>> methodComponents = new ConcurrentHashMap<>();
 
     /**
      * The queries that were identified in this repository
      */
     private final Map<Callable, RepositoryQuery> queries;
     /**
-     * The connection to the database established using the credentials in the configuration
+     * A new Callable is created each time a method call is resolved, so the queries are filed
+     * under the first Callable that was seen for each method declaration.
      */
-    private static Connection conn;
+    private final Map<CallableDeclaration<?>, Callable> callables = new HashMap<>();
     /**
      * SQL dialect, at the moment oracle or postgresql as identified from the connection url
      */
@@ -93,12 +108,12 @@ public class RepositoryParser extends ClassProcessor {
      * different branches, we will end up executing the same query over and over again. This is
      * wasteful in terms of both time and money! So we will cache the result sets here.
      */
-    private final Map<Callable, ResultSet> cache = new HashMap<>();
+    private final Map<Callable, QueryResult> cache = new HashMap<>();
 
     /**
      * A cache for the simplified queries.
      */
-    private final Map<MethodDeclaration, ResultSet> happyCache = new HashMap<>();
+    private final Map<MethodDeclaration, QueryResult> happyCache = new HashMap<>();
 
     public RepositoryParser() throws IOException {
         super();
@@ -106,35 +121,38 @@ public class RepositoryParser extends ClassProcessor {
 
         Map<String, Object> db = (Map<String, Object>) Settings.getProperty("database");
         if(db != null) {
-            runQueries = db.getOrDefault("run_queries", "false").toString().equals("true");
-            String url = db.get("url").toString();
-            if(url.contains(ORACLE)) {
-                dialect = ORACLE;
-            }
-            else {
-                dialect = POSTGRESQL;
+            runQueries = db.getOrDefault("run_queries", "false").toString().equals("true")
+                    || EmbeddedDatabase.isEnabled();
+            dialect = findDialect(db);
+            if (QuerySnapshots.isRecording()) {
+                QuerySnapshots.setDialect(dialect);
             }
         }
     }
 
     /**
-     * Create a connection to the database.
-     *
-     * The connection will be shared among all instances of this class provided that the
-     * runQueries configuration is switched on.
-     *
-     * @throws SQLException if the connection could not be established
+     * Work out the dialect of the database.
+     * An explicit dialect in the configuration wins, then the connection url. When replaying
+     * snapshots there need not be a url at all, so the dialect that was recorded with the
+     * snapshots is used instead.
+     * @param db the database section of the configuration
+     * @return either ORACLE or POSTGRESQL
      */
-    private static void createConnection() throws SQLException {
-        Map<String, Object> db = (Map<String, Object>) Settings.getProperty("database");
-        if(db != null && conn == null && runQueries) {
-            String url = db.get("url").toString();
-
-            conn = DriverManager.getConnection(url, db.get("user").toString(), db.get("password").toString());
-            try (java.sql.Statement statement = conn.createStatement()) {
-                statement.execute("ALTER SESSION SET CURRENT_SCHEMA = " + db.get("schema").toString());
-            }
+    private static String findDialect(Map<String, Object> db) {
+        Object configured = Settings.getProperty("database.dialect");
+        String url = EmbeddedDatabase.isEnabled() ? EmbeddedDatabase.getUrl()
+                : db.get("url") == null ? null : db.get("url").toString();
+        String name;
+        if (configured != null) {
+            name = configured.toString();
+        } else if (url != null) {
+            name = url;
+        } else if (QuerySnapshots.isReplaying()) {
+            name = QuerySnapshots.getDialect();
+        } else {
+            name = null;
         }
+        return name != null && name.toLowerCase().contains(ORACLE) ? ORACLE : POSTGRESQL;
     }
 
     public static void main(String[] args) throws IOException, SQLException, JSQLParserException {
@@ -147,6 +165,9 @@ public class RepositoryParser extends ClassProcessor {
             parser.compile(AbstractCompiler.classToPath(args[0]));
             parser.processTypes();
             parser.executeAllQueries();
+            QuerySnapshots.save();
+            QueryPrefetcher.shutdown();
+            ConnectionPool.shutdown();
         }
     }
 
@@ -194,25 +215,19 @@ public class RepositoryParser extends ClassProcessor {
      */
     public void executeAllQueries() throws SQLException, JSQLParserException {
         for (var entry : queries.entrySet()) {
-            ResultSet rs = executeQuery(entry.getKey());
-            if (rs != null) {
-                ResultSetMetaData metaData = rs.getMetaData();
-                int columnCount = metaData.getColumnCount();
-
-                for (int i = 1; i <= columnCount; i++) {
-                    System.out.print(metaData.getColumnName(i) + "\t");
+            QueryResult result = executeQuery(entry.getKey());
+            if (result != null) {
+                for (String column : result.getColumns()) {
+                    System.out.print(column + "\t");
                 }
                 System.out.println();
 
-                int i = 0;
-                while (rs.next() && i < 10) {
-                    for (int j = 1; j <= columnCount; j++) {
-                        System.out.print(rs.getString(j) + "\t");
+                for (int i = 0; i < result.size() && i < 10; i++) {
+                    for (int j = 0; j < result.getColumns().size(); j++) {
+                        System.out.print(result.getObject(i, j) + "\t");
                     }
                     System.out.println();
-                    i++;
                 }
-                rs.close();
             }
         }
     }
@@ -220,27 +235,26 @@ public class RepositoryParser extends ClassProcessor {
     /**
      * Execute the query represented by the method.
      * @param method the name of the method that represents the query in the JPARepository interface
-     * @return the result set if the query was executed successfully
+     * @return the rows if the query was executed successfully
      */
-    public ResultSet executeQuery(Callable method) throws SQLException, JSQLParserException {
+    public QueryResult executeQuery(Callable method) throws SQLException, JSQLParserException {
+        method = canonical(method);
         RepositoryQuery rql = queries.get(method);
-        ResultSet rs = executeQuery(rql, method);
-        rql.setResultSet(rs);
-        cache.put(method, rs);
-        return rs;
+        QueryResult result = executeQuery(rql, method);
+        rql.setResultSet(result);
+        cache.put(method, result);
+        return result;
     }
 
-    public ResultSet executeQuery(RepositoryQuery rql, Callable method) throws SQLException, JSQLParserException {
+    public QueryResult executeQuery(RepositoryQuery rql, Callable method) throws SQLException, JSQLParserException {
         if(method.isMethodDeclaration()) {
             return executeQuery(rql, method.asMethodDeclaration());
         }
         return null;
     }
 
-    public ResultSet executeQuery(RepositoryQuery rql, MethodDeclaration method) throws SQLException, JSQLParserException {
-        if(runQueries) {
-            RepositoryParser.createConnection();
-
+    public QueryResult executeQuery(RepositoryQuery rql, MethodDeclaration method) throws SQLException, JSQLParserException {
+        if(runQueries || QuerySnapshots.isReplaying()) {
             Select stmt = (Select) rql.getStatement();
             String sql = beautify(stmt.toString());
             sql = trueFalseCheck(sql);
@@ -251,18 +265,81 @@ public class RepositoryParser extends ClassProcessor {
                 executeSimplifiedQuery(rql, method, argumentCount);
             }
 
-            PreparedStatement prep = conn.prepareStatement(sql);
-            for (int i = 0; i < argumentCount; i++) {
-                QueryMethodArgument arg = rql.getMethodArguments().get(i);
-                bindParameters(arg, prep, i);
-            }
+            return execute(sql, rql.getMethodArguments().subList(0, argumentCount));
+        }
+        return null;
+    }
 
-            if (prep.execute()) {
-                return prep.getResultSet();
+    /**
+     * Start running the queries of this repository whose results do not depend on the state of
+     * the evaluator, so that they can be fetched in the background while the evaluator gets on
+     * with other things. Those are the queries without any placeholders and the queries whose
+     * simplified form has none left.
+     */
+    public void prefetchQueries() {
+        if (!runQueries || QuerySnapshots.isReplaying() || !QueryPrefetcher.isEnabled()) {
+            return;
+        }
+        try {
+            buildQueries();
+        } catch (AntikytheraException e) {
+            logger.debug("Could not build the queries for prefetching: {}", e.getMessage());
+        }
+        for (RepositoryQuery rql : queries.values()) {
+            String sql = prefetchSql(rql);
+            if (sql != null) {
+                String limited = QueryLimits.limit(sql, isOracle());
+                QueryPrefetcher.submit(limited, () -> run(limited, List.of()));
             }
+        }
+    }
 
+    /**
+     * Find the sql that will be executed without any arguments for a query.
+     * The simplified query is the one that is executed first for a query with placeholders, and
+     * it does not need any arguments when the simplification removed all the filters on them.
+     * Filters compared with a literal argument are kept by the simplification, so the query is
+     * simplified as if the method is called with variables, which is by far the common case.
+     * @param rql the repository query
+     * @return the sql of the query or of its simplified form, or null if either needs arguments
+     */
+    static String prefetchSql(RepositoryQuery rql) {
+        if (!(rql.getStatement() instanceof Select stmt)) {
+            return null;
         }
-        return null;
+        String sql = trueFalseCheck(beautify(stmt.toString()));
+        int argumentCount = countPlaceholders(sql);
+        if (argumentCount == 0) {
+            return sql;
+        }
+        List<QueryMethodArgument> arguments = rql.getMethodArguments();
+        boolean supplied = !arguments.isEmpty();
+        try {
+            if (!supplied) {
+                for (int i = 0; i < rql.getMethodParameters().size(); i++) {
+                    arguments.add(new QueryMethodArgument(new NameExpr("arg" + i), i, null));
+                }
+            }
+            rql.buildSimplifiedQuery();
+        } catch (JSQLParserException | AntikytheraException e) {
+            logger.debug("Could not simplify the query for prefetching: {}", e.getMessage());
+            return null;
+        } finally {
+            if (!supplied) {
+                arguments.clear();
+            }
+        }
+        if (!(rql.getSimplifiedStatement() instanceof Select simplified)
+                || rql.getMethodParameters().size() < argumentCount) {
+            return null;
+        }
+        for (int i = 0; i < argumentCount; i++) {
+            if (!rql.getMethodParameters().get(i).isRemoved()) {
+                return null;
+            }
+        }
+        String simplifiedSql = trueFalseCheck(beautify(simplified.toString()));
+        return countPlaceholders(simplifiedSql) == 0 ? simplifiedSql : null;
     }
 
     /**
@@ -276,23 +353,177 @@ public class RepositoryParser extends ClassProcessor {
         rql.buildSimplifiedQuery();
         Select simplified = (Select) rql.getSimplifiedStatement();
         String simplifiedSql = trueFalseCheck(beautify(simplified.toString()));
-        PreparedStatement prep = conn.prepareStatement(simplifiedSql);
-        for (int i = 0, j= 0; i < argumentCount; i++) {
-            QueryMethodArgument arg = rql.getMethodArguments().get(i);
+        List<QueryMethodArgument> arguments = new ArrayList<>();
+        for (int i = 0; i < argumentCount; i++) {
             QueryMethodParameter p = rql.getMethodParameters().get(i);
             if (!p.isRemoved()) {
-                bindParameters(arg, prep, j++);
+                arguments.add(rql.getMethodArguments().get(i));
             }
         }
 
-        if (prep.execute()) {
-            ResultSet resultSet = prep.getResultSet();
-            if (resultSet.next()) {
-                happyCache.put(method, resultSet);
-                rql.setSimplifedResultSet(resultSet);
+        QueryResult result = execute(simplifiedSql, arguments);
+        if (result != null && !result.isEmpty()) {
+            happyCache.put(method, result);
+            rql.setSimplifedResultSet(result);
+            executeCandidateQuery(rql, simplifiedSql, arguments, result);
+        }
+    }
+
+    /**
+     * Fetch the rows that will let the evaluator take different branches.
+     *
+     * The first row of the simplified query gives one set of arguments. Other branches will often
+     * need a row where one of the filter columns is null or where it is not. Instead of going
+     * round another iteration for each of those, a single query asks for one row of each kind
+     * for every filter column, with the variants glued together by UNION ALL.
+     *
+     * @param rql the repository query
+     * @param simplifiedSql the sql for the simplified query
+     * @param arguments the arguments bound to the simplified query
+     * @param simplified the rows returned by the simplified query
+     */
+    private void executeCandidateQuery(RepositoryQuery rql, String simplifiedSql,
+                                       List<QueryMethodArgument> arguments, QueryResult simplified) {
+        String sql = candidateSql(rql, simplifiedSql, simplified);
+        if (sql == null) {
+            return;
+        }
+        // each branch of the union has its own copy of the placeholders
+        int placeholders = countPlaceholders(sql);
+        List<QueryMethodArgument> repeated = new ArrayList<>();
+        for (int i = 0; !arguments.isEmpty() && repeated.size() < placeholders; i++) {
+            repeated.add(arguments.get(i % arguments.size()));
+        }
+        try {
+            rql.setCandidateResultSet(execute(sql, repeated));
+        } catch (SQLException e) {
+            logger.warn("Could not fetch candidate rows: {}", e.getMessage());
+        }
+    }
+
+    static String candidateSql(RepositoryQuery rql, String simplifiedSql, QueryResult simplified) {
+        Set<String> columns = new LinkedHashSet<>();
+        for (QueryMethodParameter p : rql.getMethodParameters()) {
+            if (p.getColumnName() != null) {
+                String[] parts = p.getColumnName().split("\\.");
+                if (simplified.findColumn(parts[parts.length - 1]) >= 0) {
+                    columns.add(p.getColumnName());
+                }
             }
         }
+        if (columns.isEmpty()) {
+            return null;
+        }
 
+        String one = isOracle() ? " FETCH FIRST 1 ROWS ONLY" : " LIMIT 1";
+        List<String> branches = new ArrayList<>();
+        try {
+            for (String col : columns) {
+                for (boolean isNull : new boolean[] {true, false}) {
+                    branches.add("(" + narrow(simplifiedSql, col, isNull) + one + ")");
+                }
+            }
+        } catch (JSQLParserException e) {
+            logger.warn("Could not build the candidate query for {}", simplifiedSql);
+            return null;
+        }
+        return String.join(" UNION ALL ", branches);
+    }
+
+    /**
+     * Add a null check on one column to the where clause of the simplified query.
+     * The select list of the simplified query is kept as it is, so that the candidate rows have
+     * the same columns as the simplified rows even when the query joins tables that share
+     * column names.
+     * @param sql the simplified query
+     * @param column the column as it is named in the query, with its table alias if it has one
+     * @param isNull true to look for rows where the column is null, false for the other rows
+     * @return the sql for one branch of the candidate query
+     * @throws JSQLParserException if the simplified query cannot be parsed
+     */
+    private static String narrow(String sql, String column, boolean isNull) throws JSQLParserException {
+        if (!(CCJSqlParserUtil.parse(sql) instanceof PlainSelect select)) {
+            throw new JSQLParserException("Not a plain select: " + sql);
+        }
+        IsNullExpression condition = new IsNullExpression(new Column(column));
+        condition.setNot(!isNull);
+        Expression where = select.getWhere();
+        select.setWhere(where == null ? condition
+                : new AndExpression(new ParenthesedExpressionList<>(where), condition));
+        return select.toString();
+    }
+
+    /**
+     * Run the sql with the given arguments bound to its placeholders.
+     * A row limit is added to the sql first, and the query is skipped if the planner thinks that
+     * it will be too expensive (see {@link QueryLimits}). Depending on the configuration the
+     * result is also recorded or, instead of running the query, taken from the query snapshots.
+     * @param sql the sql to execute
+     * @param arguments the values for the placeholders in order
+     * @return the rows read from the result set or null if the statement did not produce one
+     * @throws SQLException if the statement cannot be executed
+     */
+    private static QueryResult execute(String sql, List<QueryMethodArgument> arguments) throws SQLException {
+        sql = QueryLimits.limit(sql, isOracle());
+        if (arguments.isEmpty()) {
+            QueryResult prefetched = QueryPrefetcher.take(sql);
+            if (prefetched != null) {
+                return prefetched;
+            }
+        }
+        return run(sql, arguments);
+    }
+
+    private static QueryResult run(String sql, List<QueryMethodArgument> arguments) throws SQLException {
+        String key = null;
+        if (QuerySnapshots.isReplaying() || QuerySnapshots.isRecording()) {
+            List<Object> values = new ArrayList<>();
+            for (QueryMethodArgument arg : arguments) {
+                values.add(bindValue(arg));
+            }
+            key = QuerySnapshots.key(sql, values);
+            if (QuerySnapshots.isReplaying()) {
+                return QuerySnapshots.replay(key);
+            }
+        }
+
+        QueryLimits.Binder binder = prep -> {
+            for (int i = 0; i < arguments.size(); i++) {
+                bindParameters(arguments.get(i), prep, i);
+            }
+        };
+
+        try (ConnectionPool.PooledConnection pc = ConnectionPool.acquire()) {
+            if (QueryLimits.isTooExpensive(pc.getConnection(), sql, isOracle(), binder)) {
+                return null;
+            }
+            PreparedStatement prep = pc.prepare(sql);
+            prep.setMaxRows(QueryResult.getMaxRows() + 1);
+            binder.bind(prep);
+
+            if (prep.execute()) {
+                QueryResult result = QueryResult.materialize(prep.getResultSet());
+                if (key != null) {
+                    QuerySnapshots.record(key, result);
+                }
+                return result;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * The value that will be bound to a placeholder for the given argument.
+     */
+    private static Object bindValue(QueryMethodArgument arg) {
+        Object value = arg.getVariable().getValue();
+        if (arg.getVariable().getClazz() == null) {
+            return null;
+        }
+        if (value instanceof List<?> list) {
+            return list.stream().map(Object::toString).collect(Collectors.joining(","));
+        }
+        return value;
     }
 
     private static void bindParameters(QueryMethodArgument arg, PreparedStatement prep, int i) throws SQLException {
@@ -366,7 +597,7 @@ public class RepositoryParser extends ClassProcessor {
         String table = null;
         if(entity != null) {
             if (entity.getType() != null) {
-                return getNameFromType(entity, table);
+                return EntityIndex.get(entity.getType()).getTableName();
             }
             else if (entity.getClazz() != null){
                 Class<?> cls = entity.getClazz();
@@ -383,24 +614,6 @@ public class RepositoryParser extends ClassProcessor {
         return table;
     }
 
-    private static String getNameFromType(TypeWrapper entity, String table) {
-        Optional<AnnotationExpr> ann = entity.getType().getAnnotationByName("Table");
-        if (ann.isPresent()) {
-            if (ann.get().isNormalAnnotationExpr()) {
-                for (var pair : ann.get().asNormalAnnotationExpr().getPairs()) {
-                    if (pair.getNameAsString().equals("name")) {
-                        table = pair.getValue().toString().replace("\"", "");
-                    }
-                }
-            } else {
-                table = ann.get().asSingleMemberAnnotationExpr().getMemberValue().toString().replace("\"", "");
-            }
-            return table;
-        } else {
-            return camelToSnake(entity.getType().getNameAsString());
-        }
-    }
-
     /**
      * Find and parse the given entity.
      *
@@ -408,6 +621,10 @@ public class RepositoryParser extends ClassProcessor {
      * @return a compilation unit
      */
     public static TypeWrapper findEntity(Type fd) {
+        return EntityIndex.resolve(fd, () -> resolveEntity(fd));
+    }
+
+    private static TypeWrapper resolveEntity(Type fd) {
         Optional<CompilationUnit> cu = fd.findCompilationUnit();
         if (cu.isPresent()) {
             for (ImportWrapper wrapper : AbstractCompiler.findImport(cu.get(), fd)) {
@@ -439,7 +656,15 @@ public class RepositoryParser extends ClassProcessor {
         return CAMEL_TO_SNAKE_PATTERN.matcher(str).replaceAll("$1_$2").toLowerCase();
     }
 
+    private Callable canonical(Callable callable) {
+        if (callable.isCallableDeclaration()) {
+            return callables.computeIfAbsent(callable.getCallableDeclaration(), k -> callable);
+        }
+        return callable;
+    }
+
     public RepositoryQuery get(Callable repoMethod) {
+        repoMethod = canonical(repoMethod);
         RepositoryQuery q = queries.get(repoMethod);
         if (q == null) {
             if (repoMethod.isMethodDeclaration()) {
@@ -500,7 +725,7 @@ public class RepositoryParser extends ClassProcessor {
                 }
             }
         }
-        Callable callable = new Callable(n, null);
+        Callable callable = canonical(new Callable(n, null));
         if (query != null) {
             queries.put(callable, queryBuilder(query, nt, callable));
         } else {
@@ -620,28 +845,29 @@ public class RepositoryParser extends ClassProcessor {
      * @param methodName name of the method
      * @return a list of components
      */
-    private List<String> extractComponents(String methodName) {
-        List<String> components = new ArrayList<>();
-        String keywords = "get|findBy|findFirstBy|findTopBy|And|OrderBy|NotIn|In|Desc|IsNotNull|IsNull|Not|Containing|Like|Or|Between|LessThanEqual|GreaterThanEqual|GreaterThan|LessThan";
-        Pattern pattern = Pattern.compile(keywords);
-        Matcher matcher = pattern.matcher(methodName);
+    static List<String> extractComponents(String methodName) {
+        return methodComponents.computeIfAbsent(methodName, RepositoryParser::splitComponents);
+    }
+
+    private static List<String> splitComponents(String methodName) {
+        List<String> parts = new ArrayList<>();
+        Matcher matcher = KEYWORDS_PATTERN.matcher(methodName);
 
         // Add spaces around each keyword
-        StringBuffer sb = new StringBuffer();
+        StringBuilder sb = new StringBuilder();
         while (matcher.find()) {
             matcher.appendReplacement(sb, " " + matcher.group() + " ");
         }
         matcher.appendTail(sb);
 
         // Split the modified method name by spaces
-        String[] parts = sb.toString().split("\\s+");
-        for (String part : parts) {
+        for (String part : sb.toString().split("\\s+")) {
             if (!part.isEmpty()) {
-                components.add(part);
+                parts.add(part);
             }
         }
 
-        return components;
+        return List.copyOf(parts);
     }
 
     public static boolean isOracle() {
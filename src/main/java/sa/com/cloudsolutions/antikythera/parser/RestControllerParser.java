@@ -23,6 +23,7 @@ import sa.com.cloudsolutions.antikythera.evaluator.ArgumentGenerator;
 import sa.com.cloudsolutions.antikythera.evaluator.Branching;
 import sa.com.cloudsolutions.antikythera.evaluator.DatabaseArgumentGenerator;
 import sa.com.cloudsolutions.antikythera.evaluator.DummyArgumentGenerator;
+import sa.com.cloudsolutions.antikythera.evaluator.EvaluationContext;
 import sa.com.cloudsolutions.antikythera.evaluator.EvaluatorFactory;
 import sa.com.cloudsolutions.antikythera.evaluator.NullArgumentGenerator;
 import sa.com.cloudsolutions.antikythera.evaluator.SpringEvaluator;
@@ -46,7 +47,18 @@ public class RestControllerParser extends DepsolvingParser {
      * @param controller either a folder containing many controllers or a single controller
      */
     public RestControllerParser(String controller) throws IOException {
+        this(controller, EvaluationContext.current());
+    }
+
+    /**
+     * Creates a new RestControllerParser that evaluates the controller in the given context
+     *
+     * @param controller either a folder containing many controllers or a single controller
+     * @param context the evaluation context
+     */
+    public RestControllerParser(String controller, EvaluationContext context) throws IOException {
         super();
+        this.context = context;
         this.cu = AntikytheraRunTime.getCompilationUnit(controller);
 
         Path dataPath = Paths.get(Settings.getProperty(Settings.OUTPUT_PATH).toString(), "src/test/resources/data");
@@ -61,7 +73,11 @@ public class RestControllerParser extends DepsolvingParser {
     @Override
     public void start() throws EvaluatorException, IOException {
         if(cu != null && cu.getPackageDeclaration().isPresent()) {
-            processRestController(cu.getPackageDeclaration().get());
+            PackageDeclaration pd = cu.getPackageDeclaration().get();
+            context.call(() -> {
+                processRestController(pd);
+                return null;
+            });
         }
     }
 
@@ -74,16 +90,20 @@ public class RestControllerParser extends DepsolvingParser {
 
         TypeDeclaration<?> type = AbstractCompiler.getPublicType(cu);
 
-        evaluator = EvaluatorFactory.create(type.getFullyQualifiedName().orElseThrow(), SpringEvaluator.class);
-        evaluator.setOnTest(true);
-
+        /*
+         * The generator has to come first, because in MockMvc mode it decides which of the fields
+         * of the controller are mocked before the evaluator wires them up.
+         */
         SpringTestGenerator generator = new SpringTestGenerator(cu);
-        evaluator.addGenerator(generator);
         generator.setCommonPath(getCommonPath());
 
         CompilationUnit gen = generator.getCompilationUnit();
         generator.addBeforeClass();
 
+        evaluator = EvaluatorFactory.create(type.getFullyQualifiedName().orElseThrow(), SpringEvaluator.class);
+        evaluator.setOnTest(true);
+        evaluator.addGenerator(generator);
+
         gen.addImport("com.fasterxml.jackson.core.JsonProcessingException");
         List<String> otherImports = (List<String>) Settings.getProperty("extra_imports");
         if(otherImports != null) {
@@ -105,8 +125,7 @@ public class RestControllerParser extends DepsolvingParser {
         cu.accept(new ControllerMethodVisitor(), null);
 
         Antikythera.getInstance().writeFilesToTest(
-                pd.getName().asString(), type.getNameAsString() + "Test.java",
-                gen.toString());
+                pd.getName().asString(), type.getNameAsString() + "Test.java", gen);
 
     }
 
@@ -14,6 +14,7 @@ import sa.com.cloudsolutions.antikythera.evaluator.AntikytheraRunTime;
 import sa.com.cloudsolutions.antikythera.evaluator.ArgumentGenerator;
 import sa.com.cloudsolutions.antikythera.evaluator.Branching;
 import sa.com.cloudsolutions.antikythera.evaluator.DummyArgumentGenerator;
+import sa.com.cloudsolutions.antikythera.evaluator.EvaluationContext;
 import sa.com.cloudsolutions.antikythera.evaluator.EvaluatorFactory;
 import sa.com.cloudsolutions.antikythera.evaluator.SpringEvaluator;
 import sa.com.cloudsolutions.antikythera.exception.AntikytheraException;
@@ -39,9 +40,23 @@ public class ServicesParser {
     String cls;
     SpringEvaluator evaluator;
     UnitTestGenerator generator;
+    /**
+     * The evaluation context in which the methods of the service are evaluated.
+     */
+    private final EvaluationContext context;
 
     public ServicesParser(String cls) {
+        this(cls, EvaluationContext.current());
+    }
+
+    /**
+     * Creates a parser that will evaluate the methods of a service in the given context.
+     * @param cls the fully qualified name of the service
+     * @param context the evaluation context
+     */
+    public ServicesParser(String cls, EvaluationContext context) {
         this.cls = cls;
+        this.context = context;
         this.cu = AntikytheraRunTime.getCompilationUnit(cls);
         if (this.cu == null) {
             throw new AntikytheraException("Class not found: " + cls);
@@ -49,40 +64,62 @@ public class ServicesParser {
     }
 
     public void start() {
+        context.run(() -> {
+            findMethods();
+            eval();
+        });
+    }
+
+    public void start(String method) {
+        context.run(() -> {
+            findMethods(method);
+            eval();
+        });
+    }
 
-        for(TypeDeclaration<?> decl : cu.getTypes()) {
-            DepSolver solver = DepSolver.createSolver();
-            decl.findAll(MethodDeclaration.class).forEach(md -> {
-                if (!md.isPrivate() || testPrivates) {
-                    Graph.createGraphNode(md);
-                    methods.add(md);
-                }
-                else {
-                    logger.debug("Skipping private method {}", md.getNameAsString());
-                }
-            });
-            solver.dfs();
+    /*
+     * Each evaluation context has a dependency graph of its own, but the graph is built by moving
+     * and copying nodes from the compilation units that are shared by all of them. So only one
+     * service at a time may build its graph.
+     */
+    private void findMethods() {
+        synchronized (Graph.class) {
+            for (TypeDeclaration<?> decl : cu.getTypes()) {
+                DepSolver solver = DepSolver.createSolver();
+                decl.findAll(MethodDeclaration.class).forEach(md -> {
+                    if (!md.isPrivate() || testPrivates) {
+                        Graph.createGraphNode(md);
+                        methods.add(md);
+                    }
+                    else {
+                        logger.debug("Skipping private method {}", md.getNameAsString());
+                    }
+                });
+                solver.dfs();
+            }
         }
-        eval();
     }
 
-    public void start(String method) {
-        for(TypeDeclaration<?> decl : cu.getTypes()) {
-            DepSolver solver = DepSolver.createSolver();
-            decl.findAll(MethodDeclaration.class).forEach(md -> {
-                if ((!md.isPrivate() || testPrivates ) && md.getNameAsString().equals(method)) {
-                    Graph.createGraphNode(md);
-                    methods.add(md);
-                }
-            });
-            solver.dfs();
+    private void findMethods(String method) {
+        synchronized (Graph.class) {
+            for (TypeDeclaration<?> decl : cu.getTypes()) {
+                DepSolver solver = DepSolver.createSolver();
+                decl.findAll(MethodDeclaration.class).forEach(md -> {
+                    if ((!md.isPrivate() || testPrivates) && md.getNameAsString().equals(method)) {
+                        Graph.createGraphNode(md);
+                        methods.add(md);
+                    }
+                });
+                solver.dfs();
+            }
         }
-        eval();
     }
 
     private void eval() {
         for (MethodDeclaration md : methods) {
-            stats.methods++;
+            synchronized (stats) {
+                stats.methods++;
+            }
             evaluateMethod(md, new DummyArgumentGenerator());
         }
     }
@@ -91,6 +128,25 @@ public class ServicesParser {
         generator.save();
     }
 
+    /**
+     * @return the number of methods that were evaluated
+     */
+    public int getMethodCount() {
+        return methods.size();
+    }
+
+    /**
+     * @return the number of test methods that have been generated
+     */
+    public int getTestCount() {
+        if (generator == null) {
+            return 0;
+        }
+        return (int) generator.getCompilationUnit().findAll(MethodDeclaration.class).stream()
+                .filter(md -> md.getAnnotationByName("Test").isPresent())
+                .count();
+    }
+
     public void evaluateMethod(MethodDeclaration md, ArgumentGenerator gen) {
         generator = (UnitTestGenerator) Factory.create("unit", cu);
         generator.addBeforeClass();
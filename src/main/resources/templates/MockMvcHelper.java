@@ -0,0 +1,114 @@
+package sa.com.cloudsolutions.antikythera.base;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.restassured.http.Header;
+import io.restassured.http.Headers;
+import io.restassured.module.mockmvc.RestAssuredMockMvc;
+import io.restassured.module.mockmvc.response.MockMvcResponse;
+import io.restassured.module.mockmvc.specification.MockMvcRequestSpecification;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Base class for controller tests that run in process.
+ *
+ * The controller is set up on its own with MockMvc, with its dependencies replaced by mocks, so
+ * no application has to be started and the requests never go over the network. The methods
+ * have the same shape as the ones in TestHelper.
+ */
+public abstract class MockMvcHelper {
+
+    protected static final ObjectMapper objectMapper = new ObjectMapper();
+
+    protected Headers headers = new Headers(
+            new Header("Content-Type", "application/json"),
+            new Header("Accept", "*/*")
+    );
+
+    private MockMvc mockMvc;
+
+    /**
+     * Build the MockMvc instance that all the requests in the test are sent to.
+     * @param controllers the controllers with their mocks already injected
+     */
+    protected void standaloneSetup(Object... controllers) {
+        mockMvc = MockMvcBuilders.standaloneSetup(controllers).build();
+    }
+
+    private MockMvcRequestSpecification given(Headers headers) {
+        return RestAssuredMockMvc.given().mockMvc(mockMvc).headers(headers);
+    }
+
+    protected MockMvcResponse makePost(String body, Headers headers, String relativeUrl) {
+        return given(headers).body(body).when().post(relativeUrl);
+    }
+
+    protected MockMvcResponse makePost(MultipartFile file, Headers headers, String relativeUrl) throws IOException {
+        Headers filteredHeaders = new Headers(headers.asList().stream()
+                .filter(header -> !header.getName().equalsIgnoreCase("Content-Type"))
+                .collect(Collectors.toList()));
+
+        return given(filteredHeaders)
+                .multiPart("file", file.getOriginalFilename(), file.getBytes(), file.getContentType())
+                .when().post(relativeUrl);
+    }
+
+    protected MockMvcResponse makePost(String body, Headers headers, String relativeUrl, Map<String, String> queryParams) {
+        return given(headers).queryParams(queryParams).body(body).when().post(relativeUrl);
+    }
+
+    protected MockMvcResponse makePut(String body, Headers headers, String relativeUrl) {
+        return given(headers).body(body).when().put(relativeUrl);
+    }
+
+    protected MockMvcResponse makePut(String body, Headers headers, String relativeUrl, Map<String, String> queryParams) {
+        return given(headers).queryParams(queryParams).body(body).when().put(relativeUrl);
+    }
+
+    protected MockMvcResponse makeGet(Headers headers, String relativeUrl) {
+        return given(headers).when().get(relativeUrl);
+    }
+
+    protected MockMvcResponse makeGet(Headers headers, String relativeUrl, Map<String, String> queryParams) {
+        return given(headers).queryParams(queryParams).when().get(relativeUrl);
+    }
+
+    protected MockMvcResponse makeDelete(Headers headers, String relativeUrl, Map<String, String> queryParams) {
+        return given(headers).queryParams(queryParams).when().delete(relativeUrl);
+    }
+
+    protected MockMvcResponse makeDelete(Headers headers, String relativeUrl) {
+        return given(headers).when().delete(relativeUrl);
+    }
+
+    protected MultipartFile uploadFile(String fileNameWithoutExtension) throws IOException {
+        Path dirPath = Paths.get("src/test/resources/uploads/");
+        Path filePath = null;
+        String contentType = "application/octet-stream";
+
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(dirPath, fileNameWithoutExtension + ".*")) {
+            for (Path entry : stream) {
+                filePath = entry;
+                contentType = Files.probeContentType(filePath);
+                break;
+            }
+        }
+
+        if (filePath == null) {
+            throw new IOException("File not found: " + fileNameWithoutExtension);
+        }
+
+        byte[] content = Files.readAllBytes(filePath);
+        return new MockMultipartFile("file", filePath.getFileName().toString(), contentType, content);
+    }
+}
@@ -2,7 +2,6 @@ package sa.com.cloudsolutions.antikythera.base;
 
 import sa.com.cloudsolutions.antikythera.configurations.Configurations;
 import sa.com.cloudsolutions.antikythera.constants.StaticHeaders;
-import com.cloud.api.rest.APIRequester;
 import com.cloud.core.config.enums.ConfigKeys;
 import com.cloud.core.reporting.ExtentLogger;
 import com.cloud.core.testdataprovider.enums.DataProviderType;
@@ -10,10 +9,14 @@ import com.cloud.core.testdataprovider.utils.DataProviderUtil;
 import com.csi.support.api.dataService.TokenDataProvider;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import io.restassured.RestAssured;
+import io.restassured.builder.RequestSpecBuilder;
+import io.restassured.config.HttpClientConfig;
+import io.restassured.config.RestAssuredConfig;
 import io.restassured.http.Header;
 import io.restassured.http.Headers;
 import io.restassured.http.Method;
 import io.restassured.response.Response;
+import io.restassured.specification.RequestSpecification;
 import org.json.JSONObject;
 import org.springframework.mock.web.MockMultipartFile;
 import org.springframework.web.multipart.MultipartFile;
@@ -36,16 +39,30 @@ import java.util.stream.Collectors;
 
 import com.cloud.api.base.APIBaseTest;
 import com.cloud.api.base.APIBaseService;
-import com.cloud.api.base.APIBaseClass;
 
+/**
+ * Base class for the generated API tests.
+ *
+ * Each thread reuses one http client for all of its requests, and the client keeps its
+ * connection alive, so that a new connection does not have to be opened for every request.
+ * The headers and the request specification belong to the test instance, which allows the test
+ * classes to be run in parallel with the parallel profile of the pom.
+ */
 public abstract class TestHelper extends APIBaseTest {
 
-    private String baseURI;
+    private static final ThreadLocal<RestAssuredConfig> clientConfig = ThreadLocal.withInitial(() ->
+            RestAssuredConfig.config().httpClient(HttpClientConfig.httpClientConfig().reuseHttpClientInstance()));
+
+    private RequestSpecification requestSpec;
+    /**
+     * The headers sent with every request of this test class, including the authorization.
+     */
+    protected Headers headers;
     public static HashMap<String, String> loginProperties = null;
     public static HashMap<String, String> urlProperties = null;
     public static Header authorizationHeader = null;
 
-    protected static SoftAssert softAssert;
+    protected SoftAssert softAssert;
     protected static final ObjectMapper objectMapper = new ObjectMapper();
 
     APIBaseService apiBaseService = new APIBaseService();
@@ -63,8 +80,11 @@ public abstract class TestHelper extends APIBaseTest {
 
     @BeforeClass
     public void serviceSetUp()  {
-        baseURI = urlProperties.get("application.host") + urlProperties.get("application.version");
-        APIBaseClass.headers = new Headers(
+        requestSpec = new RequestSpecBuilder()
+                .setBaseUri(urlProperties.get("application.host") + urlProperties.get("application.version"))
+                .setRelaxedHTTPSValidation()
+                .build();
+        headers = new Headers(
                 StaticHeaders.CONTENT_TYPE_JSON,
                 StaticHeaders.X_GROUP,
                 StaticHeaders.X_HOSPITAL,
@@ -84,8 +104,17 @@ public abstract class TestHelper extends APIBaseTest {
         }
     }
 
+    /**
+     * Start a request on the pooled connections of this thread.
+     * @param relativeUrl the path relative to the application
+     * @param headers the headers to send
+     */
+    protected RequestSpecification given(String relativeUrl, Headers headers) {
+        return RestAssured.given().config(clientConfig.get()).spec(requestSpec)
+                .basePath(relativeUrl).headers(headers);
+    }
+
     protected Response checkTiming(Response response) {
-        APIRequester.authentication = APIRequester.DEFAULT_AUTH;
         ExtentLogger.info("API took " + response.getTimeIn(TimeUnit.MILLISECONDS) + " milliseconds");
         if (checkApiPerformance) {
             softAssert.assertTrue(response.getTimeIn(TimeUnit.MILLISECONDS) <= (long)apiPerformanceSla, "API didn't met the performance SLA of " + apiPerformanceSla + " milliseconds");
@@ -94,124 +123,56 @@ public abstract class TestHelper extends APIBaseTest {
     }
 
     protected Response makePost(String body, Headers headers, String relativeUrl)  {
-        APIRequester.setBaseURI(baseURI);
-        APIRequester.setBasePath(relativeUrl);
-
-        Response response = RestAssured.given().relaxedHTTPSValidation().headers(headers).body(body).when().request(Method.POST);
-        APIRequester.resetBasePath();
-        APIRequester.resetBaseURI();
-
-        return response;
+        return given(relativeUrl, headers).body(body).when().request(Method.POST);
     }
 
     protected Response makePost(MultipartFile file, Headers headers, String relativeUrl) throws IOException {
-        APIRequester.setBaseURI(baseURI);
-        APIRequester.setBasePath(relativeUrl);
-
         Headers filteredHeaders = new Headers(headers.asList().stream()
                 .filter(header -> !header.getName().equalsIgnoreCase("Content-Type"))
                 .collect(Collectors.toList()));
 
-        Response response = RestAssured.given()
-                .relaxedHTTPSValidation()
-                .headers(filteredHeaders)
+        return given(relativeUrl, filteredHeaders)
                 .multiPart("file", file.getOriginalFilename(), file.getInputStream(), file.getContentType())
                 .when()
                 .request(Method.POST);
-
-        APIRequester.resetBasePath();
-        APIRequester.resetBaseURI();
-
-        return response;
     }
 
     protected Response makePost(String body, Headers headers, String relativeUrl, Map<String, String> queryParams)  {
-        APIRequester.setBaseURI(baseURI);
-        APIRequester.setBasePath(relativeUrl);
-
-        Response response = RestAssured.given().relaxedHTTPSValidation().headers(headers)
+        return given(relativeUrl, headers)
                 .queryParams(queryParams)
                 .body(body)
                 .when().request(Method.POST);
-        APIRequester.resetBasePath();
-        APIRequester.resetBaseURI();
-
-        return response;
     }
 
     protected Response makePut(String body, Headers headers, String relativeUrl)  {
-        APIRequester.setBaseURI(baseURI);
-        APIRequester.setBasePath(relativeUrl);
-
-        Response response = RestAssured.given().relaxedHTTPSValidation().headers(headers).body(body).when().request(Method.PUT);
-        APIRequester.resetBasePath();
-        APIRequester.resetBaseURI();
-
-        return response;
+        return given(relativeUrl, headers).body(body).when().request(Method.PUT);
     }
 
     protected Response makePut(String body, Headers headers, String relativeUrl, Map<String, String> queryParams)  {
-        APIRequester.setBaseURI(baseURI);
-        APIRequester.setBasePath(relativeUrl);
-
-        Response response = RestAssured.given().relaxedHTTPSValidation().headers(headers)
+        return given(relativeUrl, headers)
                 .body(body).when().queryParams(queryParams)
                 .request(Method.PUT);
-        APIRequester.resetBasePath();
-        APIRequester.resetBaseURI();
-
-        return response;
     }
 
     protected Response makeGet( Headers headers, String relativeUrl)  {
-
-        APIRequester.setBaseURI(baseURI);
-        APIRequester.setBasePath(relativeUrl);
-
-        Response response = RestAssured.given().relaxedHTTPSValidation().headers(headers).when().request(Method.GET);
-        APIRequester.resetBasePath();
-        APIRequester.resetBaseURI();
-
-        return response;
+        return given(relativeUrl, headers).when().request(Method.GET);
     }
 
 
     protected Response makeGet( Headers headers, String relativeUrl, Map<String, String> queryParams)  {
-        APIRequester.setBaseURI(baseURI);
-        APIRequester.setBasePath(relativeUrl);
-
-        Response response = RestAssured.given().relaxedHTTPSValidation()
-                .headers(headers).when()
+        return given(relativeUrl, headers).when()
                 .queryParams(queryParams)
                 .request(Method.GET);
-        APIRequester.resetBasePath();
-        APIRequester.resetBaseURI();
-
-        return response;
     }
 
     protected Response makeDelete( Headers headers, String relativeUrl, Map<String, String> queryParams)  {
-        APIRequester.setBaseURI(baseURI);
-        APIRequester.setBasePath(relativeUrl);
-
-        Response response = RestAssured.given().relaxedHTTPSValidation().headers(headers)
+        return given(relativeUrl, headers)
                 .when().queryParams(queryParams)
                 .request(Method.DELETE);
-        APIRequester.resetBasePath();
-        APIRequester.resetBaseURI();
-
-        return response;
     }
 
     protected Response makeDelete( Headers headers, String relativeUrl)  {
-        APIRequester.setBaseURI(baseURI);
-        APIRequester.setBasePath(relativeUrl);
-
-        Response response = RestAssured.given().relaxedHTTPSValidation().headers(headers).when().request(Method.DELETE);
-        APIRequester.resetBasePath();
-        APIRequester.resetBaseURI();
-
-        return response;
+        return given(relativeUrl, headers).when().request(Method.DELETE);
     }
 
     protected void checkStatusCode(Response response) {
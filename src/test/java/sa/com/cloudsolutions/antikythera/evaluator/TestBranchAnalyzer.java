@@ -0,0 +1,154 @@
+package sa.com.cloudsolutions.antikythera.evaluator;
+
+import com.github.javaparser.StaticJavaParser;
+import com.github.javaparser.ast.CompilationUnit;
+import com.github.javaparser.ast.body.MethodDeclaration;
+import com.github.javaparser.ast.stmt.IfStmt;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class TestBranchAnalyzer {
+    private static CompilationUnit cu;
+
+    @BeforeAll
+    static void setup() {
+        cu = StaticJavaParser.parse("""
+                public class Pruned {
+                    private static final boolean DEBUG = false;
+                    private static final int LIMIT = 10;
+                    private Object cache;
+                    private int count;
+
+                    public void constantFlag(int a) {
+                        if (DEBUG && a > 0) {
+                            System.out.println(a);
+                        }
+                    }
+
+                    public void constantComparison(int a) {
+                        if (LIMIT > 5) {
+                            if (a > 0) {
+                                System.out.println(a);
+                            }
+                        }
+                    }
+
+                    public void nestedGuard(String s) {
+                        if (s == null) {
+                            if (s != null) {
+                                System.out.println(s);
+                            }
+                        }
+                    }
+
+                    public void earlyReturn(String s, int a) {
+                        if (s == null) {
+                            return;
+                        }
+                        if (null == s && a > 3) {
+                            System.out.println(s);
+                        }
+                    }
+
+                    public void elseGuard(int a) {
+                        if (a < 5) {
+                            System.out.println(a);
+                        } else if (a >= 5) {
+                            System.out.println(a);
+                        }
+                    }
+
+                    public void localConstant(int a) {
+                        boolean verbose = true;
+                        if (verbose || a > 0) {
+                            System.out.println(a);
+                        }
+                    }
+
+                    public void reassigned(int a) {
+                        if (a > 0) {
+                            a = -1;
+                            if (a > 0) {
+                                System.out.println(a);
+                            }
+                        }
+                    }
+
+                    public void fieldChangedByCall(int a) {
+                        if (cache == null) {
+                            load();
+                            if (cache == null || a > 0) {
+                                System.out.println("missing");
+                            }
+                        }
+                    }
+
+                    public void fieldAssignedThroughThis(int a) {
+                        if (count > 0) {
+                            this.count = 0;
+                            if (count > 0 || a > 0) {
+                                System.out.println(count);
+                            }
+                        }
+                    }
+
+                    private void load() {
+                        this.cache = new Object();
+                    }
+
+                    public void undecided(int a, int b) {
+                        if (a > 0) {
+                            if (b > 0) {
+                                System.out.println(a);
+                            }
+                        }
+                    }
+                }
+                """);
+    }
+
+    @BeforeEach
+    void clear() {
+        Branching.clear();
+    }
+
+    @ParameterizedTest
+    @CsvSource({"constantFlag, 0", "constantComparison, 1", "nestedGuard, 1", "earlyReturn, 1",
+            "elseGuard, 1", "localConstant, 0", "reassigned, 2", "undecided, 2", "fieldChangedByCall, 1",
+            "fieldAssignedThroughThis, 1"})
+    void testBranchingCount(String name, int count) {
+        MethodDeclaration md = method(name);
+        md.accept(new ConditionVisitor(), null);
+        assertEquals(count, Branching.size(md));
+    }
+
+    @ParameterizedTest
+    @CsvSource({"constantFlag, false", "nestedGuard, false", "earlyReturn, false", "elseGuard, true", "localConstant, true"})
+    void testDecide(String name, boolean expected) {
+        MethodDeclaration md = method(name);
+        List<IfStmt> ifs = md.findAll(IfStmt.class);
+        BranchAnalyzer analyzer = new BranchAnalyzer(md);
+        assertEquals(Optional.of(expected), analyzer.decide(ifs.getLast().getCondition()));
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"reassigned", "undecided", "fieldChangedByCall", "fieldAssignedThroughThis"})
+    void testUndecided(String name) {
+        MethodDeclaration md = method(name);
+        List<IfStmt> ifs = md.findAll(IfStmt.class);
+        BranchAnalyzer analyzer = new BranchAnalyzer(md);
+        assertEquals(Optional.empty(), analyzer.decide(ifs.getLast().getCondition()));
+    }
+
+    private static MethodDeclaration method(String name) {
+        return cu.findFirst(MethodDeclaration.class, m -> m.getNameAsString().equals(name)).orElseThrow();
+    }
+}
@@ -0,0 +1,120 @@
+package sa.com.cloudsolutions.antikythera.evaluator;
+
+import com.github.javaparser.StaticJavaParser;
+import com.github.javaparser.ast.CompilationUnit;
+import com.github.javaparser.ast.Node;
+import com.github.javaparser.ast.body.MethodDeclaration;
+import com.github.javaparser.ast.stmt.SwitchEntry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import sa.com.cloudsolutions.antikythera.configuration.Settings;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.mockito.Mockito.spy;
+
+class TestBranchCoverage {
+    private CompilationUnit cu;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        Settings.loadConfigMap(new File("src/test/resources/generator.yml"));
+        cu = StaticJavaParser.parse("""
+                public class Brancher {
+                    public int pick(int a) {
+                        int r = 0;
+                        switch (a) {
+                            case 1:
+                                r = 10;
+                                break;
+                            case 2:
+                                r = 20;
+                                break;
+                            default:
+                                r = -1;
+                        }
+                        return r;
+                    }
+
+                    public int count(int n) {
+                        int c = 0;
+                        for (int i = 0; i < n; i++) {
+                            c++;
+                        }
+                        while (c > 5) {
+                            c--;
+                        }
+                        return c;
+                    }
+
+                    public int guard(int a) {
+                        try {
+                            if (a > 0) {
+                                throw new IllegalStateException();
+                            }
+                            return 1;
+                        } catch (IllegalStateException e) {
+                            return 2;
+                        }
+                    }
+                }
+                """);
+        AntikytheraRunTime.addCompilationUnit("Brancher", cu);
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        AntikytheraRunTime.forget("Brancher");
+        AntikytheraRunTime.reset();
+        Settings.loadConfigMap(new File("src/test/resources/generator.yml"));
+    }
+
+    /**
+     * Run a method and collect the branches that it reported as node and outcome pairs.
+     */
+    private List<String> branches(String method, int argument) throws ReflectiveOperationException {
+        Evaluator evaluator = spy(EvaluatorFactory.create("Brancher", Evaluator.class));
+        MethodDeclaration md = cu.findFirst(MethodDeclaration.class,
+                m -> m.getNameAsString().equals(method)).orElseThrow();
+        AntikytheraRunTime.push(new Variable(argument));
+        evaluator.executeMethod(md);
+
+        return Mockito.mockingDetails(evaluator).getInvocations().stream()
+                .filter(i -> i.getMethod().getName().equals("branchTaken"))
+                .map(i -> describe(i.getArgument(0)) + "@" + i.getArgument(1))
+                .toList();
+    }
+
+    private String describe(Node node) {
+        if (node instanceof SwitchEntry entry) {
+            return entry.getLabels().isEmpty() ? "default" : "case " + entry.getLabels().getFirst().orElseThrow();
+        }
+        return node.getClass().getSimpleName();
+    }
+
+    @Test
+    void testSwitchEntries() throws ReflectiveOperationException {
+        assertEquals(List.of("case 1@true"), branches("pick", 1));
+        assertEquals(List.of("case 2@true"), branches("pick", 2));
+        assertEquals(List.of("default@true"), branches("pick", 7));
+        assertNotEquals(branches("pick", 1), branches("pick", 2));
+    }
+
+    @Test
+    void testLoops() throws ReflectiveOperationException {
+        assertEquals(List.of("ForStmt@false", "WhileStmt@false"), branches("count", 0));
+        assertEquals(List.of("ForStmt@true", "WhileStmt@true"), branches("count", 7));
+    }
+
+    @Test
+    void testCatchClause() throws ReflectiveOperationException {
+        assertEquals(List.of("IfStmt@false"), branches("guard", 0));
+        assertEquals(List.of("IfStmt@true", "CatchClause@true"), branches("guard", 1));
+    }
+}
@@ -0,0 +1,137 @@
+package sa.com.cloudsolutions.antikythera.evaluator;
+
+import com.github.javaparser.StaticJavaParser;
+import com.github.javaparser.ast.body.MethodDeclaration;
+import com.github.javaparser.ast.body.Parameter;
+import com.github.javaparser.ast.expr.NameExpr;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import sa.com.cloudsolutions.antikythera.generator.QueryMethodArgument;
+import sa.com.cloudsolutions.antikythera.generator.RepositoryQuery;
+import sa.com.cloudsolutions.antikythera.parser.Callable;
+import sa.com.cloudsolutions.antikythera.parser.QueryResult;
+
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class TestDatabaseArgumentGenerator {
+    private static final Parameter NAME = StaticJavaParser.parseParameter("String name");
+
+    @AfterEach
+    void tearDown() {
+        DatabaseArgumentGenerator.setQuery(null);
+    }
+
+    @Test
+    void testEachRoundGetsAnotherRow() throws SQLException {
+        RepositoryQuery query = query();
+        query.setSimplifedResultSet(names("alice", "bob"));
+        query.setCandidateResultSet(names(null, "carol"));
+
+        assertEquals(Arrays.asList("alice", null, "carol", null), rounds(query, 4));
+    }
+
+    @Test
+    void testWithoutCandidatesTheSimplifiedRowsAreUsed() throws SQLException {
+        RepositoryQuery query = query();
+        query.setSimplifedResultSet(names("alice", "bob"));
+
+        assertEquals(List.of("alice", "bob", "alice"), rounds(query, 3));
+    }
+
+    @Test
+    void testContextsKeepTheirOwnQuery() throws Exception {
+        RepositoryQuery people = query();
+        people.setSimplifedResultSet(names("alice", "bob"));
+        RepositoryQuery others = query();
+        others.setSimplifedResultSet(names("zed", "yan"));
+
+        CyclicBarrier barrier = new CyclicBarrier(2);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<List<Object>> first = executor.submit(() -> interleaved(people, barrier));
+            Future<List<Object>> second = executor.submit(() -> interleaved(others, barrier));
+
+            assertEquals(List.of("alice", "bob"), first.get(10, TimeUnit.SECONDS));
+            assertEquals(List.of("zed", "yan"), second.get(10, TimeUnit.SECONDS));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Two rounds in a context of its own, waiting for the other thread between setting the query
+     * and reading the argument, so that the two threads really do overlap.
+     */
+    private static List<Object> interleaved(RepositoryQuery query, CyclicBarrier barrier) throws Exception {
+        return new EvaluationContext().call(() -> {
+            List<Object> values = new ArrayList<>();
+            for (int i = 0; i < 2; i++) {
+                DatabaseArgumentGenerator.setQuery(query);
+                barrier.await(10, TimeUnit.SECONDS);
+                DatabaseArgumentGenerator generator = new DatabaseArgumentGenerator();
+                generator.generateArgument(NAME);
+                values.add(generator.getArguments().get("name").getValue());
+                AntikytheraRunTime.pop();
+                barrier.await(10, TimeUnit.SECONDS);
+            }
+            return values;
+        });
+    }
+
+    private static List<Object> rounds(RepositoryQuery query, int count) {
+        List<Object> values = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            DatabaseArgumentGenerator.setQuery(query);
+            DatabaseArgumentGenerator generator = new DatabaseArgumentGenerator();
+            generator.generateArgument(NAME);
+            values.add(generator.getArguments().get("name").getValue());
+            AntikytheraRunTime.pop();
+        }
+        return values;
+    }
+
+    private static RepositoryQuery query() {
+        MethodDeclaration md = StaticJavaParser.parseMethodDeclaration("List<Person> findByName(String name);");
+        RepositoryQuery query = new RepositoryQuery();
+        query.setMethodDeclaration(new Callable(md, null));
+        query.getMethodParameters().getFirst().setColumnName("name");
+        query.getMethodArguments().add(new QueryMethodArgument(new NameExpr("name"), 0, new Variable("x")));
+        assertNull(query.getCandidateResultSet());
+        return query;
+    }
+
+    private static QueryResult names(String... values) throws SQLException {
+        ResultSetMetaData metaData = mock(ResultSetMetaData.class);
+        when(metaData.getColumnCount()).thenReturn(1);
+        when(metaData.getColumnLabel(1)).thenReturn("NAME");
+        when(metaData.getColumnType(1)).thenReturn(Types.VARCHAR);
+
+        ResultSet rs = mock(ResultSet.class);
+        when(rs.getMetaData()).thenReturn(metaData);
+        Boolean[] more = new Boolean[values.length];
+        for (int i = 0; i < values.length; i++) {
+            more[i] = i < values.length - 1;
+        }
+        when(rs.next()).thenReturn(true, more);
+        Object[] rest = new Object[values.length - 1];
+        System.arraycopy(values, 1, rest, 0, rest.length);
+        when(rs.getObject(1)).thenReturn(values[0], rest);
+        return QueryResult.materialize(rs);
+    }
+}
@@ -0,0 +1,139 @@
+package sa.com.cloudsolutions.antikythera.evaluator;
+
+import com.github.javaparser.StaticJavaParser;
+import com.github.javaparser.ast.CompilationUnit;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import sa.com.cloudsolutions.antikythera.parser.EntityIndex;
+import sa.com.cloudsolutions.antikythera.parser.QueryResult;
+
+import java.math.BigDecimal;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Types;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class TestEntityMappingPlan {
+    private static final CompilationUnit PERSON = StaticJavaParser.parse("""
+            public class Person {
+                private Long id;
+                private String firstName;
+                private Boolean active;
+                private String notInTable;
+            }
+            """);
+
+    private static final CompilationUnit ANNOTATED = StaticJavaParser.parse("""
+            @Entity
+            public class Member {
+                @Id
+                @Column(name = "member_key")
+                private Long id;
+                @Column(name = "given_name")
+                private String firstName;
+            }
+            """);
+
+    @AfterEach
+    void tearDown() {
+        EntityMappingPlan.clear();
+        EntityIndex.clear();
+    }
+
+    @Test
+    void testPlanIsSharedAndConvertsValues() throws SQLException {
+        QueryResult result = QueryResult.materialize(personResultSet());
+        EntityMappingPlan plan = EntityMappingPlan.get("Person", PERSON, result);
+        assertSame(plan, EntityMappingPlan.get("Person", PERSON, result));
+        assertEquals(3, plan.size());
+
+        Evaluator evaluator = mock(Evaluator.class);
+        plan.apply(evaluator, result, 1);
+
+        assertEquals(2L, captureField(evaluator, "id").getValue());
+        assertEquals("Bob", captureField(evaluator, "firstName").getValue());
+        Variable active = captureField(evaluator, "active");
+        assertEquals(false, active.getValue());
+        assertEquals("Boolean", active.getType().asString());
+    }
+
+    @Test
+    void testNullsStayNull() throws SQLException {
+        QueryResult result = QueryResult.materialize(personResultSet());
+        Evaluator evaluator = mock(Evaluator.class);
+        EntityMappingPlan.get("Person", PERSON, result).apply(evaluator, result, 0);
+
+        assertEquals(1L, captureField(evaluator, "id").getValue());
+        assertNull(captureField(evaluator, "firstName").getValue());
+    }
+
+    @Test
+    void testForgottenEntityGetsANewPlan() throws SQLException {
+        QueryResult result = QueryResult.materialize(personResultSet());
+        EntityMappingPlan plan = EntityMappingPlan.get("Person", PERSON, result);
+        EntityMappingPlan.forget("PersonDetail");
+        assertSame(plan, EntityMappingPlan.get("Person", PERSON, result));
+
+        AntikytheraRunTime.forget("Person");
+        assertNotSame(plan, EntityMappingPlan.get("Person", PERSON, result));
+    }
+
+    @Test
+    void testColumnsComeFromTheEntityIndex() throws SQLException {
+        ResultSetMetaData metaData = mock(ResultSetMetaData.class);
+        when(metaData.getColumnCount()).thenReturn(2);
+        when(metaData.getColumnLabel(1)).thenReturn("MEMBER_KEY");
+        when(metaData.getColumnLabel(2)).thenReturn("GIVEN_NAME");
+        when(metaData.getColumnType(1)).thenReturn(Types.NUMERIC);
+        when(metaData.getColumnType(2)).thenReturn(Types.VARCHAR);
+        ResultSet rs = mock(ResultSet.class);
+        when(rs.getMetaData()).thenReturn(metaData);
+        when(rs.next()).thenReturn(true, false);
+        when(rs.getObject(1)).thenReturn(new BigDecimal(7));
+        when(rs.getObject(2)).thenReturn("Alice");
+
+        QueryResult result = QueryResult.materialize(rs);
+        EntityMappingPlan plan = EntityMappingPlan.get("Member", ANNOTATED, result);
+        assertEquals(2, plan.size());
+
+        Evaluator evaluator = mock(Evaluator.class);
+        plan.apply(evaluator, result, 0);
+        assertEquals(7L, captureField(evaluator, "id").getValue());
+        assertEquals("Alice", captureField(evaluator, "firstName").getValue());
+    }
+
+    private static Variable captureField(Evaluator evaluator, String name) {
+        ArgumentCaptor<Variable> captor = ArgumentCaptor.forClass(Variable.class);
+        verify(evaluator).setField(eq(name), captor.capture());
+        return captor.getValue();
+    }
+
+    private static ResultSet personResultSet() throws SQLException {
+        ResultSetMetaData metaData = mock(ResultSetMetaData.class);
+        when(metaData.getColumnCount()).thenReturn(3);
+        when(metaData.getColumnLabel(1)).thenReturn("ID");
+        when(metaData.getColumnLabel(2)).thenReturn("FIRST_NAME");
+        when(metaData.getColumnLabel(3)).thenReturn("ACTIVE");
+        when(metaData.getColumnType(1)).thenReturn(Types.NUMERIC);
+        when(metaData.getColumnType(2)).thenReturn(Types.VARCHAR);
+        when(metaData.getColumnType(3)).thenReturn(Types.NUMERIC);
+
+        ResultSet rs = mock(ResultSet.class);
+        when(rs.getMetaData()).thenReturn(metaData);
+        when(rs.next()).thenReturn(true, true, false);
+        when(rs.getObject(1)).thenReturn(new BigDecimal(1), new BigDecimal(2));
+        when(rs.getObject(2)).thenReturn(null, "Bob");
+        when(rs.getObject(3)).thenReturn(BigDecimal.ONE, BigDecimal.ZERO);
+        return rs;
+    }
+}
@@ -0,0 +1,96 @@
+package sa.com.cloudsolutions.antikythera.evaluator;
+
+import com.github.javaparser.ast.CompilationUnit;
+import com.github.javaparser.ast.ImportDeclaration;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import sa.com.cloudsolutions.antikythera.depsolver.Graph;
+import sa.com.cloudsolutions.antikythera.evaluator.mock.MockingRegistry;
+import sa.com.cloudsolutions.antikythera.generator.TestGenerator;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TestEvaluationContext {
+
+    @AfterEach
+    void tearDown() {
+        AntikytheraRunTime.reset();
+        MockingRegistry.reset();
+    }
+
+    @Test
+    void testRunRestoresThePreviousContext() {
+        EvaluationContext shared = EvaluationContext.current();
+        EvaluationContext context = new EvaluationContext();
+
+        context.run(() -> {
+            assertSame(context, EvaluationContext.current());
+            AntikytheraRunTime.push(new Variable(1));
+            MockingRegistry.markAsMocked("com.example.Service");
+            TestGenerator.addImport(new ImportDeclaration("com.example.Service", false, false));
+        });
+
+        assertSame(shared, EvaluationContext.current());
+        assertTrue(AntikytheraRunTime.isEmptyStack());
+        assertFalse(MockingRegistry.isMockTarget("com.example.Service"));
+        assertEquals(1, context.getStack().size());
+        assertTrue(context.getMockedFields().containsKey("com.example.Service"));
+        assertEquals(1, context.getImports().size());
+    }
+
+    @Test
+    void testWorkersDoNotShareState() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<EvaluationContext> first = executor.submit(EvaluationContext::current);
+            assertSame(EvaluationContext.current(), first.get());
+
+            EvaluationContext a = new EvaluationContext();
+            EvaluationContext b = new EvaluationContext();
+            Future<Long> fa = executor.submit(() -> sequences(a));
+            Future<Long> fb = executor.submit(() -> sequences(b));
+            assertEquals(100L, fa.get());
+            assertEquals(100L, fb.get());
+            assertNotSame(a.getStack(), b.getStack());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void testSessionsKeepTheirOwnDependencyGraph() {
+        EvaluationContext session = new EvaluationContext();
+        session.run(() -> Graph.getDependencies().put("com.example.Service", new CompilationUnit()));
+
+        assertFalse(Graph.getDependencies().containsKey("com.example.Service"));
+        assertTrue(session.getDependencies().containsKey("com.example.Service"));
+    }
+
+    @Test
+    void testEvaluatorRemembersItsContext() {
+        EvaluationContext session = new EvaluationContext();
+        Evaluator eval = session.call(() -> EvaluatorFactory.createLazily("com.example.Service", Evaluator.class));
+
+        assertSame(session, eval.getEvaluationContext());
+        assertSame(EvaluationContext.current(),
+                EvaluatorFactory.createLazily("com.example.Service", Evaluator.class).getEvaluationContext());
+    }
+
+    private static long sequences(EvaluationContext context) {
+        long[] last = new long[1];
+        context.run(() -> {
+            for (int i = 0; i < 100; i++) {
+                last[0] = EvaluationContext.current().nextSequence();
+            }
+        });
+        return last[0];
+    }
+}
@@ -0,0 +1,92 @@
+package sa.com.cloudsolutions.antikythera.evaluator;
+
+import com.github.javaparser.StaticJavaParser;
+import com.github.javaparser.ast.CompilationUnit;
+import com.github.javaparser.ast.body.MethodDeclaration;
+import com.github.javaparser.ast.expr.Expression;
+import com.github.javaparser.ast.stmt.IfStmt;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+import org.mockito.Mockito;
+import sa.com.cloudsolutions.antikythera.configuration.Settings;
+import sa.com.cloudsolutions.antikythera.generator.TruthTable;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.spy;
+
+class TestMCDCExploration {
+    private CompilationUnit cu;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        Settings.loadConfigMap(new File("src/test/resources/generator.yml"));
+        cu = StaticJavaParser.parse("""
+                public class Checker {
+                    public String check(int a, int b, int c) {
+                        if (a > 0 && b > 0 && c > 0) {
+                            return "all";
+                        }
+                        return "some";
+                    }
+                }
+                """);
+        AntikytheraRunTime.addCompilationUnit("Checker", cu);
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        AntikytheraRunTime.forget("Checker");
+        AntikytheraRunTime.reset();
+        Settings.loadConfigMap(new File("src/test/resources/generator.yml"));
+    }
+
+    /**
+     * Each of the three conditions has to be shown to change the outcome on its own, which takes
+     * four rows of the truth table and so four executions of the method.
+     */
+    @ParameterizedTest
+    @CsvSource({"false, 2", "true, 4"})
+    void testIterations(boolean mcdc, int expected) throws ReflectiveOperationException {
+        Settings.setProperty(SpringEvaluator.MCDC, mcdc);
+        SpringEvaluator evaluator = spy(EvaluatorFactory.create("Checker", SpringEvaluator.class));
+        evaluator.setCompilationUnit(cu);
+        evaluator.setArgumentGenerator(new DummyArgumentGenerator());
+        MethodDeclaration md = cu.findFirst(MethodDeclaration.class).orElseThrow();
+
+        evaluator.visit(md);
+
+        assertEquals(expected, Mockito.mockingDetails(evaluator).getInvocations().stream()
+                .filter(i -> i.getMethod().getName().equals("executeMethod")).count());
+    }
+
+    @Test
+    void testTargetAgreesWithTheRowApplied() {
+        IfStmt ifStmt = cu.findFirst(IfStmt.class).orElseThrow();
+        LineOfCode line = new LineOfCode(ifStmt);
+        line.setCoverageRows(List.of(row(true), row(false), row(false), row(false)));
+
+        int iterations = 0;
+        while (!line.isFullyTravelled()) {
+            boolean state = line.isFalsePath();
+            assertEquals(state, line.nextCoverageRow(state).get(TruthTable.RESULT));
+            line.transition();
+            iterations++;
+        }
+        assertEquals(4, iterations);
+    }
+
+    private static Map<Expression, Object> row(boolean result) {
+        Map<Expression, Object> row = new HashMap<>();
+        row.put(TruthTable.RESULT, result);
+        return row;
+    }
+}
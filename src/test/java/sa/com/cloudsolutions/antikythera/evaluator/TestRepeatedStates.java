@@ -0,0 +1,60 @@
+package sa.com.cloudsolutions.antikythera.evaluator;
+
+import com.github.javaparser.StaticJavaParser;
+import com.github.javaparser.ast.CompilationUnit;
+import com.github.javaparser.ast.body.MethodDeclaration;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import sa.com.cloudsolutions.antikythera.configuration.Settings;
+
+import java.io.File;
+import java.io.IOException;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+class TestRepeatedStates {
+    private CompilationUnit cu;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        Settings.loadConfigMap(new File("src/test/resources/generator.yml"));
+        cu = StaticJavaParser.parse("""
+                public class Greeter {
+                    public String greet(String name) {
+                        if (name.length() > 3) {
+                            return "long";
+                        }
+                        return "short";
+                    }
+                }
+                """);
+        AntikytheraRunTime.addCompilationUnit("Greeter", cu);
+    }
+
+    @AfterEach
+    void tearDown() {
+        AntikytheraRunTime.forget("Greeter");
+        AntikytheraRunTime.reset();
+    }
+
+    @Test
+    void testRepeatedStateIsNotExecuted() throws ReflectiveOperationException {
+        SpringEvaluator evaluator = spy(EvaluatorFactory.create("Greeter", SpringEvaluator.class));
+        evaluator.setCompilationUnit(cu);
+        evaluator.setArgumentGenerator(new DummyArgumentGenerator());
+        MethodDeclaration md = cu.findFirst(MethodDeclaration.class).orElseThrow();
+
+        doReturn("same").when(evaluator).fingerprint(md);
+        int skipped = SpringEvaluator.getSkippedStates();
+        evaluator.visit(md);
+
+        verify(evaluator, times(1)).executeMethod(md);
+        assertTrue(SpringEvaluator.getSkippedStates() > skipped);
+        assertTrue(AntikytheraRunTime.isEmptyStack());
+    }
+}
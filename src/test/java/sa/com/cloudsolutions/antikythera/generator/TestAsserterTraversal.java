@@ -0,0 +1,113 @@
+package sa.com.cloudsolutions.antikythera.generator;
+
+import com.github.javaparser.StaticJavaParser;
+import com.github.javaparser.ast.stmt.BlockStmt;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import sa.com.cloudsolutions.antikythera.configuration.Settings;
+import sa.com.cloudsolutions.antikythera.evaluator.AntikytheraRunTime;
+import sa.com.cloudsolutions.antikythera.evaluator.Evaluator;
+import sa.com.cloudsolutions.antikythera.evaluator.Variable;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class TestAsserterTraversal {
+
+    public static class Customer {
+        private final String name;
+        private Customer referrer;
+
+        public Customer(String name) {
+            this.name = name;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public Customer getReferrer() {
+            return referrer;
+        }
+    }
+
+    private Evaluator order;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        Settings.loadConfigMap(new File("src/test/resources/generator.yml"));
+        AntikytheraRunTime.addType("com.example.Order", new TypeWrapper(StaticJavaParser.parseTypeDeclaration("""
+                public class Order {
+                    private static final long serialVersionUID = 1L;
+                    private String code;
+                    private Customer customer;
+                    private java.util.List<Customer> lines;
+                }
+                """)));
+
+        Customer customer = new Customer("Alice");
+        customer.referrer = customer;
+
+        order = mock(Evaluator.class);
+        when(order.getClassName()).thenReturn("com.example.Order");
+        when(order.getField("code")).thenReturn(new Variable("X".repeat(300)));
+        when(order.getField("customer")).thenReturn(new Variable(customer));
+        when(order.getField("lines")).thenReturn(new Variable(List.of(new Customer("Bob"))));
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        AntikytheraRunTime.forget("com.example.Order");
+        Settings.loadConfigMap(new File("src/test/resources/generator.yml"));
+    }
+
+    private List<String> asserts() {
+        MethodResponse response = new MethodResponse();
+        response.setBody(new Variable(order));
+        BlockStmt body = new BlockStmt();
+        new JunitAsserter().addFieldAsserts(response, body);
+        return body.getStatements().stream().map(s -> s.toString()).toList();
+    }
+
+    @Test
+    void testTopLevelOnlyByDefault() {
+        assertEquals(List.of(
+                "assertEquals(300, resp.getCode().length());",
+                "assertNotNull(resp.getCustomer());",
+                "assertEquals(1, resp.getLines().size());"), asserts());
+    }
+
+    @Test
+    void testNestedObjectsStopAtCycles() {
+        Settings.setProperty("assertions.depth", 3);
+        Settings.setProperty("assertions.collection_sample", 1);
+        Settings.setProperty("assertions.max_literal", 500);
+
+        assertEquals(List.of(
+                "assertEquals(\"" + "X".repeat(300) + "\", resp.getCode());",
+                "assertNotNull(resp.getCustomer());",
+                "assertEquals(\"Alice\", resp.getCustomer().getName());",
+                "assertNotNull(resp.getCustomer().getReferrer());",
+                "assertEquals(1, resp.getLines().size());",
+                "assertNotNull(resp.getLines().get(0));",
+                "assertEquals(\"Bob\", resp.getLines().get(0).getName());"), asserts());
+    }
+
+    @Test
+    void testStringsAreEscaped() {
+        when(order.getField("code")).thenReturn(new Variable("say \"hi\" c:\\x"));
+        assertEquals("assertEquals(\"say \\\"hi\\\" c:\\\\x\", resp.getCode());", asserts().getFirst());
+    }
+
+    @Test
+    void testFieldsPerObjectAreLimited() {
+        Settings.setProperty("assertions.fields", 2);
+        assertEquals(2, asserts().size());
+    }
+}
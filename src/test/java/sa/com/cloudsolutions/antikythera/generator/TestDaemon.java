@@ -0,0 +1,88 @@
+package sa.com.cloudsolutions.antikythera.generator;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import sa.com.cloudsolutions.antikythera.configuration.Settings;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TestDaemon {
+    private final ObjectMapper mapper = new ObjectMapper();
+    private Daemon daemon;
+
+    @BeforeEach
+    void setUp() {
+        daemon = new Daemon();
+    }
+
+    @Test
+    void testMalformedJob() throws IOException {
+        JsonNode reply = mapper.readTree(daemon.handle("services: com.example.Service"));
+        assertEquals("error", reply.get("status").asText());
+        assertTrue(reply.has("millis"));
+    }
+
+    @Test
+    void testUnknownService() throws IOException {
+        JsonNode reply = mapper.readTree(daemon.handle("{\"id\": 7, \"services\": [\"com.example.NoSuchService\"]}"));
+        assertEquals(7, reply.get("id").asInt());
+        assertEquals("error", reply.get("status").asText());
+
+        JsonNode result = reply.get("results").get(0);
+        assertEquals("com.example.NoSuchService", result.get("service").asText());
+        assertEquals("Not found: com.example.NoSuchService", result.get("error").asText());
+    }
+
+    @Test
+    void testStopEndsTheSession() throws IOException {
+        StringWriter out = new StringWriter();
+        daemon.serve(new StringReader("""
+                {"id": "a"}
+                {"command": "stop"}
+                {"id": "b"}
+                """), out);
+
+        String[] replies = out.toString().strip().split("\\R");
+        assertEquals(2, replies.length);
+        assertEquals("ok", mapper.readTree(replies[0]).get("status").asText());
+        assertEquals("stopped", mapper.readTree(replies[1]).get("status").asText());
+    }
+
+    @Test
+    void testStandardOutputOnlyCarriesReplies() throws IOException {
+        Settings.loadConfigMap(new File("src/test/resources/generator.yml"));
+        InputStream in = System.in;
+        PrintStream out = System.out;
+        PrintStream err = System.err;
+        ByteArrayOutputStream replies = new ByteArrayOutputStream();
+        ByteArrayOutputStream log = new ByteArrayOutputStream();
+        try {
+            System.setIn(new ByteArrayInputStream("{\"id\": \"a\"}\n".getBytes(StandardCharsets.UTF_8)));
+            System.setOut(new PrintStream(replies, true, StandardCharsets.UTF_8));
+            System.setErr(new PrintStream(log, true, StandardCharsets.UTF_8));
+            daemon.serve();
+        } finally {
+            System.setIn(in);
+            System.setOut(out);
+            System.setErr(err);
+        }
+
+        String[] lines = replies.toString(StandardCharsets.UTF_8).strip().split("\\R");
+        assertEquals(1, lines.length);
+        assertEquals("a", mapper.readTree(lines[0]).get("id").asText());
+        assertTrue(log.toString(StandardCharsets.UTF_8).contains("Reading jobs from standard input"));
+    }
+}
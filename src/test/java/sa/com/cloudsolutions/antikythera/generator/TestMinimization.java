@@ -0,0 +1,35 @@
+package sa.com.cloudsolutions.antikythera.generator;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class TestMinimization {
+
+    @Test
+    void testRedundantTestsAreDropped() {
+        List<Set<String>> tests = List.of(
+                Set.of("if1@true"),
+                Set.of("if1@true", "if2@false"),
+                Set.of("if1@false"),
+                Set.of("if1@true", "if2@false"),
+                Set.of("if1@false", "throws java.lang.IllegalStateException"));
+
+        assertEquals(List.of(1, 4), UnitTestGenerator.selectCovering(tests));
+    }
+
+    @Test
+    void testTiesGoToTheFirstTest() {
+        List<Set<String>> tests = List.of(Set.of("a", "b"), Set.of("b", "c"), Set.of("a", "c"));
+        assertEquals(List.of(0, 1), UnitTestGenerator.selectCovering(tests));
+    }
+
+    @Test
+    void testOneTestIsKeptWithoutBranches() {
+        assertEquals(List.of(0), UnitTestGenerator.selectCovering(List.of(Set.of(), Set.of())));
+        assertEquals(List.of(), UnitTestGenerator.selectCovering(List.of()));
+    }
+}
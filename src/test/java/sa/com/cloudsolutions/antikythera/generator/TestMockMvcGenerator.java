@@ -0,0 +1,106 @@
+package sa.com.cloudsolutions.antikythera.generator;
+
+import com.github.javaparser.StaticJavaParser;
+import com.github.javaparser.ast.CompilationUnit;
+import com.github.javaparser.ast.body.ClassOrInterfaceDeclaration;
+import com.github.javaparser.ast.body.MethodDeclaration;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import sa.com.cloudsolutions.antikythera.configuration.Settings;
+import sa.com.cloudsolutions.antikythera.evaluator.AntikytheraRunTime;
+import sa.com.cloudsolutions.antikythera.evaluator.DummyArgumentGenerator;
+import sa.com.cloudsolutions.antikythera.evaluator.EvaluationContext;
+import sa.com.cloudsolutions.antikythera.evaluator.mock.MockingRegistry;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TestMockMvcGenerator {
+    CompilationUnit cu;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        Settings.loadConfigMap(new File("src/test/resources/generator.yml"));
+        Settings.setProperty(SpringTestGenerator.MODE, SpringTestGenerator.MOCKMVC);
+
+        AntikytheraRunTime.addType("com.example.PersonService", new TypeWrapper(
+                StaticJavaParser.parse("package com.example; public class PersonService {}").getType(0)));
+        AntikytheraRunTime.addType("com.example.AuditService", new TypeWrapper(
+                StaticJavaParser.parse("package com.example; public class AuditService {}").getType(0)));
+        cu = StaticJavaParser.parse("""
+                package com.example;
+                @RestController
+                public class PersonController {
+                    private final PersonService personService;
+                    @Autowired
+                    private AuditService auditService;
+                    private static final int LIMIT = 10;
+
+                    public PersonController(PersonService personService) {
+                        this.personService = personService;
+                    }
+
+                    @GetMapping("/people")
+                    public String list() {
+                        return "";
+                    }
+                }
+                """);
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        AntikytheraRunTime.forget("com.example.PersonService");
+        AntikytheraRunTime.forget("com.example.AuditService");
+        Settings.loadConfigMap(new File("src/test/resources/generator.yml"));
+    }
+
+    @Test
+    void testControllerIsWiredToMocks() {
+        new EvaluationContext().run(() -> {
+            SpringTestGenerator generator = new SpringTestGenerator(cu);
+            generator.addBeforeClass();
+
+            ClassOrInterfaceDeclaration suite = generator.getCompilationUnit().getType(0).asClassOrInterfaceDeclaration();
+            assertEquals("MockMvcHelper", suite.getExtendedTypes(0).getNameAsString());
+            assertTrue(suite.getFieldByName("personService").orElseThrow().getAnnotationByName("Mock").isPresent());
+            assertTrue(suite.getFieldByName("auditService").orElseThrow().getAnnotationByName("Mock").isPresent());
+            assertFalse(suite.getFieldByName("LIMIT").isPresent());
+            assertTrue(suite.getFieldByName("personController").orElseThrow().getAnnotationByName("InjectMocks").isPresent());
+
+            assertTrue(MockingRegistry.isMockTarget("com.example.PersonService"));
+            assertTrue(MockingRegistry.isMockTarget("com.example.AuditService"));
+
+            String setUp = suite.getMethodsByName("setUp").getFirst().getBody().orElseThrow().toString();
+            assertTrue(setUp.contains("MockitoAnnotations.openMocks(this);"));
+            assertTrue(setUp.contains("standaloneSetup(personController);"));
+        });
+    }
+
+    @Test
+    void testRequestsGoThroughMockMvc() {
+        new EvaluationContext().run(() -> {
+            MethodDeclaration md = cu.getType(0).getMethodsByName("list").getFirst();
+            SpringTestGenerator generator = new SpringTestGenerator(cu);
+            generator.setCommonPath("");
+            generator.setArgumentGenerator(new DummyArgumentGenerator());
+            TestGenerator.addWhenThen(StaticJavaParser.parseExpression(
+                    "Mockito.when(personService.count()).thenReturn(1L)"));
+
+            generator.createTests(md, new MethodResponse());
+
+            MethodDeclaration test = generator.getCompilationUnit().getType(0).getMethods().getFirst();
+            assertTrue(test.getAnnotationByName("TestCaseType").isEmpty());
+            List<String> statements = test.getBody().orElseThrow().getStatements().stream()
+                    .map(Object::toString).toList();
+            assertEquals("Mockito.when(personService.count()).thenReturn(1L);", statements.getFirst());
+            assertEquals("MockMvcResponse response = makeGet(headers, \"\");", statements.get(1));
+        });
+    }
+}
@@ -0,0 +1,66 @@
+package sa.com.cloudsolutions.antikythera.generator;
+
+import com.github.javaparser.StaticJavaParser;
+import com.github.javaparser.ast.CompilationUnit;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TestOutputWriter {
+    @TempDir
+    Path dir;
+
+    @AfterEach
+    void tearDown() throws IOException {
+        OutputWriter.shutdown();
+    }
+
+    @Test
+    void testWritesWhatToStringWould() throws IOException {
+        CompilationUnit first = StaticJavaParser.parse("package com.example; class FirstTest { void a() { int i = 1; } }");
+        CompilationUnit second = StaticJavaParser.parse("package com.example; class SecondTest {}");
+
+        OutputWriter.submit(dir.resolve("com/example/FirstTest.java"), first);
+        OutputWriter.submit(dir.resolve("com/example/SecondTest.java"), second);
+        OutputWriter.flush();
+
+        assertEquals(first.toString(), Files.readString(dir.resolve("com/example/FirstTest.java")));
+        assertEquals(second.toString(), Files.readString(dir.resolve("com/example/SecondTest.java")));
+    }
+
+    @Test
+    void testUnchangedFilesAreLeftAlone() throws IOException {
+        Path file = dir.resolve("com/example/SameTest.java");
+        OutputWriter.write(file, "class SameTest {}");
+        assertTrue(Files.exists(file));
+        FileTime earlier = FileTime.fromMillis(1_000_000L);
+        Files.setLastModifiedTime(file, earlier);
+
+        assertFalse(OutputWriter.write(file, "class SameTest {}".getBytes(StandardCharsets.UTF_8)));
+        assertEquals(earlier, Files.getLastModifiedTime(file));
+
+        assertTrue(OutputWriter.write(file, "class SameTest { }".getBytes(StandardCharsets.UTF_8)));
+        assertEquals("class SameTest { }", Files.readString(file));
+    }
+
+    @Test
+    void testFailuresAreReportedByFlush() throws IOException {
+        Files.writeString(dir.resolve("blocked"), "not a folder");
+        OutputWriter.submit(dir.resolve("blocked/FailingTest.java"), StaticJavaParser.parse("class FailingTest {}"));
+
+        assertThrows(IOException.class, OutputWriter::flush);
+        assertDoesNotThrow(OutputWriter::flush);
+    }
+}
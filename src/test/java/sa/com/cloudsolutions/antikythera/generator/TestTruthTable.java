@@ -1,5 +1,6 @@
 package sa.com.cloudsolutions.antikythera.generator;
 
+import com.github.javaparser.StaticJavaParser;
 import com.github.javaparser.ast.expr.BinaryExpr;
 import com.github.javaparser.ast.expr.Expression;
 import com.github.javaparser.ast.expr.IntegerLiteralExpr;
@@ -543,4 +544,63 @@ class TestTruthTable {
             assertTrue(bValue >= (int) row.get(new NameExpr("c")), "b should be greater than or equal to c");
         }
     }
+
+    @Test
+    void testWideBooleanCondition() {
+        String condition = "a && b || c && !d || (e == f) && g";
+        TruthTable tt = new TruthTable(condition);
+        tt.generateTruthTable();
+
+        List<Map<Expression, Object>> table = tt.getTable();
+        assertEquals(128, table.size());
+        for (Map<Expression, Object> row : table) {
+            boolean a = (boolean) row.get(new NameExpr("a"));
+            boolean b = (boolean) row.get(new NameExpr("b"));
+            boolean c = (boolean) row.get(new NameExpr("c"));
+            boolean d = (boolean) row.get(new NameExpr("d"));
+            boolean e = (boolean) row.get(new NameExpr("e"));
+            boolean f = (boolean) row.get(new NameExpr("f"));
+            boolean g = (boolean) row.get(new NameExpr("g"));
+            assertEquals(a && b || c && !d || (e == f) && g, row.get(TruthTable.RESULT));
+        }
+    }
+
+    @Test
+    void testLimitedValues() {
+        TruthTable tt = new TruthTable("a || b || c");
+        tt.generateTruthTable();
+
+        assertEquals(7, tt.findValuesForCondition(true).size());
+        assertEquals(1, tt.findValuesForCondition(false).size());
+
+        List<Map<Expression, Object>> v = tt.findValuesForCondition(true, 2);
+        assertEquals(2, v.size());
+        assertEquals(tt.findValuesForCondition(true).subList(0, 2), v);
+        assertEquals(1, tt.findValuesForCondition(false, 5).size());
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"a && b && c", "a || b || c", "a && b || c", "(a || b) && !c && d"})
+    void testMCDC(String condition) {
+        TruthTable tt = new TruthTable(condition);
+        tt.generateTruthTable();
+
+        List<Map<Expression, Object>> rows = tt.findMCDCValues();
+        long atoms = condition.chars().filter(Character::isLetter).count();
+        assertEquals(atoms + 1, rows.size());
+        assertTrue(rows.stream().anyMatch(r -> r.get(TruthTable.RESULT).equals(true)));
+        assertTrue(rows.stream().anyMatch(r -> r.get(TruthTable.RESULT).equals(false)));
+    }
+
+    @Test
+    void testMCDCForNestedDecision() {
+        TruthTable tt = new TruthTable("(x) && (a || b)");
+        tt.generateTruthTable();
+
+        List<Map<Expression, Object>> rows = tt.findMCDCValues(StaticJavaParser.parseExpression("a || b"));
+        assertEquals(3, rows.size());
+        for (Map<Expression, Object> row : rows) {
+            assertEquals(true, row.get(new NameExpr("x")));
+        }
+    }
 }
@@ -0,0 +1,104 @@
+package sa.com.cloudsolutions.antikythera.generator;
+
+import com.github.javaparser.StaticJavaParser;
+import com.github.javaparser.ast.expr.BinaryExpr;
+import com.github.javaparser.ast.expr.Expression;
+import com.github.javaparser.ast.expr.NameExpr;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TestTruthTableCache {
+
+    @BeforeEach
+    void setUp() {
+        TruthTableCache.clear();
+        TruthTableCache.setMaxSize(TruthTableCache.DEFAULT_SIZE);
+    }
+
+    @Test
+    void testRenamedConditionsShareTable() {
+        Expression first = StaticJavaParser.parseExpression("a != null && b != null");
+        Expression second = StaticJavaParser.parseExpression("person != null && address != null");
+
+        List<Map<Expression, Object>> v = TruthTableCache.findValuesForCondition(first, true, 1);
+        assertEquals(1, v.size());
+        assertEquals(1, TruthTableCache.getMisses());
+
+        v = TruthTableCache.findValuesForCondition(second, true, 1);
+        assertEquals(1, TruthTableCache.getHits());
+        assertEquals(1, TruthTableCache.size());
+        assertEquals(0.5, TruthTableCache.getHitRate());
+
+        Map<Expression, Object> row = v.getFirst();
+        assertTrue(row.containsKey(new NameExpr("person")));
+        assertTrue(row.containsKey(new NameExpr("address")));
+        assertNotNull(row.get(new NameExpr("person")));
+        assertNotNull(row.get(new NameExpr("address")));
+    }
+
+    @Test
+    void testKeysAreCallerExpressions() {
+        Expression condition = StaticJavaParser.parseExpression("list.isEmpty() || person.getName() == null");
+        TruthTableCache.findValuesForCondition(condition, false, 1);
+        List<Map<Expression, Object>> v = TruthTableCache.findValuesForCondition(condition, false, 1);
+
+        assertEquals(1, TruthTableCache.getHits());
+        for (Expression key : v.getFirst().keySet()) {
+            assertTrue(key.findAncestor(BinaryExpr.class).isPresent(), key + " should be part of the condition");
+        }
+    }
+
+    @Test
+    void testLiteralsAreKept() {
+        TruthTableCache.findValuesForCondition(StaticJavaParser.parseExpression("a > 5"), true, 1);
+        List<Map<Expression, Object>> v = TruthTableCache.findValuesForCondition(
+                StaticJavaParser.parseExpression("x > 10"), true, 1);
+
+        assertEquals(2, TruthTableCache.getMisses());
+        assertTrue((int) v.getFirst().get(new NameExpr("x")) > 10);
+    }
+
+    @Test
+    void testConstraintsArePartOfTheKey() {
+        Expression condition = StaticJavaParser.parseExpression("a > b");
+        BinaryExpr constraint = StaticJavaParser.parseExpression("a > 5").asBinaryExpr();
+
+        TruthTableCache.findValuesForCondition(condition, true, 1);
+        List<Map<Expression, Object>> v = TruthTableCache.findValuesForCondition(condition, List.of(constraint), true, 1);
+
+        assertEquals(2, TruthTableCache.getMisses());
+        assertTrue((int) v.getFirst().get(new NameExpr("a")) > 5);
+    }
+
+    @Test
+    void testEviction() {
+        TruthTableCache.setMaxSize(2);
+        TruthTableCache.findValuesForCondition(StaticJavaParser.parseExpression("a"), true, 1);
+        TruthTableCache.findValuesForCondition(StaticJavaParser.parseExpression("!a"), true, 1);
+        TruthTableCache.findValuesForCondition(StaticJavaParser.parseExpression("a == null"), true, 1);
+
+        assertEquals(2, TruthTableCache.size());
+        assertEquals(1, TruthTableCache.getEvictions());
+
+        TruthTableCache.findValuesForCondition(StaticJavaParser.parseExpression("b"), true, 1);
+        assertEquals(4, TruthTableCache.getMisses());
+    }
+
+    @Test
+    void testMCDCValues() {
+        Expression condition = StaticJavaParser.parseExpression("p && q");
+        List<Map<Expression, Object>> rows = TruthTableCache.findMCDCValues(condition, List.of(), condition);
+
+        assertEquals(3, rows.size());
+        for (Map<Expression, Object> row : rows) {
+            assertTrue(row.containsKey(new NameExpr("p")));
+            assertTrue(row.containsKey(new NameExpr("q")));
+            assertTrue(row.containsKey(TruthTable.RESULT));
+        }
+    }
+}
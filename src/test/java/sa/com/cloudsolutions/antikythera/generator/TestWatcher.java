@@ -0,0 +1,57 @@
+package sa.com.cloudsolutions.antikythera.generator;
+
+import com.github.javaparser.StaticJavaParser;
+import com.github.javaparser.ast.CompilationUnit;
+import org.junit.jupiter.api.Test;
+import sa.com.cloudsolutions.antikythera.evaluator.AntikytheraRunTime;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TestWatcher {
+
+    @Test
+    void testAffectedServices() {
+        Map<String, Set<String>> dependencies = new LinkedHashMap<>();
+        dependencies.put("com.example.PersonService", Set.of("com.example.PersonService", "com.example.Person"));
+        dependencies.put("com.example.OrderService", Set.of("com.example.OrderService", "com.example.Order"));
+        dependencies.put("com.example.ReportService", Set.of("com.example.ReportService", "com.example.Person"));
+
+        assertEquals(List.of("com.example.PersonService", "com.example.ReportService"),
+                List.copyOf(Watcher.affected(dependencies, Set.of("com.example.Person"))));
+        assertEquals(List.of("com.example.OrderService"),
+                List.copyOf(Watcher.affected(dependencies, Set.of("com.example.OrderService"))));
+        assertTrue(Watcher.affected(dependencies, Set.of("com.example.Unused")).isEmpty());
+    }
+
+    @Test
+    void testChangedClassIsForgotten() {
+        CompilationUnit cu = StaticJavaParser.parse("""
+                package com.example;
+                public class Changed implements Runnable {
+                    static class Inner {}
+                    public void run() {}
+                }
+                """);
+        AntikytheraRunTime.addCompilationUnit("com.example.Changed", cu);
+        AntikytheraRunTime.addCompilationUnit("com.example.Changed.Inner", cu);
+        AntikytheraRunTime.addCompilationUnit("com.example.ChangedToo", cu);
+        AntikytheraRunTime.addImplementation("java.lang.Runnable", "com.example.Changed");
+
+        AntikytheraRunTime.forget("com.example.Changed");
+
+        assertNull(AntikytheraRunTime.getCompilationUnit("com.example.Changed"));
+        assertNull(AntikytheraRunTime.getCompilationUnit("com.example.Changed.Inner"));
+        assertNotNull(AntikytheraRunTime.getCompilationUnit("com.example.ChangedToo"));
+        assertFalse(AntikytheraRunTime.findImplementations("java.lang.Runnable").contains("com.example.Changed"));
+        AntikytheraRunTime.forget("com.example.ChangedToo");
+    }
+}
@@ -0,0 +1,159 @@
+package sa.com.cloudsolutions.antikythera.parser;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import sa.com.cloudsolutions.antikythera.configuration.Settings;
+
+import java.io.File;
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class TestConnectionPool {
+    private final List<Connection> connections = new ArrayList<>();
+
+    @BeforeAll
+    static void setUpAll() throws IOException {
+        Settings.loadConfigMap(new File("src/test/resources/generator.yml"));
+    }
+
+    @BeforeEach
+    void setUp() {
+        connections.clear();
+        ConnectionPool.setConnectionFactory(() -> {
+            Connection conn = mock(Connection.class);
+            when(conn.prepareStatement(anyString())).thenAnswer(invocation -> mock(PreparedStatement.class));
+            connections.add(conn);
+            return conn;
+        });
+    }
+
+    @AfterEach
+    void tearDown() {
+        ConnectionPool.setConnectionFactory(null);
+    }
+
+    @Test
+    void testStatementsAreCached() throws SQLException {
+        try (ConnectionPool.PooledConnection pc = ConnectionPool.acquire()) {
+            PreparedStatement first = pc.prepare("SELECT * FROM person WHERE id = ?");
+            PreparedStatement second = pc.prepare("SELECT * FROM person WHERE id = ?");
+            PreparedStatement other = pc.prepare("SELECT * FROM address");
+
+            assertSame(first, second);
+            assertNotSame(first, other);
+            assertEquals(2, pc.cachedStatements());
+            verify(first).clearParameters();
+            verify(first).setQueryTimeout(ConnectionPool.DEFAULT_QUERY_TIMEOUT);
+            verify(first).setFetchSize(ConnectionPool.DEFAULT_FETCH_SIZE);
+            verify(connections.getFirst(), times(2)).prepareStatement(anyString());
+        }
+    }
+
+    @Test
+    void testStatementsWithOpenResultsAreNotReused() throws SQLException {
+        PreparedStatement busy;
+        try (ConnectionPool.PooledConnection pc = ConnectionPool.acquire()) {
+            busy = pc.prepare("SELECT * FROM person WHERE id = ?");
+            ResultSet rs = mock(ResultSet.class);
+            when(busy.getResultSet()).thenReturn(rs);
+
+            PreparedStatement fresh = pc.prepare("SELECT * FROM person WHERE id = ?");
+            assertNotSame(busy, fresh);
+            assertSame(fresh, pc.prepare("SELECT * FROM person WHERE id = ?"));
+            assertEquals(1, pc.cachedStatements());
+
+            when(rs.isClosed()).thenReturn(true);
+            when(fresh.getResultSet()).thenReturn(rs);
+            assertSame(fresh, pc.prepare("SELECT * FROM person WHERE id = ?"));
+        }
+        ConnectionPool.shutdown();
+        verify(busy).close();
+    }
+
+    @Test
+    void testConnectionsAreReused() throws SQLException, IOException {
+        ConnectionPool.PooledConnection first = ConnectionPool.acquire();
+        first.close();
+        ConnectionPool.PooledConnection second = ConnectionPool.acquire();
+        assertSame(first, second);
+
+        ConnectionPool.PooledConnection third = ConnectionPool.acquire();
+        assertNotSame(second, third);
+        assertEquals(2, ConnectionPool.size());
+
+        Settings.setProperty("database.pool_timeout", 0);
+        try {
+            assertThrows(SQLException.class, ConnectionPool::acquire);
+        } finally {
+            Settings.loadConfigMap(new File("src/test/resources/generator.yml"));
+        }
+        second.close();
+        third.close();
+    }
+
+    @Test
+    void testAcquireWaitsForAConnection() throws Exception {
+        ConnectionPool.PooledConnection first = ConnectionPool.acquire();
+        ConnectionPool.PooledConnection second = ConnectionPool.acquire();
+
+        Thread releaser = new Thread(() -> {
+            try {
+                Thread.sleep(100);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            first.close();
+        });
+        releaser.start();
+
+        try (ConnectionPool.PooledConnection third = ConnectionPool.acquire()) {
+            assertSame(first, third);
+        }
+        releaser.join();
+        second.close();
+        assertEquals(2, ConnectionPool.size());
+    }
+
+    @Test
+    void testPoolIsSizedForTheThreads() throws IOException {
+        try {
+            assertEquals(ConnectionPool.DEFAULT_POOL_SIZE, ConnectionPool.getPoolSize());
+            Settings.setProperty("threads", 4);
+            assertEquals(5, ConnectionPool.getPoolSize());
+            Settings.setProperty("database.pool_size", 3);
+            assertEquals(3, ConnectionPool.getPoolSize());
+        } finally {
+            Settings.loadConfigMap(new File("src/test/resources/generator.yml"));
+        }
+    }
+
+    @Test
+    void testShutdownClosesResources() throws SQLException {
+        PreparedStatement prep;
+        try (ConnectionPool.PooledConnection pc = ConnectionPool.acquire()) {
+            prep = pc.prepare("SELECT 1 FROM dual");
+        }
+        ConnectionPool.shutdown();
+
+        verify(prep).close();
+        verify(connections.getFirst()).close();
+        assertEquals(0, ConnectionPool.size());
+    }
+}
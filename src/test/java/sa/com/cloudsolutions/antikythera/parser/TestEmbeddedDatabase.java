@@ -0,0 +1,232 @@
+package sa.com.cloudsolutions.antikythera.parser;
+
+import com.github.javaparser.StaticJavaParser;
+import com.github.javaparser.ast.CompilationUnit;
+import com.github.javaparser.ast.body.TypeDeclaration;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import sa.com.cloudsolutions.antikythera.configuration.Settings;
+import sa.com.cloudsolutions.antikythera.evaluator.AntikytheraRunTime;
+import sa.com.cloudsolutions.antikythera.generator.TypeWrapper;
+
+import java.io.File;
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TestEmbeddedDatabase {
+    private static final TypeDeclaration<?> PERSON = StaticJavaParser.parse("""
+            @Entity
+            @Table(name = "people")
+            public class Person {
+                private static final long serialVersionUID = 1L;
+                @Id
+                private Long id;
+                @Column(name = "given_name")
+                private String firstName;
+                private Boolean active;
+                @ManyToOne
+                @JoinColumn(name = "team_ref")
+                private Team team;
+                @OneToMany
+                private List<Address> addresses;
+                @Transient
+                private String display;
+            }
+            """).getType(0);
+
+    @BeforeEach
+    void setUp() throws IOException {
+        Settings.loadConfigMap(new File("src/test/resources/generator.yml"));
+        EmbeddedDatabase.reset();
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        ConnectionPool.setConnectionFactory(null);
+        EmbeddedDatabase.reset();
+        Settings.loadConfigMap(new File("src/test/resources/generator.yml"));
+    }
+
+    @Test
+    void testSchemaFromEntity() {
+        List<EmbeddedDatabase.Column> columns = EmbeddedDatabase.columns(PERSON);
+        assertEquals("CREATE TABLE IF NOT EXISTS people (id BIGINT, given_name VARCHAR(255), active BOOLEAN, "
+                + "team_ref BIGINT, PRIMARY KEY (id))", EmbeddedDatabase.createTableSql("people", columns));
+        assertEquals("INSERT INTO people (id, given_name, active, team_ref) VALUES (?, ?, ?, ?)",
+                EmbeddedDatabase.insertSql("people", columns));
+    }
+
+    @Test
+    void testKeyColumnFollowsColumnAnnotation() {
+        TypeDeclaration<?> account = StaticJavaParser.parse("""
+                @Entity
+                public class Account {
+                    @Id
+                    @Column(name = "account_key")
+                    private Long accountId;
+                    private String holderName;
+                }
+                """).getType(0);
+        assertEquals("CREATE TABLE IF NOT EXISTS account (account_key BIGINT, holder_name VARCHAR(255), "
+                + "PRIMARY KEY (account_key))",
+                EmbeddedDatabase.createTableSql("account", EmbeddedDatabase.columns(account)));
+    }
+
+    @Test
+    void testRowsCoverBothOutcomes() {
+        List<EmbeddedDatabase.Column> columns = EmbeddedDatabase.columns(PERSON);
+        assertEquals(List.of(1L, "given_name_1", true, 1L), EmbeddedDatabase.rowValues(columns, 0, 3));
+        assertEquals(List.of(2L, "given_name_2", false, 2L), EmbeddedDatabase.rowValues(columns, 1, 3));
+
+        List<Object> last = EmbeddedDatabase.rowValues(columns, 2, 3);
+        assertEquals(3L, last.getFirst());
+        assertNull(last.get(1));
+        assertNull(last.get(2));
+    }
+
+    @Test
+    void testCreateAndQueryTable() throws SQLException {
+        assertFalse(EmbeddedDatabase.isEnabled());
+        Settings.setProperty("database.embedded", "true");
+        Settings.setProperty("database.embedded_url", "jdbc:h2:mem:embedded_test;MODE=PostgreSQL;DB_CLOSE_DELAY=-1");
+        Settings.setProperty("database.embedded_rows", "4");
+        assertTrue(EmbeddedDatabase.isEnabled());
+        assertEquals(EmbeddedDatabase.DEFAULT_USER, EmbeddedDatabase.getUser());
+
+        EmbeddedDatabase.createTable(PERSON);
+        EmbeddedDatabase.createTable(PERSON);
+
+        try (ConnectionPool.PooledConnection pc = ConnectionPool.acquire()) {
+            QueryResult count = QueryResult.materialize(pc.prepare("SELECT COUNT(*) AS total FROM people").executeQuery());
+            assertEquals(4L, count.getLong(0, "TOTAL"));
+
+            PreparedStatement byId = pc.prepare("SELECT given_name, active FROM people WHERE id = ?");
+            byId.setLong(1, 2L);
+            QueryResult second = QueryResult.materialize(byId.executeQuery());
+            assertEquals(1, second.size());
+            assertEquals("given_name_2", second.getString(0, "GIVEN_NAME"));
+            assertFalse(second.getBoolean(0, "ACTIVE"));
+
+            byId.setLong(1, 4L);
+            QueryResult last = QueryResult.materialize(byId.executeQuery());
+            assertNull(last.getString(0, "GIVEN_NAME"));
+        } finally {
+            try (Connection conn = EmbeddedDatabase.connect(); Statement stmt = conn.createStatement()) {
+                stmt.execute("DROP TABLE people");
+            }
+        }
+    }
+
+    @Test
+    void testSchemaIsBuiltFromTheIndex() throws SQLException {
+        useEmbeddedDatabase("schema_test");
+        EntityIndex.index(PERSON.findCompilationUnit().orElseThrow());
+        EntityIndex.index(StaticJavaParser.parse("public class NotAnEntity { private Long id; }"));
+        try {
+            EmbeddedDatabase.createSchema();
+            assertEquals(10L, count("SELECT COUNT(*) AS total FROM people"));
+        } finally {
+            EntityIndex.clear();
+            drop("people");
+        }
+    }
+
+    @Test
+    void testSeededRowsSatisfyConditions() throws SQLException {
+        useEmbeddedDatabase("seed_test");
+        Settings.setProperty("database.embedded_rows", "3");
+        try {
+            EmbeddedDatabase.seed(PERSON, "firstName", "Zed");
+            EmbeddedDatabase.createTable(PERSON);
+            assertEquals(0L, count("SELECT COUNT(*) AS total FROM people WHERE given_name = 'Zed'"));
+
+            EmbeddedDatabase.seed(PERSON, "firstName", "Zed");
+            EmbeddedDatabase.seed(PERSON, "firstName", "Zed");
+            EmbeddedDatabase.seed(PERSON, "active", null);
+            EmbeddedDatabase.seed(PERSON, "missing", 1);
+            assertEquals(5L, count("SELECT COUNT(*) AS total FROM people"));
+            assertEquals(4L, count("SELECT id AS total FROM people WHERE given_name = 'Zed'"));
+            assertEquals(2L, count("SELECT COUNT(*) AS total FROM people WHERE active IS NULL"));
+        } finally {
+            drop("people");
+        }
+    }
+
+    @Test
+    void testJoinColumnTakesTheTypeOfTheReferencedKey() throws IOException {
+        Settings.setProperty(Settings.BASE_PATH, "src/main/java");
+        AbstractCompiler.reset();
+        CompilationUnit team = StaticJavaParser.parse("""
+                package com.example;
+                @Entity
+                public class Team {
+                    @Id
+                    private String code;
+                    @Column(name = "serial")
+                    private Integer serialNumber;
+                }
+                """);
+        AntikytheraRunTime.addType("com.example.Team", new TypeWrapper(team.getType(0)));
+        try {
+            TypeDeclaration<?> player = StaticJavaParser.parse("""
+                    package com.example;
+                    import com.example.Team;
+                    @Entity
+                    public class Player {
+                        @Id
+                        private Long id;
+                        @ManyToOne
+                        private Team team;
+                        @ManyToOne
+                        @JoinColumn(name = "squad", referencedColumnName = "serial")
+                        private Team squad;
+                        @ManyToOne
+                        private Coach coach;
+                    }
+                    """).getType(0);
+            assertEquals("CREATE TABLE IF NOT EXISTS player (id BIGINT, team_id VARCHAR(255), squad INTEGER, "
+                    + "coach_id BIGINT, PRIMARY KEY (id))",
+                    EmbeddedDatabase.createTableSql("player", EmbeddedDatabase.columns(player)));
+        } finally {
+            AntikytheraRunTime.forget("com.example.Team");
+            EntityIndex.clear();
+        }
+    }
+
+    private static void useEmbeddedDatabase(String name) {
+        Settings.setProperty("database.embedded", "true");
+        Settings.setProperty("database.embedded_url", "jdbc:h2:mem:" + name + ";MODE=PostgreSQL;DB_CLOSE_DELAY=-1");
+    }
+
+    private static long count(String sql) throws SQLException {
+        try (ConnectionPool.PooledConnection pc = ConnectionPool.acquire()) {
+            return QueryResult.materialize(pc.prepare(sql).executeQuery()).getLong(0, "TOTAL");
+        }
+    }
+
+    private static void drop(String table) throws SQLException {
+        try (Connection conn = EmbeddedDatabase.connect(); Statement stmt = conn.createStatement()) {
+            stmt.execute("DROP TABLE " + table);
+        }
+    }
+
+    @Test
+    void testMissingDriverIsReported() {
+        Settings.setProperty("database.embedded", "true");
+        Settings.setProperty("database.embedded_url", "jdbc:nosuchdb:mem:test");
+
+        SQLException e = assertThrows(SQLException.class, ConnectionPool::acquire);
+        assertTrue(e.getMessage().contains("No JDBC driver found"));
+    }
+}
@@ -0,0 +1,134 @@
+package sa.com.cloudsolutions.antikythera.parser;
+
+import com.github.javaparser.StaticJavaParser;
+import com.github.javaparser.ast.CompilationUnit;
+import com.github.javaparser.ast.body.TypeDeclaration;
+import com.github.javaparser.ast.type.Type;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import sa.com.cloudsolutions.antikythera.evaluator.AntikytheraRunTime;
+import sa.com.cloudsolutions.antikythera.generator.TypeWrapper;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TestEntityIndex {
+    private static final String PERSON = """
+            package com.example;
+            @Entity
+            @Table(name = "people")
+            public class Person {
+                @Id
+                private Long personId;
+                @Column(name = "given_name")
+                private String firstName;
+                @ManyToOne
+                @JoinColumn(name = "teamRef", referencedColumnName = "teamId")
+                private Team team;
+            }
+            """;
+
+    @AfterEach
+    void tearDown() {
+        EntityIndex.clear();
+        AntikytheraRunTime.forget("com.example.Person");
+    }
+
+    @Test
+    void testIndex() {
+        CompilationUnit cu = StaticJavaParser.parse(PERSON);
+        EntityIndex.index(cu);
+        EntityIndex.index(StaticJavaParser.parse("public class NotAnEntity {}"));
+        assertEquals(1, EntityIndex.size());
+
+        TypeDeclaration<?> type = cu.getType(0);
+        EntityIndex.Metadata metadata = EntityIndex.get(type);
+        assertSame(metadata, EntityIndex.get(type));
+        assertEquals("people", metadata.getTableName());
+        assertEquals("person_id", metadata.getIdColumn());
+        assertEquals("given_name", metadata.getField("firstName").orElseThrow().column());
+
+        EntityIndex.Field team = metadata.getField("team").orElseThrow();
+        assertEquals("\"team_ref\"", team.joinColumn());
+        assertEquals("\"team_id\"", team.referencedColumn());
+        assertFalse(metadata.getField("missing").isPresent());
+    }
+
+    @Test
+    void testIdColumnFollowsColumnAnnotation() {
+        TypeDeclaration<?> type = StaticJavaParser.parse("""
+                @Entity
+                public class Account {
+                    @Id
+                    @Column(name = "account_key")
+                    private Long accountId;
+                }
+                """).getType(0);
+        assertEquals("account_key", EntityIndex.get(type).getIdColumn());
+    }
+
+    @Test
+    void testReparsedTypeIsIndexedAgain() {
+        TypeDeclaration<?> first = StaticJavaParser.parse(PERSON).getType(0);
+        TypeDeclaration<?> second = StaticJavaParser.parse(PERSON.replace("people", "persons")).getType(0);
+
+        assertEquals("people", EntityIndex.get(first).getTableName());
+        assertNotSame(EntityIndex.get(first), EntityIndex.get(second));
+        assertEquals("persons", EntityIndex.get(second).getTableName());
+    }
+
+    @Test
+    void testResolveIsCached() {
+        CompilationUnit repo = StaticJavaParser.parse("""
+                public interface PersonRepository extends JpaRepository<Person, Long> {}
+                """);
+        Type type = repo.getType(0).asClassOrInterfaceDeclaration().getExtendedTypes(0)
+                .getTypeArguments().orElseThrow().getFirst().orElseThrow();
+        TypeWrapper wrapper = new TypeWrapper(StaticJavaParser.parse(PERSON).getType(0));
+        AtomicInteger calls = new AtomicInteger();
+
+        assertSame(wrapper, EntityIndex.resolve(type, () -> { calls.incrementAndGet(); return wrapper; }));
+        assertSame(wrapper, EntityIndex.resolve(type, () -> { calls.incrementAndGet(); return null; }));
+        assertEquals(1, calls.get());
+        assertNull(EntityIndex.resolve(StaticJavaParser.parseType("Person"), () -> wrapper));
+    }
+
+    @Test
+    void testStaleTypeDoesNotReplaceTheCurrentOne() {
+        TypeDeclaration<?> stale = StaticJavaParser.parse(PERSON).getType(0);
+        TypeDeclaration<?> current = StaticJavaParser.parse(PERSON.replace("people", "persons")).getType(0);
+        AntikytheraRunTime.addType("com.example.Person", new TypeWrapper(current));
+
+        EntityIndex.Metadata metadata = EntityIndex.get(current);
+        assertEquals("people", EntityIndex.get(stale).getTableName());
+        assertSame(metadata, EntityIndex.get(current));
+    }
+
+    @Test
+    void testForgottenEntityIsResolvedAgain() {
+        CompilationUnit repo = StaticJavaParser.parse("""
+                package com.example;
+                public interface PersonRepository extends JpaRepository<Person, Long> {}
+                """);
+        Type type = repo.getType(0).asClassOrInterfaceDeclaration().getExtendedTypes(0)
+                .getTypeArguments().orElseThrow().getFirst().orElseThrow();
+        CompilationUnit person = StaticJavaParser.parse(PERSON);
+        EntityIndex.index(person);
+        TypeWrapper stale = new TypeWrapper(person.getType(0));
+        TypeWrapper fresh = new TypeWrapper(StaticJavaParser.parse(PERSON).getType(0));
+
+        assertSame(stale, EntityIndex.resolve(type, () -> stale));
+        assertTrue(EntityIndex.isEntity("com.example.Person"));
+
+        AntikytheraRunTime.forget("com.example.Person");
+        assertFalse(EntityIndex.isEntity("com.example.Person"));
+        assertEquals(0, EntityIndex.size());
+        assertSame(fresh, EntityIndex.resolve(type, () -> fresh));
+    }
+}
@@ -0,0 +1,125 @@
+package sa.com.cloudsolutions.antikythera.parser;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import sa.com.cloudsolutions.antikythera.configuration.Settings;
+
+import java.io.File;
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.startsWith;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class TestQueryLimits {
+
+    @BeforeEach
+    void setUp() throws IOException {
+        Settings.loadConfigMap(new File("src/test/resources/generator.yml"));
+        QueryLimits.clear();
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        Settings.loadConfigMap(new File("src/test/resources/generator.yml"));
+    }
+
+    @Test
+    void testPostgresLimit() {
+        assertEquals("SELECT * FROM person WHERE id = ? LIMIT 101",
+                QueryLimits.addLimit("SELECT * FROM person WHERE id = ?", false, 101));
+        assertEquals("SELECT * FROM person LIMIT 1",
+                QueryLimits.addLimit("SELECT * FROM person LIMIT 1", false, 101));
+        assertEquals("SELECT * FROM person LIMIT 101",
+                QueryLimits.addLimit("SELECT * FROM person LIMIT 5000", false, 101));
+    }
+
+    @Test
+    void testOracleLimit() {
+        assertEquals("SELECT * FROM person WHERE id = ? FETCH FIRST 101 ROWS ONLY",
+                QueryLimits.addLimit("SELECT * FROM person WHERE id = ?", true, 101));
+    }
+
+    @Test
+    void testOtherStatementsAreUnchanged() {
+        assertEquals("DELETE FROM person WHERE id = ?",
+                QueryLimits.addLimit("DELETE FROM person WHERE id = ?", false, 101));
+        assertEquals("not sql at all", QueryLimits.addLimit("not sql at all", false, 101));
+    }
+
+    @Test
+    void testCostGuard() throws SQLException {
+        Connection conn = mock(Connection.class);
+        assertFalse(QueryLimits.isTooExpensive(conn, "SELECT * FROM person", false, p -> { }));
+        verify(conn, never()).prepareStatement(anyString());
+
+        ResultSet rs = mock(ResultSet.class);
+        when(rs.next()).thenReturn(true);
+        when(rs.getString(1)).thenReturn("Seq Scan on person  (cost=0.00..35550.00 rows=2550000 width=4)");
+        PreparedStatement explain = mock(PreparedStatement.class);
+        when(explain.executeQuery()).thenReturn(rs);
+        when(conn.prepareStatement("EXPLAIN SELECT * FROM person")).thenReturn(explain);
+
+        Settings.setProperty("database.max_cost", "100000");
+        assertFalse(QueryLimits.isTooExpensive(conn, "SELECT * FROM person", false, p -> { }));
+        Settings.setProperty("database.max_cost", "1000");
+        assertTrue(QueryLimits.isTooExpensive(conn, "SELECT * FROM person", false, p -> { }));
+        verify(conn, times(1)).prepareStatement("EXPLAIN SELECT * FROM person");
+    }
+
+    @Test
+    void testOraclePlansAreKeptApart() throws SQLException {
+        Settings.setProperty("database.max_cost", "1000");
+        ResultSet rs = mock(ResultSet.class);
+        when(rs.next()).thenReturn(true);
+        when(rs.getDouble(1)).thenReturn(5000.0);
+        Statement stmt = mock(Statement.class);
+        when(stmt.executeQuery(anyString())).thenReturn(rs);
+        Connection conn = mock(Connection.class);
+        when(conn.createStatement()).thenReturn(stmt);
+
+        assertTrue(QueryLimits.isTooExpensive(conn, "SELECT * FROM person WHERE id = ?", true, p -> { }));
+        assertTrue(QueryLimits.isTooExpensive(conn, "SELECT * FROM address WHERE id = ?", true, p -> { }));
+        assertTrue(QueryLimits.isTooExpensive(conn, "SELECT * FROM person WHERE id = ?", true, p -> { }));
+
+        ArgumentCaptor<String> sql = ArgumentCaptor.forClass(String.class);
+        verify(stmt, times(4)).execute(sql.capture());
+        List<String> executed = sql.getAllValues();
+        String first = executed.get(0).split("'")[1];
+        String second = executed.get(2).split("'")[1];
+        assertNotEquals(first, second);
+        assertTrue(first.length() <= 30);
+        assertEquals("EXPLAIN PLAN SET STATEMENT_ID = '" + first + "' FOR SELECT * FROM person WHERE id = :b1",
+                executed.get(0));
+        assertEquals("DELETE FROM plan_table WHERE statement_id = '" + first + "'", executed.get(1));
+        assertEquals("DELETE FROM plan_table WHERE statement_id = '" + second + "'", executed.get(3));
+    }
+
+    @Test
+    void testOraclePlanIsDeletedWhenTheCostCannotBeRead() throws SQLException {
+        Settings.setProperty("database.max_cost", "1000");
+        Statement stmt = mock(Statement.class);
+        when(stmt.executeQuery(anyString())).thenThrow(new SQLException("no plan_table"));
+        Connection conn = mock(Connection.class);
+        when(conn.createStatement()).thenReturn(stmt);
+
+        assertFalse(QueryLimits.isTooExpensive(conn, "SELECT * FROM person", true, p -> { }));
+        verify(stmt).execute(startsWith("DELETE FROM plan_table"));
+    }
+}
@@ -0,0 +1,99 @@
+package sa.com.cloudsolutions.antikythera.parser;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import sa.com.cloudsolutions.antikythera.configuration.Settings;
+
+import java.io.File;
+import java.io.IOException;
+import java.sql.SQLException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TestQueryPrefetcher {
+
+    @BeforeEach
+    void setUp() throws IOException {
+        Settings.loadConfigMap(new File("src/test/resources/generator.yml"));
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        QueryPrefetcher.shutdown();
+        Settings.loadConfigMap(new File("src/test/resources/generator.yml"));
+    }
+
+    @Test
+    void testTakeWaitsForTheResult() throws SQLException, InterruptedException {
+        QueryResult result = QueryResult.materialize(TestQuerySnapshots.personResultSet());
+        CountDownLatch started = new CountDownLatch(1);
+        AtomicInteger runs = new AtomicInteger();
+
+        QueryPrefetcher.submit("SELECT * FROM person", () -> {
+            started.countDown();
+            runs.incrementAndGet();
+            Thread.sleep(50);
+            return result;
+        });
+        QueryPrefetcher.submit("SELECT * FROM person", () -> {
+            runs.incrementAndGet();
+            return null;
+        });
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        assertSame(result, QueryPrefetcher.take("SELECT * FROM person"));
+        assertSame(result, QueryPrefetcher.take("SELECT * FROM person"));
+        assertEquals(1, runs.get());
+        assertNull(QueryPrefetcher.take("SELECT * FROM other"));
+    }
+
+    @Test
+    void testFailedQueryIsForgotten() {
+        QueryPrefetcher.submit("SELECT * FROM broken", () -> {
+            throw new SQLException("no such table");
+        });
+        assertNull(QueryPrefetcher.take("SELECT * FROM broken"));
+    }
+
+    @Test
+    void testAbandonedQueryIsNotTaken() throws InterruptedException {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch never = new CountDownLatch(1);
+        QueryPrefetcher.submit("SELECT * FROM slow", () -> {
+            started.countDown();
+            never.await();
+            return null;
+        });
+        QueryPrefetcher.submit("SELECT * FROM queued", () -> null);
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        AtomicReference<Object> taken = new AtomicReference<>("not taken");
+        Thread taker = new Thread(() -> taken.set(QueryPrefetcher.take("SELECT * FROM queued")));
+        taker.start();
+        Thread.sleep(50);
+        QueryPrefetcher.shutdown();
+        taker.join(5000);
+
+        assertFalse(taker.isAlive());
+        assertNull(taken.get());
+    }
+
+    @Test
+    void testDisabled() {
+        assertTrue(QueryPrefetcher.isEnabled());
+        Settings.setProperty("database.prefetch", "false");
+        assertFalse(QueryPrefetcher.isEnabled());
+        Settings.setProperty("database.prefetch", "true");
+        Settings.setProperty("database.pool_size", "1");
+        assertFalse(QueryPrefetcher.isEnabled());
+    }
+}
@@ -0,0 +1,130 @@
+package sa.com.cloudsolutions.antikythera.parser;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class TestQueryResult {
+
+    @Test
+    void testMaterialize() throws SQLException {
+        ResultSet rs = TestQuerySnapshots.personResultSet();
+        QueryResult result = QueryResult.materialize(rs);
+        verify(rs).close();
+
+        assertEquals(2, result.size());
+        assertFalse(result.isTruncated());
+        assertEquals(List.of("ID", "NAME", "BALANCE"), result.getColumns());
+        assertEquals(1, result.findColumn("name"));
+        assertEquals(-1, result.findColumn("missing"));
+
+        assertEquals(new BigDecimal(1), result.getObject(0, 0));
+        assertEquals(2L, result.getLong(1, "id"));
+        assertTrue(result.getBoolean(1, "id"));
+        assertEquals(10.5, result.getDouble(0, "balance"));
+        assertTrue(result.isNull(1, 2));
+        assertEquals(0.0, result.getDouble(1, "balance"));
+        assertNull(result.getObject(1, "name"));
+
+        assertThrows(IllegalArgumentException.class, () -> result.getObject(0, "missing"));
+        assertThrows(IndexOutOfBoundsException.class, () -> result.getObject(2, 0));
+    }
+
+    @Test
+    void testRowLimit() throws SQLException {
+        ResultSet rs = singleColumn(Types.INTEGER, 1, 2, 3, 4, 5);
+        QueryResult result = QueryResult.materialize(rs, 3);
+
+        assertEquals(3, result.size());
+        assertTrue(result.isTruncated());
+        assertEquals(3, result.getObject(2, 0));
+    }
+
+    @Test
+    void testMixedValuesAreKept() throws SQLException {
+        Object[] values = new Object[40];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = i;
+        }
+        values[35] = "thirty five";
+        values[36] = null;
+        QueryResult result = QueryResult.materialize(singleColumn(Types.OTHER, values));
+
+        assertEquals(40, result.size());
+        assertEquals(34, result.getObject(34, 0));
+        assertEquals("thirty five", result.getObject(35, 0));
+        assertNull(result.getObject(36, 0));
+        assertEquals(39, result.getObject(39, 0));
+    }
+
+    @Test
+    void testFirstValueAfterManyNulls() throws SQLException {
+        Object[] numbers = new Object[41];
+        numbers[40] = 40;
+        QueryResult longs = QueryResult.materialize(singleColumn(Types.INTEGER, numbers));
+        assertEquals(41, longs.size());
+        assertNull(longs.getObject(39, 0));
+        assertEquals(40, longs.getObject(40, 0));
+
+        Object[] names = new Object[41];
+        names[40] = "forty";
+        QueryResult objects = QueryResult.materialize(singleColumn(Types.VARCHAR, names));
+        assertEquals("forty", objects.getObject(40, 0));
+    }
+
+    @Test
+    void testDatesKeepTheirType() throws SQLException {
+        ResultSet rs = singleColumn(Types.DATE, (Object) null);
+        Date date = Date.valueOf("2024-02-29");
+        when(rs.getDate(1)).thenReturn(date);
+
+        QueryResult result = QueryResult.materialize(rs);
+        assertEquals(date, result.getObject(0, 0));
+        assertEquals(Date.class, result.getObject(0, 0).getClass());
+    }
+
+    @Test
+    void testFloatingPointAndBoolean() throws SQLException {
+        QueryResult floats = QueryResult.materialize(singleColumn(Types.FLOAT, 1.5f, 2.5f));
+        assertEquals(2.5f, floats.getObject(1, 0));
+        assertEquals(1.5, floats.getDouble(0, "C"));
+
+        QueryResult flags = QueryResult.materialize(singleColumn(Types.BOOLEAN, true, false));
+        assertEquals(true, flags.getObject(0, 0));
+        assertFalse(flags.getBoolean(1, "C"));
+    }
+
+    private static ResultSet singleColumn(int type, Object... values) throws SQLException {
+        ResultSetMetaData metaData = mock(ResultSetMetaData.class);
+        when(metaData.getColumnCount()).thenReturn(1);
+        when(metaData.getColumnLabel(1)).thenReturn("C");
+        when(metaData.getColumnType(1)).thenReturn(type);
+
+        ResultSet rs = mock(ResultSet.class);
+        when(rs.getMetaData()).thenReturn(metaData);
+        Boolean[] more = new Boolean[values.length];
+        for (int i = 0; i < values.length; i++) {
+            more[i] = i < values.length - 1;
+        }
+        when(rs.next()).thenReturn(true, more);
+        Object[] rest = new Object[values.length - 1];
+        System.arraycopy(values, 1, rest, 0, rest.length);
+        when(rs.getObject(1)).thenReturn(values[0], rest);
+        return rs;
+    }
+}
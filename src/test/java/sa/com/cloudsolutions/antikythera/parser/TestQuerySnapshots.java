@@ -0,0 +1,123 @@
+package sa.com.cloudsolutions.antikythera.parser;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import sa.com.cloudsolutions.antikythera.configuration.Settings;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class TestQuerySnapshots {
+    @TempDir
+    Path dir;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        Settings.loadConfigMap(new File("src/test/resources/generator.yml"));
+        Settings.setProperty("database.snapshot_file", dir.resolve("queries.snapshot").toString());
+        QuerySnapshots.reset();
+    }
+
+    @AfterEach
+    void tearDown() {
+        QuerySnapshots.reset();
+    }
+
+    @Test
+    void testRecordAndReplay() throws SQLException {
+        Settings.setProperty("database.snapshot", QuerySnapshots.RECORD);
+        assertTrue(QuerySnapshots.isRecording());
+
+        String key = QuerySnapshots.key("SELECT * FROM person WHERE id = ?", List.of(1L));
+        QuerySnapshots.record(key, QueryResult.materialize(personResultSet()));
+        QuerySnapshots.save();
+        assertTrue(dir.resolve("queries.snapshot").toFile().exists());
+
+        QuerySnapshots.reset();
+        Settings.setProperty("database.snapshot", QuerySnapshots.REPLAY);
+        assertTrue(QuerySnapshots.isReplaying());
+
+        QueryResult replayed = QuerySnapshots.replay(key);
+        assertEquals(2, replayed.size());
+        assertEquals(1L, replayed.getLong(0, "ID"));
+        assertEquals("Alice", replayed.getString(0, "name"));
+        assertEquals(new BigDecimal("10.5"), replayed.getObject(0, "balance"));
+        assertEquals(new BigDecimal(2), replayed.getObject(1, "id"));
+        assertNull(replayed.getString(1, "name"));
+
+        assertNull(QuerySnapshots.replay(QuerySnapshots.key("SELECT * FROM person", List.of())));
+    }
+
+    @Test
+    void testOnlyQueryResultsAreLoaded() throws IOException {
+        File file = dir.resolve("queries.snapshot").toFile();
+        try (ObjectOutputStream out = new ObjectOutputStream(new GZIPOutputStream(new FileOutputStream(file)))) {
+            out.writeInt(4);
+            out.writeUTF("");
+            out.writeInt(1);
+            out.writeObject("SELECT * FROM person []");
+            out.writeObject(new ArrayList<>(List.of("not a query result")));
+        }
+        Settings.setProperty("database.snapshot", QuerySnapshots.REPLAY);
+
+        assertNull(QuerySnapshots.replay("SELECT * FROM person []"));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testReplayWithoutUrl() throws SQLException, IOException {
+        Settings.setProperty("database.snapshot", QuerySnapshots.RECORD);
+        QuerySnapshots.setDialect("oracle");
+        QuerySnapshots.record(QuerySnapshots.key("SELECT * FROM person", List.of()),
+                QueryResult.materialize(personResultSet()));
+        QuerySnapshots.save();
+        QuerySnapshots.reset();
+
+        ((Map<String, Object>) Settings.getProperty("database")).remove("url");
+        Settings.setProperty("database.snapshot", QuerySnapshots.REPLAY);
+        Settings.setProperty(Settings.BASE_PATH, "src/main/java");
+        assertEquals("oracle", QuerySnapshots.getDialect());
+
+        new RepositoryParser();
+        assertTrue(RepositoryParser.isOracle());
+    }
+
+    static ResultSet personResultSet() throws SQLException {
+        ResultSetMetaData metaData = mock(ResultSetMetaData.class);
+        when(metaData.getColumnCount()).thenReturn(3);
+        when(metaData.getColumnLabel(1)).thenReturn("ID");
+        when(metaData.getColumnLabel(2)).thenReturn("NAME");
+        when(metaData.getColumnLabel(3)).thenReturn("BALANCE");
+        when(metaData.getColumnType(1)).thenReturn(Types.NUMERIC);
+        when(metaData.getColumnType(2)).thenReturn(Types.VARCHAR);
+        when(metaData.getColumnType(3)).thenReturn(Types.NUMERIC);
+
+        ResultSet rs = mock(ResultSet.class);
+        when(rs.getMetaData()).thenReturn(metaData);
+        when(rs.next()).thenReturn(true, true, false);
+        when(rs.getObject(1)).thenReturn(new BigDecimal(1), new BigDecimal(2));
+        when(rs.getObject(2)).thenReturn("Alice", (Object) null);
+        when(rs.getObject(3)).thenReturn(new BigDecimal("10.5"), (Object) null);
+        return rs;
+    }
+}
@@ -2,6 +2,7 @@ package sa.com.cloudsolutions.antikythera.parser;
 
 import com.github.javaparser.StaticJavaParser;
 import com.github.javaparser.ast.CompilationUnit;
+import com.github.javaparser.ast.type.Type;
 import net.sf.jsqlparser.expression.Expression;
 import net.sf.jsqlparser.expression.Function;
 import net.sf.jsqlparser.expression.LongValue;
@@ -14,13 +15,19 @@ import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import sa.com.cloudsolutions.antikythera.configuration.Settings;
+import sa.com.cloudsolutions.antikythera.evaluator.AntikytheraRunTime;
 import sa.com.cloudsolutions.antikythera.generator.RepositoryQuery;
 import sa.com.cloudsolutions.antikythera.generator.TypeWrapper;
 
 import java.io.File;
 import java.io.IOException;
+import java.sql.SQLException;
+import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
 
 class TestRepositoryParser {
     private RepositoryParser parser;
@@ -81,4 +88,108 @@ class TestRepositoryParser {
         Expression result = RepositoryQuery.convertExpressionToSnakeCase(functionExpr);
         assertEquals("SUM(total_amount)", result.toString());
     }
+
+    @Test
+    void testExtractComponentsIsCached() {
+        List<String> components = RepositoryParser.extractComponents("findByFirstNameAndAgeGreaterThan");
+        assertEquals(List.of("findBy", "FirstName", "And", "Age", "GreaterThan"), components);
+        assertSame(components, RepositoryParser.extractComponents("findByFirstNameAndAgeGreaterThan"));
+    }
+
+    @Test
+    void testParsedStatementIsShared() {
+        RepositoryQuery.clearCache();
+        CompilationUnit repo = StaticJavaParser.parse("""
+                public interface PersonRepository extends JpaRepository<Person, Long> {}
+                """);
+        Type entityType = repo.getType(0).asClassOrInterfaceDeclaration().getExtendedTypes(0)
+                .getTypeArguments().orElseThrow().getFirst().orElseThrow();
+
+        RepositoryQuery first = new RepositoryQuery();
+        first.setEntityType(entityType);
+        first.setTable("person");
+        first.setQuery("SELECT p FROM Person p WHERE p.firstName = ?1");
+        assertEquals("SELECT * FROM person p WHERE p.first_name = ?1", first.getQuery());
+
+        RepositoryQuery second = new RepositoryQuery();
+        second.setEntityType(entityType);
+        second.setTable("person");
+        second.setQuery("SELECT p FROM Person p WHERE p.firstName = ?1");
+        assertSame(first.getStatement(), second.getStatement());
+    }
+
+    @Test
+    void testStatementsAreParsedAgainWhenAnEntityChanges() {
+        RepositoryQuery.clearCache();
+        EntityIndex.index(StaticJavaParser.parse("package com.example; @Entity public class Person {}"));
+        Type entityType = StaticJavaParser.parseType("Person");
+        String sql = "SELECT p FROM Person p WHERE p.firstName = ?1";
+
+        RepositoryQuery first = new RepositoryQuery();
+        first.setEntityType(entityType);
+        first.setTable("person");
+        first.setQuery(sql);
+
+        RepositoryQuery.forget("com.example.Address");
+        RepositoryQuery second = new RepositoryQuery();
+        second.setEntityType(entityType);
+        second.setTable("person");
+        second.setQuery(sql);
+        assertSame(first.getStatement(), second.getStatement());
+
+        AntikytheraRunTime.forget("com.example.Person");
+        RepositoryQuery third = new RepositoryQuery();
+        third.setEntityType(entityType);
+        third.setTable("person");
+        third.setQuery(sql);
+        assertNotSame(first.getStatement(), third.getStatement());
+    }
+
+    @Test
+    void testPrefetchSql() {
+        RepositoryQuery.clearCache();
+        Type entityType = StaticJavaParser.parseType("Person");
+
+        assertEquals("SELECT * FROM person p", RepositoryParser.prefetchSql(
+                query(entityType, "List<Person> findAll();", "SELECT p FROM Person p")));
+        assertEquals("SELECT * FROM person p WHERE '1' = '1'", RepositoryParser.prefetchSql(
+                query(entityType, "List<Person> findByFirstName(String firstName);",
+                        "SELECT p FROM Person p WHERE p.firstName = ?1")));
+        assertNull(RepositoryParser.prefetchSql(
+                query(entityType, "List<Person> findByFirstNameLike(String firstName);",
+                        "SELECT p FROM Person p WHERE p.firstName LIKE ?1")));
+    }
+
+    private static RepositoryQuery query(Type entityType, String method, String sql) {
+        RepositoryQuery rql = new RepositoryQuery();
+        rql.setMethodDeclaration(new Callable(StaticJavaParser.parseMethodDeclaration(method), null));
+        rql.setEntityType(entityType);
+        rql.setTable("person");
+        rql.setQuery(sql);
+        return rql;
+    }
+
+    @Test
+    void testCandidateSql() throws SQLException {
+        RepositoryQuery rql = new RepositoryQuery();
+        rql.setMethodDeclaration(new Callable(StaticJavaParser.parseMethodDeclaration(
+                "List<Person> findByIdAndName(Long id, String name);"), null));
+        rql.getMethodParameters().get(0).setColumnName("p.id");
+        rql.getMethodParameters().get(1).setColumnName("nickname");
+        QueryResult simplified = QueryResult.materialize(TestQuerySnapshots.personResultSet());
+
+        assertEquals("(SELECT * FROM person p WHERE ('1' = '1') AND p.id IS NULL FETCH FIRST 1 ROWS ONLY) UNION ALL "
+                        + "(SELECT * FROM person p WHERE ('1' = '1') AND p.id IS NOT NULL FETCH FIRST 1 ROWS ONLY)",
+                RepositoryParser.candidateSql(rql, "SELECT * FROM person p WHERE '1' = '1'", simplified));
+
+        assertEquals("(SELECT p.id, a.id FROM person p JOIN address a ON a.person_id = p.id"
+                        + " WHERE ('1' = '1') AND p.id IS NULL FETCH FIRST 1 ROWS ONLY) UNION ALL "
+                        + "(SELECT p.id, a.id FROM person p JOIN address a ON a.person_id = p.id"
+                        + " WHERE ('1' = '1') AND p.id IS NOT NULL FETCH FIRST 1 ROWS ONLY)",
+                RepositoryParser.candidateSql(rql, "SELECT p.id, a.id FROM person p JOIN address a"
+                        + " ON a.person_id = p.id WHERE '1' = '1'", simplified));
+
+        rql.getMethodParameters().get(0).setColumnName(null);
+        assertNull(RepositoryParser.candidateSql(rql, "SELECT * FROM person p WHERE '1' = '1'", simplified));
+    }
 }